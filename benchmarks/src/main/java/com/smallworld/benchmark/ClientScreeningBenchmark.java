@@ -0,0 +1,101 @@
+package com.smallworld.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.TransactionDataFetcher;
+import com.smallworld.controller.PreSerializedResponses;
+import com.smallworld.controller.TransactionController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Screening throughput, in names per second, of a list of 100000 client names, a tenth of them unknown: one
+ * {@code hasOpenComplianceIssues} and one {@code countOpenComplianceIssues} call per name as the compliance team
+ * does today, the batch screening, which also lists the open issue ids, and the batch screening through the
+ * endpoint's ndjson parsing and serialization, without the http stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ClientScreeningBenchmark {
+
+    private static final int NAMES = 100_000;
+    private static final int SENDERS = 100_000;
+
+    @Param({"1000000"})
+    private int rows;
+
+    private TransactionDataFetcher fetcher;
+    private TransactionController controller;
+    private List<String> names;
+    private byte[] ndjson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        InMemoryTransactionService transactionService =
+                new InMemoryTransactionService(TransactionGenerator.generate(rows, 2, SENDERS));
+        // builds the client issue index outside of the measurement.
+        transactionService.getStatistics().buildIndex();
+        ObjectMapper objectMapper = new ObjectMapper();
+        fetcher = new TransactionDataFetcher(transactionService);
+        controller = new TransactionController(fetcher, new PreSerializedResponses(transactionService, objectMapper),
+                objectMapper);
+        SplittableRandom random = new SplittableRandom(25);
+        names = new ArrayList<>(NAMES);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < NAMES; i++) {
+            String name = random.nextInt(10) == 0 ? "Unknown " + i
+                    : (random.nextBoolean() ? "Sender " : "Beneficiary ") + random.nextInt(SENDERS);
+            names.add(name);
+            objectMapper.writeValue(body, name);
+            body.write('\n');
+        }
+        ndjson = body.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public void perNameCalls(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(fetcher.hasOpenComplianceIssues(name));
+            blackhole.consume(fetcher.countOpenComplianceIssues(name));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public void screenClients(Blackhole blackhole) {
+        fetcher.screenClients(names.iterator(), blackhole::consume);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public byte[] screeningEndpoint() throws IOException {
+        ByteArrayOutputStream results = new ByteArrayOutputStream(NAMES * 96);
+        controller.screenClients(new ByteArrayInputStream(ndjson)).getBody().writeTo(results);
+        return results.toByteArray();
+    }
+}
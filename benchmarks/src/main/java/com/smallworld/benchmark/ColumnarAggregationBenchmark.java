@@ -0,0 +1,102 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the previous boxed {@code List<Transaction>} stream aggregations with the primitive loops over
+ * {@link TransactionColumns}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ColumnarAggregationBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    @Param({"2"})
+    private int issuesPerTransaction;
+
+    @Param({"10000"})
+    private int senders;
+
+    private List<Transaction> transactions;
+    private TransactionColumns columns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactions = TransactionGenerator.generate(rows, issuesPerTransaction, senders);
+        columns = TransactionColumns.of(transactions);
+    }
+
+    @Benchmark
+    public double totalAmountObjectList() {
+        Set<Object> seen = ConcurrentHashMap.newKeySet();
+        return transactions.stream()
+                .filter(transaction -> seen.add(transaction.getMtn()))
+                .mapToDouble(Transaction::getAmount).sum();
+    }
+
+    @Benchmark
+    public double totalAmountColumnar() {
+        double total = 0.0;
+        for (int transaction = 0; transaction < columns.transactionCount(); transaction++) {
+            total += columns.transactionAmount(transaction);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public String topSenderObjectList() {
+        Set<Object> seen = ConcurrentHashMap.newKeySet();
+        Map<String, Double> bySender = transactions.stream()
+                .filter(transaction -> seen.add(transaction.getMtn()))
+                .collect(Collectors.groupingBy(Transaction::getSenderFullName, Collectors.summingDouble(Transaction::getAmount)));
+        return Collections.max(bySender.entrySet(), Map.Entry.comparingByValue()).getKey();
+    }
+
+    @Benchmark
+    public String topSenderColumnar() {
+        double[] bySender = new double[columns.names().size()];
+        for (int transaction = 0; transaction < columns.transactionCount(); transaction++) {
+            bySender[columns.transactionSenderId(transaction)] += columns.transactionAmount(transaction);
+        }
+        int top = 0;
+        for (int client = 1; client < bySender.length; client++) {
+            if (bySender[client] > bySender[top]) {
+                top = client;
+            }
+        }
+        return columns.names().decode(top);
+    }
+
+    @Benchmark
+    public TransactionStatistics statisticsFromRows() {
+        return TransactionStatistics.of(transactions);
+    }
+}
@@ -0,0 +1,155 @@
+package com.smallworld.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.SmallWorldCodingTestApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Closed loop load test of the http api at a given number of concurrent connections: every connection sends its
+ * next client lookup as soon as the previous one answered. Prints throughput and latency percentiles per level, for
+ * the thread mode the application was started in. Run it once per mode and compare:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.smallworld.benchmark.ConcurrentConnectionsLoadTest platform
+ * java -cp benchmarks/target/benchmarks.jar com.smallworld.benchmark.ConcurrentConnectionsLoadTest virtual
+ * </pre>
+ * Optional further arguments are the comma separated connection levels (1000,5000,10000,50000 by default) and the
+ * seconds per level. Virtual mode needs Java 21. Beyond about 28K connections the client runs out of ephemeral ports
+ * and file descriptors with Linux defaults; widen {@code net.ipv4.ip_local_port_range} and {@code ulimit -n} first.
+ */
+public final class ConcurrentConnectionsLoadTest {
+
+    private static final String DEFAULT_LEVELS = "1000,5000,10000,50000";
+    private static final long DEFAULT_SECONDS = 20;
+    private static final int ROWS = 100_000;
+    private static final int SENDERS = 10_000;
+    private static final int CONNECTIONS_PER_CLIENT = 1_000;
+    private static final double WARMUP_SHARE = 0.25;
+
+    private ConcurrentConnectionsLoadTest() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean virtual = args.length > 0 && args[0].equals("virtual");
+        int[] levels = Arrays.stream((args.length > 1 ? args[1] : DEFAULT_LEVELS).split(",")).mapToInt(Integer::parseInt).toArray();
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SECONDS);
+
+        File jsonFile = File.createTempFile("transactions", ".json");
+        new ObjectMapper().writeValue(jsonFile, TransactionGenerator.generate(ROWS, 2, SENDERS));
+        int maxConnections = Arrays.stream(levels).max().orElse(0) + CONNECTIONS_PER_CLIENT;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SmallWorldCodingTestApplication.class)
+                .run("--server.port=0",
+                        "--datasource.json.file-location=" + jsonFile.getAbsolutePath(),
+                        "--smallworld.virtual-threads.enabled=" + virtual,
+                        "--server.tomcat.max-connections=" + maxConnections,
+                        "--server.tomcat.accept-count=" + maxConnections,
+                        "--logging.level.root=WARN")) {
+            String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/clients/";
+            for (int connections : levels) {
+                System.out.println((virtual ? "virtual" : "platform") + " threads, " + connections + " connections: "
+                        + run(baseUri, connections, duration));
+            }
+        } finally {
+            Files.deleteIfExists(jsonFile.toPath());
+        }
+    }
+
+    private static String run(String baseUri, int connections, Duration duration) throws InterruptedException {
+        List<HttpClient> clients = new ArrayList<>();
+        for (int i = 0; i < connections; i += CONNECTIONS_PER_CLIENT) {
+            clients.add(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build());
+        }
+        long start = System.nanoTime();
+        long measureFrom = start + (long) (duration.toNanos() * WARMUP_SHARE);
+        long deadline = start + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(connections);
+        Connection[] loops = new Connection[connections];
+        for (int i = 0; i < connections; i++) {
+            URI uri = URI.create(baseUri + "Sender%20" + i % SENDERS + "/open-issues/count");
+            loops[i] = new Connection(clients.get(i / CONNECTIONS_PER_CLIENT), HttpRequest.newBuilder(uri).GET().build(),
+                    measureFrom, deadline, done);
+            loops[i].send();
+        }
+        done.await();
+
+        long requests = 0;
+        long errors = 0;
+        long[] latencies = new long[0];
+        for (Connection loop : loops) {
+            requests += loop.count;
+            errors += loop.errors;
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + loop.count);
+            System.arraycopy(loop.latencies, 0, latencies, offset, loop.count);
+        }
+        Arrays.sort(latencies);
+        double seconds = (deadline - measureFrom) / 1e9;
+        return String.format("%.0f req/s, p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms, %d errors",
+                requests / seconds, percentile(latencies, 0.5), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0), errors);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * One connection's request loop; callbacks of a connection never overlap, so its counters need no sync.
+     */
+    private static final class Connection {
+
+        private final HttpClient client;
+        private final HttpRequest request;
+        private final long measureFrom;
+        private final long deadline;
+        private final CountDownLatch done;
+        private long[] latencies = new long[64];
+        private int count;
+        private long errors;
+
+        private Connection(HttpClient client, HttpRequest request, long measureFrom, long deadline, CountDownLatch done) {
+            this.client = client;
+            this.request = request;
+            this.measureFrom = measureFrom;
+            this.deadline = deadline;
+            this.done = done;
+        }
+
+        private void send() {
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                long now = System.nanoTime();
+                if (failure != null || response.statusCode() != 200) {
+                    errors++;
+                } else if (sent >= measureFrom) {
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = now - sent;
+                }
+                if (now < deadline) {
+                    send();
+                } else {
+                    done.countDown();
+                }
+            });
+        }
+    }
+}
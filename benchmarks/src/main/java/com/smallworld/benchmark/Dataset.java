@@ -0,0 +1,44 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.TransactionDataFetcher;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Generated dataset shared by the query benchmarks; every combination of the parameters is one trial.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+
+    private static final int CLIENT_BATCH_SIZE = 1000;
+
+    @Param({"10000", "1000000", "10000000"})
+    int rows;
+
+    @Param({"1", "3"})
+    int issuesPerTransaction;
+
+    @Param({"1000", "100000"})
+    int senders;
+
+    InMemoryTransactionService transactionService;
+    TransactionDataFetcher fetcher;
+    String knownClient;
+    String unknownClient;
+    List<String> clientBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactionService = new InMemoryTransactionService(TransactionGenerator.generate(rows, issuesPerTransaction, senders));
+        fetcher = new TransactionDataFetcher(transactionService);
+        knownClient = "Sender 0";
+        unknownClient = "Nobody";
+        clientBatch = IntStream.range(0, CLIENT_BATCH_SIZE).mapToObj(i -> "Sender " + i % senders).toList();
+    }
+}
@@ -0,0 +1,105 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.data.TransactionAggregate;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.data.TransactionStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the index backed filtered aggregation with a full scan of the transaction columns, for an amount range
+ * and a sender age range matching about the given share of the transactions. Generated amounts are uniform over
+ * [1, 10000) and sender ages over [18, 88), so the smallest age range is one year, about 1.4%.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FilteredAggregationBenchmark {
+
+    private static final double MIN_AMOUNT = 1.0;
+    private static final double MAX_AMOUNT = 10_000.0;
+    private static final int MIN_AGE = 18;
+    private static final int AGES = 70;
+    private static final int TOP_SENDERS = 10;
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"0.001", "0.01", "0.1", "0.5"})
+    private double selectivity;
+
+    private TransactionStatistics statistics;
+    private TransactionFilter amountRange;
+    private TransactionFilter senderAgeRange;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        statistics = TransactionStatistics.of(TransactionGenerator.generate(rows, 2, 10_000));
+        amountRange = TransactionFilter.builder()
+                .minAmount(MIN_AMOUNT)
+                .maxAmount(MIN_AMOUNT + selectivity * (MAX_AMOUNT - MIN_AMOUNT))
+                .build();
+        senderAgeRange = TransactionFilter.builder()
+                .minSenderAge(MIN_AGE)
+                .maxSenderAge(MIN_AGE + Math.max(1, (int) Math.round(selectivity * AGES)) - 1)
+                .build();
+        // builds the index outside of the measurement.
+        statistics.aggregate(TransactionFilter.ALL, 0);
+    }
+
+    @Benchmark
+    public TransactionAggregate amountRangeIndexed() {
+        return statistics.aggregate(amountRange, TOP_SENDERS);
+    }
+
+    @Benchmark
+    public double amountRangeScan() {
+        TransactionColumns columns = statistics.getColumns();
+        double min = amountRange.getMinAmount();
+        double max = amountRange.getMaxAmount();
+        double total = 0.0;
+        for (int transaction = 0; transaction < columns.transactionCount(); transaction++) {
+            double amount = columns.transactionAmount(transaction);
+            if (amount >= min && amount <= max) {
+                total += amount;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public TransactionAggregate senderAgeRangeIndexed() {
+        return statistics.aggregate(senderAgeRange, TOP_SENDERS);
+    }
+
+    @Benchmark
+    public double senderAgeRangeScan() {
+        TransactionColumns columns = statistics.getColumns();
+        int min = senderAgeRange.getMinSenderAge();
+        int max = senderAgeRange.getMaxSenderAge();
+        double total = 0.0;
+        for (int transaction = 0; transaction < columns.transactionCount(); transaction++) {
+            int age = columns.transactionSenderAge(transaction);
+            if (age != TransactionColumns.MISSING && age >= min && age <= max) {
+                total += columns.transactionAmount(transaction);
+            }
+        }
+        return total;
+    }
+}
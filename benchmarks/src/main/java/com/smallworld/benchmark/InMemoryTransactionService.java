@@ -0,0 +1,68 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionSnapshot;
+import com.smallworld.data.TransactionStatistics;
+import com.smallworld.service.TransactionService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link TransactionService} over generated rows, so benchmarks measure the fetcher without Spring or file I/O.
+ * A reload rebuilds the snapshot from the same rows.
+ */
+public class InMemoryTransactionService implements TransactionService {
+
+    private final List<Transaction> transactions;
+    private final AtomicReference<TransactionSnapshot> snapshot = new AtomicReference<>();
+
+    public InMemoryTransactionService(List<Transaction> transactions) {
+        this.transactions = transactions;
+        reload();
+    }
+
+    @Override
+    public List<Transaction> getAllTransaction() {
+        return getStatistics().getTransactions();
+    }
+
+    @Override
+    public TransactionColumns getColumns() {
+        return getStatistics().getColumns();
+    }
+
+    @Override
+    public TransactionStatistics getStatistics() {
+        return snapshot.get().getStatistics();
+    }
+
+    @Override
+    public TransactionSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    @Override
+    public synchronized TransactionSnapshot reload() {
+        TransactionSnapshot previous = snapshot.get();
+        long version = previous == null ? 1 : previous.getVersion() + 1;
+        long start = System.nanoTime();
+        TransactionStatistics statistics = TransactionStatistics.of(transactions);
+        TransactionSnapshot loaded = new TransactionSnapshot(version, Instant.now(), Duration.ofNanos(System.nanoTime() - start), statistics);
+        snapshot.set(loaded);
+        return loaded;
+    }
+
+    @Override
+    public synchronized boolean ingest(Transaction transaction) {
+        return getStatistics().add(transaction);
+    }
+
+    @Override
+    public synchronized boolean markIssueSolved(int issueId) {
+        return getStatistics().markIssueSolved(issueId);
+    }
+}
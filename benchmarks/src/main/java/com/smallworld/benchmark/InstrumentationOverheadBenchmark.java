@@ -0,0 +1,104 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.InstrumentedTransactionDataFetcher;
+import com.smallworld.TransactionDataFetcher;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the metrics on the query path: the same O(1) and O(k) queries on the plain fetcher and on the
+ * instrumented one recording into a Prometheus registry, from one and from four threads. The difference between a
+ * pair is the per call overhead; {@code -prof gc} shows whether recording allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InstrumentationOverheadBenchmark {
+
+    private static final int TOP_N = 100;
+
+    @Param({"1000000"})
+    private int rows;
+
+    private TransactionDataFetcher plain;
+    private TransactionDataFetcher instrumented;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryTransactionService transactionService = new InMemoryTransactionService(TransactionGenerator.generate(rows, 2, 1000));
+        plain = new TransactionDataFetcher(transactionService);
+        instrumented = new InstrumentedTransactionDataFetcher(transactionService, new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+    }
+
+    @Benchmark
+    public double totalAmountPlain() {
+        return plain.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    public double totalAmountInstrumented() {
+        return instrumented.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public double totalAmountPlainContended() {
+        return plain.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public double totalAmountInstrumentedContended() {
+        return instrumented.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    public boolean openIssuesPlain() {
+        return plain.hasOpenComplianceIssues("Sender 0");
+    }
+
+    @Benchmark
+    public boolean openIssuesInstrumented() {
+        return instrumented.hasOpenComplianceIssues("Sender 0");
+    }
+
+    @Benchmark
+    public Optional<String> topSenderPlain() {
+        return plain.getTopSender();
+    }
+
+    @Benchmark
+    public Optional<String> topSenderInstrumented() {
+        return instrumented.getTopSender();
+    }
+
+    @Benchmark
+    public List<?> topNTransactionsPlain() {
+        return plain.getTopNTransactionsByAmount(TOP_N);
+    }
+
+    @Benchmark
+    public List<?> topNTransactionsInstrumented() {
+        return instrumented.getTopNTransactionsByAmount(TOP_N);
+    }
+}
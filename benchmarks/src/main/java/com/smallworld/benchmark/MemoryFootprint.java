@@ -0,0 +1,56 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionStatistics;
+
+import java.util.List;
+
+/**
+ * Prints the heap retained by the loaded rows: the denormalized {@link Transaction} objects, the normalized columns
+ * alone and the full statistics, for one and for three issues per transaction.
+ * Retained sizes are the used heap after a full collection, so run it with a stop the world collector, e.g.
+ * {@code java -XX:+UseSerialGC -Xmx6g -cp benchmarks/target/benchmarks.jar com.smallworld.benchmark.MemoryFootprint}.
+ * For a per class breakdown take a {@code jcmd <pid> GC.class_histogram} while the application holds the data.
+ */
+public final class MemoryFootprint {
+
+    private static final int ROWS = 1_000_000;
+    private static final int SENDERS = 10_000;
+
+    private MemoryFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : ROWS;
+        for (int issuesPerTransaction : new int[]{1, 3}) {
+            long empty = retainedHeap();
+            List<Transaction> transactions = TransactionGenerator.generate(rows, issuesPerTransaction, SENDERS);
+            long objects = retainedHeap() - empty;
+
+            TransactionColumns.Builder builder = new TransactionColumns.Builder();
+            transactions.forEach(builder::append);
+            long columns = retainedHeap() - empty - objects;
+            TransactionColumns view = builder.view();
+            int size = view.size();
+            int transactionCount = view.transactionCount();
+            view = null;
+            builder = null;
+
+            TransactionStatistics statistics = TransactionStatistics.of(transactions);
+            long all = retainedHeap() - empty - objects;
+            System.out.printf("issues/transaction %d, %d rows, %d transactions: objects %d MB, columns %d MB, statistics %d MB%n",
+                    issuesPerTransaction, size, transactionCount, objects >> 20, columns >> 20, all >> 20);
+            transactions = null;
+            statistics = null;
+        }
+    }
+
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
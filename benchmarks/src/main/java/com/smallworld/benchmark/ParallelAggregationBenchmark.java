@@ -0,0 +1,68 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling curve of the chunked parallel aggregation: the build runs inside a fork join pool of {@code threads}
+ * workers, which the parallel chunks then run on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ParallelAggregationBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int threads;
+
+    @Param({"10000"})
+    private int senders;
+
+    private List<Transaction> transactions;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactions = TransactionGenerator.generate(rows, 2, senders);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public TransactionStatistics sequential() {
+        return TransactionStatistics.of(transactions);
+    }
+
+    @Benchmark
+    public TransactionStatistics parallel() throws ExecutionException, InterruptedException {
+        return pool.submit(() -> TransactionStatistics.of(transactions, 0)).get();
+    }
+}
@@ -0,0 +1,121 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.SmallWorldCodingTestApplication;
+import com.smallworld.controller.TransactionController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the per client endpoints with the response cache off ({@code 0} entries), smaller than the hot set and
+ * large enough for it, on client lookups following a Zipf law: a few clients take most of the requests, as on a
+ * compliance screen. The controller beans are called directly, without the http stack, so the difference is the
+ * query plus serialization a hit saves. The mtns endpoint walks the sender's transactions and gains the most.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ResponseCacheBenchmark {
+
+    private static final int SENDERS = 100_000;
+    private static final int LOOKUPS = 1 << 20;
+    private static final double ZIPF_EXPONENT = 1.0;
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"0", "1024", "4096", "65536"})
+    private int maxEntries;
+
+    private File jsonFile;
+    private ConfigurableApplicationContext context;
+    private TransactionController controller;
+    private String[] clients;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        jsonFile = TransactionGenerator.generateJson(rows, 2, SENDERS);
+        context = new SpringApplicationBuilder(SmallWorldCodingTestApplication.class)
+                .run("--server.port=0",
+                        "--datasource.json.file-location=" + jsonFile.getAbsolutePath(),
+                        "--api.response-cache.max-entries=" + maxEntries,
+                        "--logging.level.root=WARN");
+        controller = context.getBean(TransactionController.class);
+        clients = zipfClients();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> totalAmountSentBy(Cursor cursor) {
+        return controller.getTotalTransactionAmountSentBy(clients[cursor.next()], null);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> openIssues(Cursor cursor) {
+        return controller.hasOpenComplianceIssues(clients[cursor.next()], null);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> mtnsSentBy(Cursor cursor) {
+        return controller.getTransactionMtnsSentBy(clients[cursor.next()], null);
+    }
+
+    /**
+     * Client names drawn from the senders with probability proportional to 1 / rank^s.
+     */
+    private static String[] zipfClients() {
+        double[] cumulative = new double[SENDERS];
+        double sum = 0.0;
+        for (int rank = 0; rank < SENDERS; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(23);
+        String[] clients = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble(sum));
+            clients[i] = "Sender " + Math.min(SENDERS - 1, rank < 0 ? -rank - 1 : rank);
+        }
+        return clients;
+    }
+
+    /**
+     * Position of a thread in the lookup sequence.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int position;
+
+        int next() {
+            position = (position + 1) & (LOOKUPS - 1);
+            return position;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.smallworld.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.SmallWorldCodingTestApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load driver for the http api: starts the application on a random port over a generated json file and fires
+ * requests from 16 client threads over keep alive connections. Requests with the current ETag measure the 304
+ * path, the others the pre-serialized body path; throughput is requests per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(16)
+public class RestApiBenchmark {
+
+    @Param({"1000000"})
+    private int rows;
+
+    private File jsonFile;
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUri;
+    private String totalAmountETag;
+    private String topSendersETag;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        jsonFile = File.createTempFile("transactions", ".json");
+        new ObjectMapper().writeValue(jsonFile, TransactionGenerator.generate(rows, 2, 1000));
+        context = new SpringApplicationBuilder(SmallWorldCodingTestApplication.class)
+                .run("--server.port=0", "--datasource.json.file-location=" + jsonFile.getAbsolutePath(),
+                        "--logging.level.root=WARN");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+        totalAmountETag = get("/transactions/total-amount", null).headers().firstValue("ETag").orElseThrow();
+        topSendersETag = get("/senders/top?k=100", null).headers().firstValue("ETag").orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Files.deleteIfExists(jsonFile.toPath());
+    }
+
+    @Benchmark
+    public int totalAmount() throws IOException, InterruptedException {
+        return get("/transactions/total-amount", null).statusCode();
+    }
+
+    @Benchmark
+    public int totalAmountNotModified() throws IOException, InterruptedException {
+        return get("/transactions/total-amount", totalAmountETag).statusCode();
+    }
+
+    @Benchmark
+    public int topSenders() throws IOException, InterruptedException {
+        return get("/senders/top?k=100", null).statusCode();
+    }
+
+    @Benchmark
+    public int topSendersNotModified() throws IOException, InterruptedException {
+        return get("/senders/top?k=100", topSendersETag).statusCode();
+    }
+
+    @Benchmark
+    public int openIssueCount() throws IOException, InterruptedException {
+        return get("/clients/Sender%200/open-issues/count", null).statusCode();
+    }
+
+    private HttpResponse<byte[]> get(String path, String eTag) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUri + path)).GET();
+        if (eTag != null) {
+            request.header("If-None-Match", eTag);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
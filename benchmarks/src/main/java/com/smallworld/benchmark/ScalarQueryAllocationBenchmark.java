@@ -0,0 +1,111 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.TransactionDataFetcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scalar {@link TransactionDataFetcher} queries, which must not allocate once warmed up. Run as a main it
+ * attaches the gc profiler and fails when any of them allocates a byte per call or more:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.smallworld.benchmark.ScalarQueryAllocationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ScalarQueryAllocationBenchmark {
+
+    private static final String ALLOCATION_PER_CALL = "gc.alloc.rate.norm";
+    private static final double MAX_BYTES_PER_CALL = 1.0;
+
+    @Param({"1000000"})
+    private int rows;
+
+    private TransactionDataFetcher fetcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fetcher = new TransactionDataFetcher(new InMemoryTransactionService(TransactionGenerator.generate(rows, 2, 1000)));
+    }
+
+    @Benchmark
+    public double getTotalTransactionAmount() {
+        return fetcher.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    public double getMaxTransactionAmount() {
+        return fetcher.getMaxTransactionAmount();
+    }
+
+    @Benchmark
+    public double getTotalTransactionAmountSentBy() {
+        return fetcher.getTotalTransactionAmountSentBy("Sender 0");
+    }
+
+    @Benchmark
+    public long countUniqueClients() {
+        return fetcher.countUniqueClients();
+    }
+
+    @Benchmark
+    public boolean hasOpenComplianceIssues() {
+        return fetcher.hasOpenComplianceIssues("Sender 0");
+    }
+
+    @Benchmark
+    public boolean hasOpenComplianceIssuesUnknownClient() {
+        return fetcher.hasOpenComplianceIssues("Nobody");
+    }
+
+    @Benchmark
+    public int countOpenComplianceIssues() {
+        return fetcher.countOpenComplianceIssues("Sender 0");
+    }
+
+    @Benchmark
+    public Optional<String> getTopSender() {
+        return fetcher.getTopSender();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        boolean allocates = false;
+        for (RunResult run : new Runner(new OptionsBuilder()
+                .include(ScalarQueryAllocationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run()) {
+            Result<?> allocation = run.getSecondaryResults().get(ALLOCATION_PER_CALL);
+            String benchmark = run.getParams().getBenchmark();
+            if (allocation == null || allocation.getScore() >= MAX_BYTES_PER_CALL) {
+                System.out.printf("%s allocates %s B/op%n", benchmark, allocation == null ? "?" : allocation.getScore());
+                allocates = true;
+            }
+        }
+        if (allocates) {
+            System.exit(1);
+        }
+    }
+}
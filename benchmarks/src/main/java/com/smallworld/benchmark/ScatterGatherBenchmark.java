@@ -0,0 +1,102 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.ScatterGatherTransactionDataFetcher;
+import com.smallworld.SmallWorldCodingTestApplication;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionAggregate;
+import com.smallworld.data.TransactionFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the scatter gather coordinator over 1 to 8 partition nodes, started in this JVM on loopback ports
+ * over the same generated json file. Every call asks for different parameters, so the nodes compute instead of
+ * serving a cached body: the filtered aggregation and the top k selection scan a node's share of the transactions,
+ * the sender lookup is a hash probe that only measures the fan out overhead. Nodes in one JVM share its cores, so
+ * the curve flattens at the core count; partitions on separate hosts keep scaling the scans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Threads(8)
+public class ScatterGatherBenchmark {
+
+    private static final int SENDERS = 10_000;
+    private static final double MAX_AMOUNT = 10_000.0;
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"1", "2", "4", "8"})
+    private int shards;
+
+    private File jsonFile;
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private ScatterGatherTransactionDataFetcher coordinator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        jsonFile = TransactionGenerator.generateJson(rows, 2, SENDERS);
+        List<URI> uris = new ArrayList<>();
+        for (int index = 0; index < shards; index++) {
+            ConfigurableApplicationContext node = new SpringApplicationBuilder(SmallWorldCodingTestApplication.class)
+                    .run("--server.port=0",
+                            "--server.address=127.0.0.1",
+                            "--datasource.json.file-location=" + jsonFile.getAbsolutePath(),
+                            "--datasource.partition.index=" + index,
+                            "--datasource.partition.count=" + shards,
+                            "--logging.level.root=WARN");
+            nodes.add(node);
+            uris.add(URI.create("http://127.0.0.1:" + node.getEnvironment().getProperty("local.server.port")));
+        }
+        coordinator = new ScatterGatherTransactionDataFetcher(uris, Duration.ofSeconds(30));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+        nodes.clear();
+    }
+
+    @Benchmark
+    public TransactionAggregate filteredAggregate() {
+        double minAmount = ThreadLocalRandom.current().nextInt((int) MAX_AMOUNT * 9 / 10);
+        return coordinator.aggregate(TransactionFilter.builder().minAmount(minAmount).maxAmount(minAmount + MAX_AMOUNT / 10).build(), 0);
+    }
+
+    @Benchmark
+    public List<Transaction> topNTransactions() {
+        return coordinator.getTopNTransactionsByAmount(100 + ThreadLocalRandom.current().nextInt(1_000));
+    }
+
+    @Benchmark
+    public double totalAmountSentBy() {
+        return coordinator.getTotalTransactionAmountSentBy("Sender " + ThreadLocalRandom.current().nextInt(SENDERS));
+    }
+}
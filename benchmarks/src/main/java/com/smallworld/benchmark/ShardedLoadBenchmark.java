@@ -0,0 +1,95 @@
+package com.smallworld.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionPartition;
+import com.smallworld.data.TransactionStatistics;
+import com.smallworld.service.impl.ShardedTransactionReader;
+import com.smallworld.service.impl.TransactionStreamReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling curve of the sharded cold load: the generated rows are split into {@code shards} json files, which are
+ * parsed on {@code threads} threads and aggregated inside a fork join pool of as many workers. The single file load
+ * of the same rows is the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ShardedLoadBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    @Param({"32"})
+    private int shards;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int threads;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private File file;
+    private List<Path> shardFiles;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Transaction> transactions = TransactionGenerator.generate(rows, 2, 10_000);
+        file = File.createTempFile("transactions", ".json");
+        file.deleteOnExit();
+        mapper.writeValue(file, transactions);
+        Path directory = Files.createTempDirectory("transactions");
+        directory.toFile().deleteOnExit();
+        shardFiles = new ArrayList<>(shards);
+        int shardSize = (transactions.size() + shards - 1) / shards;
+        for (int shard = 0; shard < shards; shard++) {
+            Path shardFile = directory.resolve(String.format("shard-%03d.json", shard));
+            shardFile.toFile().deleteOnExit();
+            mapper.writeValue(shardFile.toFile(), transactions.subList(Math.min(transactions.size(), shard * shardSize),
+                    Math.min(transactions.size(), (shard + 1) * shardSize)));
+            shardFiles.add(shardFile);
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public TransactionStatistics singleFile() throws ExecutionException, InterruptedException {
+        return pool.submit(() -> new TransactionStreamReader(mapper, 0, TransactionColumns.Storage.HEAP, TransactionPartition.ALL).read(file)).get();
+    }
+
+    @Benchmark
+    public TransactionStatistics shards() throws ExecutionException, InterruptedException {
+        return pool.submit(() -> new ShardedTransactionReader(mapper, 0, threads, TransactionColumns.Storage.HEAP, TransactionPartition.ALL, false).read(shardFiles)).get();
+    }
+}
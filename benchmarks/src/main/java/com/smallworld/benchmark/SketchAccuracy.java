@@ -0,0 +1,124 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.data.HyperLogLog;
+import com.smallworld.data.SpaceSaving;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Prints accuracy against memory of the sketches of the approximate mode, next to the exact structures they replace:
+ * a set of every client name for the unique client count, and a map of every sender to its total for the top
+ * senders. Senders follow a Zipf distribution, as payments do, beneficiaries are uniform. The client count error
+ * is printed for HyperLogLog precisions 10 to 16, the top 10 senders recall and the largest relative error of
+ * their totals for Space-Saving capacities 64 to 4096. Retained sizes are the used heap after a full collection,
+ * e.g. {@code java -XX:+UseSerialGC -Xmx4g -cp benchmarks/target/benchmarks.jar com.smallworld.benchmark.SketchAccuracy 1000000 5000000}.
+ */
+public final class SketchAccuracy {
+
+    private static final int CLIENTS = 1_000_000;
+    private static final int TRANSACTIONS = 5_000_000;
+    private static final double ZIPF_EXPONENT = 1.1;
+    private static final int TOP = 10;
+
+    private SketchAccuracy() {
+    }
+
+    public static void main(String[] args) {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : CLIENTS;
+        int transactions = args.length > 1 ? Integer.parseInt(args[1]) : TRANSACTIONS;
+        String[] names = new String[clients];
+        for (int client = 0; client < clients; client++) {
+            names[client] = "Client " + client;
+        }
+        double[] cumulative = zipf(clients);
+        int[] senders = new int[transactions];
+        int[] beneficiaries = new int[transactions];
+        double[] amounts = new double[transactions];
+        Random random = new Random(22);
+        for (int i = 0; i < transactions; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+            senders[i] = Math.min(clients - 1, rank < 0 ? -rank - 1 : rank);
+            beneficiaries[i] = random.nextInt(clients);
+            amounts[i] = random.nextInt(1_000_000) / 100.0;
+        }
+
+        long empty = retainedHeap();
+        Set<String> exactClients = new HashSet<>();
+        Map<String, Double> exactTotals = new HashMap<>();
+        for (int i = 0; i < transactions; i++) {
+            exactClients.add(names[senders[i]]);
+            exactClients.add(names[beneficiaries[i]]);
+            exactTotals.merge(names[senders[i]], amounts[i], Double::sum);
+        }
+        long exactBytes = retainedHeap() - empty;
+        List<Map.Entry<String, Double>> exactTop = exactTotals.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(TOP)
+                .toList();
+        System.out.printf("exact: %d clients, %d senders, set and map %d KB%n",
+                exactClients.size(), exactTotals.size(), exactBytes >> 10);
+
+        for (int precision = 10; precision <= 16; precision += 2) {
+            HyperLogLog sketch = new HyperLogLog(precision);
+            for (int i = 0; i < transactions; i++) {
+                sketch.add(names[senders[i]]);
+                sketch.add(names[beneficiaries[i]]);
+            }
+            double error = (sketch.estimate() - exactClients.size()) / (double) exactClients.size();
+            System.out.printf("hyperloglog precision %d: %d KB, estimate %d, error %+.2f%% (standard error %.2f%%)%n",
+                    precision, sketch.sizeInBytes() >> 10, sketch.estimate(), error * 100, sketch.relativeError() * 100);
+        }
+
+        for (int capacity = 64; capacity <= 4096; capacity *= 4) {
+            SpaceSaving sketch = new SpaceSaving(capacity);
+            for (int i = 0; i < transactions; i++) {
+                sketch.add(names[senders[i]], amounts[i]);
+            }
+            Set<String> top = new HashSet<>();
+            sketch.top(TOP).forEach(counter -> top.add(counter.key()));
+            Map<String, Double> estimates = new HashMap<>();
+            sketch.getCounters().forEach(counter -> estimates.put(counter.key(), counter.count()));
+            int found = 0;
+            double maxError = 0.0;
+            for (Map.Entry<String, Double> sender : exactTop) {
+                if (top.contains(sender.getKey())) {
+                    found++;
+                }
+                double estimate = estimates.getOrDefault(sender.getKey(), 0.0);
+                maxError = Math.max(maxError, Math.abs(estimate - sender.getValue()) / sender.getValue());
+            }
+            System.out.printf("space saving capacity %d: %d KB, top %d recall %d/%d, max error of their totals %.3f%%%n",
+                    capacity, sketch.sizeInBytes() >> 10, TOP, found, TOP, maxError * 100);
+        }
+    }
+
+    /**
+     * Cumulative probabilities of the ranks 1 to n under a Zipf law.
+     */
+    private static double[] zipf(int n) {
+        double[] cumulative = new double[n];
+        double sum = 0.0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,114 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.data.TransactionStatistics;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the collector's work with the columns on and off the heap: loads generated rows in the given storage,
+ * then keeps the heap busy with short lived request garbage and queries while recording every collection pause.
+ * Prints the heap retained after a full collection, the direct memory in use and the pause count, p50, p99 and max.
+ * Run it once per mode with the same collector and heap:
+ * <pre>
+ * java -Xmx2g -cp benchmarks/target/benchmarks.jar com.smallworld.benchmark.StorageGcPauses heap
+ * java -Xmx2g -cp benchmarks/target/benchmarks.jar com.smallworld.benchmark.StorageGcPauses off-heap
+ * </pre>
+ * Optional further arguments are the row count (2M by default) and the seconds of churn.
+ */
+public final class StorageGcPauses {
+
+    private static final int ROWS = 2_000_000;
+    private static final int SENDERS = 100_000;
+    private static final long DEFAULT_SECONDS = 30;
+    private static final int GARBAGE_BYTES = 256;
+
+    // holds the surviving share of the request garbage.
+    private static final Object[] LIVE = new Object[1 << 16];
+
+    private StorageGcPauses() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        TransactionColumns.Storage storage = args.length > 0 && args[0].equals("off-heap")
+                ? TransactionColumns.Storage.OFF_HEAP : TransactionColumns.Storage.HEAP;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : ROWS;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SECONDS;
+
+        long empty = retainedHeap();
+        List<Transaction> transactions = TransactionGenerator.generate(rows, 2, SENDERS);
+        TransactionStatistics statistics = TransactionStatistics.of(transactions.iterator(), TransactionStatistics.SEQUENTIAL, storage);
+        transactions = null;
+        long heap = retainedHeap() - empty;
+
+        List<Long> pauses = new ArrayList<>();
+        NotificationListener listener = (notification, handback) -> {
+            if (notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                synchronized (pauses) {
+                    pauses.add(info.getGcInfo().getDuration());
+                }
+            }
+        };
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+        }
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long queries = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        TransactionFilter filter = TransactionFilter.builder().minAmount(100.0).maxAmount(200.0).build();
+        while (System.nanoTime() < deadline) {
+            // request garbage of which a small share survives a while, as in a serving application.
+            for (int i = 0; i < 1_000; i++) {
+                LIVE[random.nextInt(LIVE.length)] = new byte[GARBAGE_BYTES];
+            }
+            statistics.getTopNSenders(10);
+            statistics.aggregate(filter, 10);
+            statistics.getTotalAmountSentBy("Sender " + random.nextInt(SENDERS));
+            queries++;
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).removeNotificationListener(listener);
+        }
+
+        long[] sorted;
+        synchronized (pauses) {
+            sorted = pauses.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        System.out.printf("%s: %d transactions, heap %d MB, direct %d MB, %d query rounds, %d pauses, p50 %d ms, p99 %d ms, max %d ms%n",
+                storage, statistics.getColumns().transactionCount(), heap >> 20, directMemory() >> 20, queries,
+                sorted.length, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+    }
+
+    private static long directMemory() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
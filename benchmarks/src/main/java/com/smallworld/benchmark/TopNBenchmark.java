@@ -0,0 +1,84 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sorting every unique transaction to take the first k with the bounded heap selection, sequential and
+ * parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TopNBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int rows;
+
+    @Param({"10", "100", "1000"})
+    private int k;
+
+    @Param({"100000"})
+    private int senders;
+
+    private List<Transaction> transactions;
+    private TransactionStatistics statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactions = TransactionGenerator.generate(rows, 2, senders);
+        statistics = TransactionStatistics.of(transactions);
+    }
+
+    @Benchmark
+    public List<Transaction> topTransactionsFullSort() {
+        Set<Integer> seen = new HashSet<>();
+        return transactions.stream()
+                .filter(transaction -> seen.add(transaction.getMtn()))
+                .sorted(Comparator.comparing(Transaction::getAmount).reversed())
+                .limit(k)
+                .toList();
+    }
+
+    @Benchmark
+    public List<Transaction> topTransactionsHeap() {
+        return statistics.getTopNTransactionsByAmount(k);
+    }
+
+    @Benchmark
+    public List<Transaction> topTransactionsHeapParallel() {
+        return statistics.getTopNTransactionsByAmountParallel(k);
+    }
+
+    @Benchmark
+    public Map<String, Double> topSendersHeap() {
+        return statistics.getTopNSenders(k);
+    }
+
+    @Benchmark
+    public Map<String, Double> topSendersHeapParallel() {
+        return statistics.getTopNSendersParallel(k);
+    }
+}
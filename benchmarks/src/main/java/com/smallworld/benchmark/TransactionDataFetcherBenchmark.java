@@ -0,0 +1,104 @@
+package com.smallworld.benchmark;
+
+import com.smallworld.data.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One benchmark per {@link com.smallworld.TransactionDataFetcher} query.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TransactionDataFetcherBenchmark {
+
+    private static final int TOP_N = 100;
+
+    @Benchmark
+    public double getTotalTransactionAmount(Dataset dataset) {
+        return dataset.fetcher.getTotalTransactionAmount();
+    }
+
+    @Benchmark
+    public double getTotalTransactionAmountSentBy(Dataset dataset) {
+        return dataset.fetcher.getTotalTransactionAmountSentBy(dataset.knownClient);
+    }
+
+    @Benchmark
+    public Map<String, Double> getTotalTransactionAmountSentByBatch(Dataset dataset) {
+        return dataset.fetcher.getTotalTransactionAmountSentBy(dataset.clientBatch);
+    }
+
+    @Benchmark
+    public double getMaxTransactionAmount(Dataset dataset) {
+        return dataset.fetcher.getMaxTransactionAmount();
+    }
+
+    @Benchmark
+    public long countUniqueClients(Dataset dataset) {
+        return dataset.fetcher.countUniqueClients();
+    }
+
+    @Benchmark
+    public boolean hasOpenComplianceIssues(Dataset dataset) {
+        return dataset.fetcher.hasOpenComplianceIssues(dataset.knownClient);
+    }
+
+    @Benchmark
+    public boolean hasOpenComplianceIssuesUnknownClient(Dataset dataset) {
+        return dataset.fetcher.hasOpenComplianceIssues(dataset.unknownClient);
+    }
+
+    @Benchmark
+    public Map<String, Boolean> hasOpenComplianceIssuesBatch(Dataset dataset) {
+        return dataset.fetcher.hasOpenComplianceIssues(dataset.clientBatch);
+    }
+
+    @Benchmark
+    public Map<String, List<Transaction>> getTransactionsByBeneficiaryName(Dataset dataset) {
+        return dataset.fetcher.getTransactionsByBeneficiaryName();
+    }
+
+    @Benchmark
+    public Set<Integer> getUnsolvedIssueIds(Dataset dataset) {
+        return dataset.fetcher.getUnsolvedIssueIds();
+    }
+
+    @Benchmark
+    public List<String> getAllSolvedIssueMessages(Dataset dataset) {
+        return dataset.fetcher.getAllSolvedIssueMessages();
+    }
+
+    @Benchmark
+    public List<Transaction> getTop3TransactionsByAmount(Dataset dataset) {
+        return dataset.fetcher.getTop3TransactionsByAmount();
+    }
+
+    @Benchmark
+    public Optional<String> getTopSender(Dataset dataset) {
+        return dataset.fetcher.getTopSender();
+    }
+
+    @Benchmark
+    public List<Transaction> getTopNTransactionsByAmount(Dataset dataset) {
+        return dataset.fetcher.getTopNTransactionsByAmount(TOP_N);
+    }
+
+    @Benchmark
+    public Map<String, Double> getTopNSenders(Dataset dataset) {
+        return dataset.fetcher.getTopNSenders(TOP_N);
+    }
+}
@@ -0,0 +1,83 @@
+package com.smallworld.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.Transaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic transaction rows shaped like the json datasource: every transaction is repeated once
+ * per issue, a tenth of the transactions carry no issue at all.
+ */
+public final class TransactionGenerator {
+
+    private static final long SEED = 42L;
+
+    private TransactionGenerator() {
+    }
+
+    /**
+     * Generates the rows.
+     *
+     * @param rows                 number of rows to generate
+     * @param issuesPerTransaction rows per transaction that carries issues
+     * @param senders              number of distinct senders; beneficiaries use the same cardinality
+     * @return rows
+     */
+    public static List<Transaction> generate(int rows, int issuesPerTransaction, int senders) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        String[] senderNames = names("Sender ", senders);
+        String[] beneficiaryNames = names("Beneficiary ", senders);
+        List<Transaction> transactions = new ArrayList<>(rows);
+        int mtn = 0;
+        int issueId = 0;
+        while (transactions.size() < rows) {
+            mtn++;
+            double amount = Math.round(random.nextDouble(1.0, 10_000.0) * 100.0) / 100.0;
+            int sender = random.nextInt(senders);
+            int beneficiary = random.nextInt(senders);
+            boolean withIssues = random.nextInt(10) != 0;
+            int repeats = withIssues ? issuesPerTransaction : 1;
+            for (int i = 0; i < repeats && transactions.size() < rows; i++) {
+                boolean solved = !withIssues || random.nextBoolean();
+                transactions.add(Transaction.builder()
+                        .mtn(mtn)
+                        .amount(amount)
+                        .senderFullName(senderNames[sender])
+                        .senderAge(18 + sender % 70)
+                        .beneficiaryFullName(beneficiaryNames[beneficiary])
+                        .beneficiaryAge(18 + beneficiary % 70)
+                        .issueId(withIssues ? ++issueId : null)
+                        .issueSolved(solved)
+                        .issueMessage(withIssues ? (solved ? "Never gonna give you up" : "Looks like money laundering") : null)
+                        .build());
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Generates the rows into a temporary json file in the datasource format.
+     *
+     * @return file, deleted on exit
+     * @throws IOException when the file can't be written
+     */
+    public static File generateJson(int rows, int issuesPerTransaction, int senders) throws IOException {
+        File file = File.createTempFile("transactions-" + rows + "-", ".json");
+        file.deleteOnExit();
+        new ObjectMapper().writeValue(file, generate(rows, issuesPerTransaction, senders));
+        return file;
+    }
+
+    private static String[] names(String prefix, int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = prefix + i;
+        }
+        return names;
+    }
+}
@@ -0,0 +1,88 @@
+package com.smallworld.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.BinarySnapshotFile;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionPartition;
+import com.smallworld.data.TransactionStatistics;
+import com.smallworld.service.impl.PipelinedTransactionReader;
+import com.smallworld.service.impl.TransactionStreamReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup loading the ways {@code TransactionServiceImpl} supports: binding the whole json list, streaming it row by
+ * row, reading, parsing and encoding it in a pipeline, and restoring the binary snapshot of it. The pipelined load
+ * also builds the filter indexes, which the others leave to the first filtered query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TransactionLoadBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int rows;
+
+    @Param({"1", "3"})
+    private int issuesPerTransaction;
+
+    @Param({"1000", "100000"})
+    private int senders;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private File file;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = TransactionGenerator.generateJson(rows, issuesPerTransaction, senders);
+        snapshot = Files.createTempFile("transactions", ".snapshot");
+        snapshot.toFile().deleteOnExit();
+        BinarySnapshotFile.write(TransactionStatistics.of(TransactionGenerator.generate(rows, issuesPerTransaction, senders)),
+                file.toPath(), snapshot);
+    }
+
+    @Benchmark
+    public TransactionStatistics bindingLoad() throws IOException {
+        List<Transaction> transactions = mapper.readValue(file, new TypeReference<List<Transaction>>() {
+        });
+        return TransactionStatistics.of(transactions);
+    }
+
+    @Benchmark
+    public TransactionStatistics streamingLoad() throws IOException {
+        return new TransactionStreamReader(mapper, TransactionStatistics.SEQUENTIAL, TransactionColumns.Storage.HEAP, TransactionPartition.ALL).read(file);
+    }
+
+    @Benchmark
+    public TransactionStatistics pipelinedLoad() throws IOException {
+        return new PipelinedTransactionReader(mapper, TransactionStatistics.SEQUENTIAL, TransactionColumns.Storage.HEAP, TransactionPartition.ALL, false).read(file.toPath());
+    }
+
+    @Benchmark
+    public TransactionStatistics snapshotLoad() throws IOException {
+        return BinarySnapshotFile.read(snapshot, file.toPath(), TransactionStatistics.SEQUENTIAL).orElseThrow();
+    }
+}
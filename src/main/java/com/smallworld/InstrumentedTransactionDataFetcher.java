@@ -0,0 +1,308 @@
+package com.smallworld;
+
+import com.smallworld.data.ClientScreening;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionAggregate;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.service.TransactionService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link TransactionDataFetcher} recording the latency of every query in the {@code transaction.fetcher.query}
+ * timer, tagged by method, and the rows walked by the scanning queries in {@code transaction.fetcher.rows.scanned}.
+ * Meters are resolved once at construction, so a call only pays two clock reads and a histogram update.
+ */
+@Component
+public class InstrumentedTransactionDataFetcher extends TransactionDataFetcher {
+
+    private static final int TOP_TRANSACTIONS_SIZE = 3;
+
+    private final TransactionService transactionService;
+    private final Timer totalTransactionAmount;
+    private final Timer totalTransactionAmountSentBy;
+    private final Timer totalTransactionAmountSentByBatch;
+    private final Timer transactionMtnsSentBy;
+    private final Timer maxTransactionAmount;
+    private final Timer uniqueClients;
+    private final Timer openComplianceIssues;
+    private final Timer openComplianceIssuesBatch;
+    private final Timer openComplianceIssueCount;
+    private final Timer clientScreening;
+    private final Timer transactionsByBeneficiaryName;
+    private final Timer unsolvedIssueIds;
+    private final Timer allSolvedIssueMessages;
+    private final Timer top3TransactionsByAmount;
+    private final Timer topNTransactionsByAmount;
+    private final Timer topSender;
+    private final Timer topNSenders;
+    private final Timer filteredAggregate;
+    private final DistributionSummary transactionMtnsSentByRows;
+    private final DistributionSummary transactionsByBeneficiaryNameRows;
+    private final DistributionSummary topNTransactionsByAmountRows;
+    private final DistributionSummary topNSendersRows;
+
+    public InstrumentedTransactionDataFetcher(TransactionService transactionService, MeterRegistry registry) {
+        super(transactionService);
+        this.transactionService = transactionService;
+        totalTransactionAmount = timer(registry, "getTotalTransactionAmount");
+        totalTransactionAmountSentBy = timer(registry, "getTotalTransactionAmountSentBy");
+        totalTransactionAmountSentByBatch = timer(registry, "getTotalTransactionAmountSentByBatch");
+        transactionMtnsSentBy = timer(registry, "getTransactionMtnsSentBy");
+        maxTransactionAmount = timer(registry, "getMaxTransactionAmount");
+        uniqueClients = timer(registry, "countUniqueClients");
+        openComplianceIssues = timer(registry, "hasOpenComplianceIssues");
+        openComplianceIssuesBatch = timer(registry, "hasOpenComplianceIssuesBatch");
+        openComplianceIssueCount = timer(registry, "countOpenComplianceIssues");
+        clientScreening = timer(registry, "screenClients");
+        transactionsByBeneficiaryName = timer(registry, "getTransactionsByBeneficiaryName");
+        unsolvedIssueIds = timer(registry, "getUnsolvedIssueIds");
+        allSolvedIssueMessages = timer(registry, "getAllSolvedIssueMessages");
+        top3TransactionsByAmount = timer(registry, "getTop3TransactionsByAmount");
+        topNTransactionsByAmount = timer(registry, "getTopNTransactionsByAmount");
+        topSender = timer(registry, "getTopSender");
+        topNSenders = timer(registry, "getTopNSenders");
+        filteredAggregate = timer(registry, "aggregate");
+        transactionMtnsSentByRows = rowsScanned(registry, "getTransactionMtnsSentBy");
+        transactionsByBeneficiaryNameRows = rowsScanned(registry, "getTransactionsByBeneficiaryName");
+        topNTransactionsByAmountRows = rowsScanned(registry, "getTopNTransactionsByAmount");
+        topNSendersRows = rowsScanned(registry, "getTopNSenders");
+    }
+
+    @Override
+    public double getTotalTransactionAmount() {
+        long start = System.nanoTime();
+        try {
+            return super.getTotalTransactionAmount();
+        } finally {
+            stop(totalTransactionAmount, start);
+        }
+    }
+
+    @Override
+    public double getTotalTransactionAmountSentBy(String senderFullName) {
+        long start = System.nanoTime();
+        try {
+            return super.getTotalTransactionAmountSentBy(senderFullName);
+        } finally {
+            stop(totalTransactionAmountSentBy, start);
+        }
+    }
+
+    @Override
+    public Map<String, Double> getTotalTransactionAmountSentBy(Collection<String> senderFullNames) {
+        long start = System.nanoTime();
+        try {
+            return super.getTotalTransactionAmountSentBy(senderFullNames);
+        } finally {
+            stop(totalTransactionAmountSentByBatch, start);
+        }
+    }
+
+    /**
+     * Walks the sender's transactions, one per returned mtn.
+     */
+    @Override
+    public int[] getTransactionMtnsSentBy(String senderFullName) {
+        long start = System.nanoTime();
+        int[] mtns = new int[0];
+        try {
+            mtns = super.getTransactionMtnsSentBy(senderFullName);
+            return mtns;
+        } finally {
+            stop(transactionMtnsSentBy, start);
+            transactionMtnsSentByRows.record(mtns.length);
+        }
+    }
+
+    @Override
+    public double getMaxTransactionAmount() {
+        long start = System.nanoTime();
+        try {
+            return super.getMaxTransactionAmount();
+        } finally {
+            stop(maxTransactionAmount, start);
+        }
+    }
+
+    @Override
+    public long countUniqueClients() {
+        long start = System.nanoTime();
+        try {
+            return super.countUniqueClients();
+        } finally {
+            stop(uniqueClients, start);
+        }
+    }
+
+    @Override
+    public boolean hasOpenComplianceIssues(String clientFullName) {
+        long start = System.nanoTime();
+        try {
+            return super.hasOpenComplianceIssues(clientFullName);
+        } finally {
+            stop(openComplianceIssues, start);
+        }
+    }
+
+    @Override
+    public Map<String, Boolean> hasOpenComplianceIssues(Collection<String> clientFullNames) {
+        long start = System.nanoTime();
+        try {
+            return super.hasOpenComplianceIssues(clientFullNames);
+        } finally {
+            stop(openComplianceIssuesBatch, start);
+        }
+    }
+
+    @Override
+    public int countOpenComplianceIssues(String clientFullName) {
+        long start = System.nanoTime();
+        try {
+            return super.countOpenComplianceIssues(clientFullName);
+        } finally {
+            stop(openComplianceIssueCount, start);
+        }
+    }
+
+    /**
+     * Times the whole screening, including the time the caller takes to supply the names and take the results.
+     */
+    @Override
+    public void screenClients(Iterator<String> clientFullNames, Consumer<ClientScreening> results) {
+        long start = System.nanoTime();
+        try {
+            super.screenClients(clientFullNames, results);
+        } finally {
+            stop(clientScreening, start);
+        }
+    }
+
+    /**
+     * Materializes every row.
+     */
+    @Override
+    public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
+        long start = System.nanoTime();
+        try {
+            return super.getTransactionsByBeneficiaryName();
+        } finally {
+            stop(transactionsByBeneficiaryName, start);
+            transactionsByBeneficiaryNameRows.record(transactionService.getStatistics().getColumns().size());
+        }
+    }
+
+    @Override
+    public Set<Integer> getUnsolvedIssueIds() {
+        long start = System.nanoTime();
+        try {
+            return super.getUnsolvedIssueIds();
+        } finally {
+            stop(unsolvedIssueIds, start);
+        }
+    }
+
+    @Override
+    public List<String> getAllSolvedIssueMessages() {
+        long start = System.nanoTime();
+        try {
+            return super.getAllSolvedIssueMessages();
+        } finally {
+            stop(allSolvedIssueMessages, start);
+        }
+    }
+
+    @Override
+    public List<Transaction> getTop3TransactionsByAmount() {
+        long start = System.nanoTime();
+        try {
+            return super.getTop3TransactionsByAmount();
+        } finally {
+            stop(top3TransactionsByAmount, start);
+        }
+    }
+
+    /**
+     * Beyond the maintained top 3 every unique transaction is offered to the heap.
+     */
+    @Override
+    public List<Transaction> getTopNTransactionsByAmount(int k) {
+        long start = System.nanoTime();
+        try {
+            return super.getTopNTransactionsByAmount(k);
+        } finally {
+            stop(topNTransactionsByAmount, start);
+            topNTransactionsByAmountRows.record(k > TOP_TRANSACTIONS_SIZE
+                    ? transactionService.getStatistics().getColumns().transactionCount() : 0);
+        }
+    }
+
+    @Override
+    public Optional<String> getTopSender() {
+        long start = System.nanoTime();
+        try {
+            return super.getTopSender();
+        } finally {
+            stop(topSender, start);
+        }
+    }
+
+    /**
+     * Every client is offered to the heap.
+     */
+    @Override
+    public Map<String, Double> getTopNSenders(int k) {
+        long start = System.nanoTime();
+        try {
+            return super.getTopNSenders(k);
+        } finally {
+            stop(topNSenders, start);
+            topNSendersRows.record(transactionService.getStatistics().getUniqueClientCount());
+        }
+    }
+
+    /**
+     * Also times the filtered total, maximum and top senders, which are answered by it.
+     */
+    @Override
+    public TransactionAggregate aggregate(TransactionFilter filter, int k) {
+        long start = System.nanoTime();
+        try {
+            return super.aggregate(filter, k);
+        } finally {
+            stop(filteredAggregate, start);
+        }
+    }
+
+    private static void stop(Timer timer, long start) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer timer(MeterRegistry registry, String method) {
+        return Timer.builder("transaction.fetcher.query")
+                .description("Latency of the TransactionDataFetcher queries")
+                .tag("method", method)
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static DistributionSummary rowsScanned(MeterRegistry registry, String method) {
+        return DistributionSummary.builder("transaction.fetcher.rows.scanned")
+                .description("Rows walked by a TransactionDataFetcher query")
+                .baseUnit("rows")
+                .tag("method", method)
+                .register(registry);
+    }
+}
@@ -0,0 +1,471 @@
+package com.smallworld;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.ClientScreening;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionAggregate;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.data.TransactionPartition;
+import com.smallworld.data.TransactionSketches;
+import com.smallworld.exception.ServiceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Coordinator of a partitioned deployment: every node loads the transactions of one {@link TransactionPartition}
+ * ({@code datasource.partition.index} of {@code datasource.partition.count}) and this fetcher fans each query out
+ * to all nodes over their http api, in parallel, then merges the partial results. Sums and counts add up, maxima
+ * and flags combine, top k lists are merged and cut again. Clients and senders span partitions, so the unique
+ * client count unions the exact client names of every node and the sender rankings add up the total of every
+ * sender before ranking; ties rank by node order. Each node's last body per query is kept with its ETag and
+ * revalidated, so an unchanged partition answers with a 304 and isn't parsed again. Client names are always sent
+ * as query parameters, never in the path, where Tomcat rejects an encoded slash. Holds no data itself.
+ * <p>
+ * In approximate mode the client count and the sender rankings are answered from the nodes' merged
+ * {@link TransactionSketches} instead, a few kilobytes per node whatever the number of clients; the nodes need
+ * {@code datasource.sketches.enabled}.
+ */
+@Slf4j
+public class ScatterGatherTransactionDataFetcher extends TransactionDataFetcher {
+
+    static final int MAX_CACHED_PARTIALS = 4096;
+    static final int SCREENING_BATCH_SIZE = 1024;
+    private static final int TOP_TRANSACTIONS_SIZE = 3;
+    private static final Comparator<Transaction> BY_AMOUNT_DESCENDING =
+            Comparator.comparing(Transaction::getAmount).reversed();
+
+    private final List<URI> nodes;
+    private final Duration timeout;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Map<String, Partial>> partials = new ArrayList<>();
+    private final boolean approximate;
+
+    /**
+     * @param nodes   base uri of every partition node, e.g. {@code http://10.0.0.1:8080}
+     * @param timeout per node request timeout
+     */
+    public ScatterGatherTransactionDataFetcher(List<URI> nodes, Duration timeout) {
+        this(nodes, timeout, false);
+    }
+
+    /**
+     * @param nodes       base uri of every partition node, e.g. {@code http://10.0.0.1:8080}
+     * @param timeout     per node request timeout
+     * @param approximate whether to answer the client count and sender rankings from the nodes' sketches
+     */
+    public ScatterGatherTransactionDataFetcher(List<URI> nodes, Duration timeout, boolean approximate) {
+        super(null);
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("at least one node is required");
+        }
+        this.nodes = List.copyOf(nodes);
+        this.timeout = timeout;
+        this.approximate = approximate;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(timeout).build();
+        nodes.forEach(node -> partials.add(new ConcurrentHashMap<>()));
+    }
+
+    @Override
+    public double getTotalTransactionAmount() {
+        return gather("/api/transactions/total-amount", new TypeReference<Double>() {
+        }).stream().mapToDouble(Double::doubleValue).sum();
+    }
+
+    @Override
+    public double getTotalTransactionAmountSentBy(String senderFullName) {
+        return getTotalTransactionAmountSentBy(List.of(senderFullName)).get(senderFullName);
+    }
+
+    @Override
+    public Map<String, Double> getTotalTransactionAmountSentBy(Collection<String> senderFullNames) {
+        Map<String, Double> totals = new LinkedHashMap<>();
+        senderFullNames.forEach(sender -> totals.put(sender, 0.0));
+        if (!totals.isEmpty()) {
+            gather("/api/clients/total-amount-sent?" + names(totals.keySet()), new TypeReference<Map<String, Double>>() {
+            }).forEach(partial -> partial.forEach((sender, total) -> totals.merge(sender, total, Double::sum)));
+        }
+        return totals;
+    }
+
+    /**
+     * Returns the mtns grouped by node, in load order within a node.
+     */
+    @Override
+    public int[] getTransactionMtnsSentBy(String senderFullName) {
+        return gather("/api/clients/mtns-sent?" + names(List.of(senderFullName)), new TypeReference<int[]>() {
+        }).stream().flatMapToInt(Arrays::stream).toArray();
+    }
+
+    @Override
+    public double getMaxTransactionAmount() {
+        return gather("/api/transactions/max-amount", new TypeReference<Double>() {
+        }).stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
+    }
+
+    @Override
+    public long countUniqueClients() {
+        if (approximate) {
+            return sketches().estimateClientCount();
+        }
+        List<List<String>> names = gather("/api/partial/clients", new TypeReference<List<String>>() {
+        });
+        Set<String> clients = new HashSet<>(names.stream().mapToInt(List::size).sum() * 4 / 3 + 1);
+        names.forEach(clients::addAll);
+        return clients.size();
+    }
+
+    @Override
+    public boolean hasOpenComplianceIssues(String clientFullName) {
+        return hasOpenComplianceIssues(List.of(clientFullName)).get(clientFullName);
+    }
+
+    @Override
+    public Map<String, Boolean> hasOpenComplianceIssues(Collection<String> clientFullNames) {
+        Map<String, Boolean> openIssues = new LinkedHashMap<>();
+        clientFullNames.forEach(client -> openIssues.put(client, false));
+        if (!openIssues.isEmpty()) {
+            gather("/api/clients/open-issues?" + names(openIssues.keySet()), new TypeReference<Map<String, Boolean>>() {
+            }).forEach(partial -> partial.forEach((client, open) -> openIssues.merge(client, open, Boolean::logicalOr)));
+        }
+        return openIssues;
+    }
+
+    @Override
+    public int countOpenComplianceIssues(String clientFullName) {
+        return gather("/api/clients/open-issues/count?" + names(List.of(clientFullName)), new TypeReference<Integer>() {
+        }).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Posts the names to every node in batches and passes the merged results of a batch on before sending the next:
+     * a client is open when open on any node, its counts add up and its issue ids are grouped by node.
+     */
+    @Override
+    public void screenClients(Iterator<String> clientFullNames, Consumer<ClientScreening> results) {
+        List<String> batch = new ArrayList<>(SCREENING_BATCH_SIZE);
+        while (clientFullNames.hasNext()) {
+            batch.add(clientFullNames.next());
+            if (batch.size() == SCREENING_BATCH_SIZE || !clientFullNames.hasNext()) {
+                screen(batch, results);
+                batch.clear();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
+        Map<String, List<Transaction>> byBeneficiary = new HashMap<>();
+        gather("/api/transactions/by-beneficiary", new TypeReference<Map<String, List<Transaction>>>() {
+        }).forEach(partial -> partial.forEach((beneficiary, transactions) ->
+                byBeneficiary.computeIfAbsent(beneficiary, name -> new ArrayList<>()).addAll(transactions)));
+        return byBeneficiary;
+    }
+
+    @Override
+    public Set<Integer> getUnsolvedIssueIds() {
+        Set<Integer> unsolved = new HashSet<>();
+        gather("/api/issues/unsolved", new TypeReference<Set<Integer>>() {
+        }).forEach(unsolved::addAll);
+        return unsolved;
+    }
+
+    /**
+     * Returns the messages grouped by node, in row order within a node.
+     */
+    @Override
+    public List<String> getAllSolvedIssueMessages() {
+        List<String> messages = new ArrayList<>();
+        gather("/api/issues/solved/messages", new TypeReference<List<String>>() {
+        }).forEach(messages::addAll);
+        return messages;
+    }
+
+    @Override
+    public List<Transaction> getTop3TransactionsByAmount() {
+        return topTransactions(gather("/api/transactions/top", new TypeReference<List<Transaction>>() {
+        }), TOP_TRANSACTIONS_SIZE);
+    }
+
+    @Override
+    public List<Transaction> getTopNTransactionsByAmount(int k) {
+        requireNonNegative(k);
+        return topTransactions(gather("/api/transactions/top?k=" + k, new TypeReference<List<Transaction>>() {
+        }), k);
+    }
+
+    @Override
+    public Optional<String> getTopSender() {
+        if (approximate) {
+            return sketches().estimateTopNSenders(1).keySet().stream().findFirst();
+        }
+        return senderTotals().entrySet().stream()
+                .reduce((best, candidate) -> candidate.getValue() > best.getValue() ? candidate : best)
+                .map(Map.Entry::getKey);
+    }
+
+    @Override
+    public Map<String, Double> getTopNSenders(int k) {
+        requireNonNegative(k);
+        return approximate ? sketches().estimateTopNSenders(k) : topSenders(senderTotals(), k);
+    }
+
+    @Override
+    public TransactionAggregate aggregate(TransactionFilter filter, int k) {
+        requireNonNegative(k);
+        // the nodes' top k senders don't add up to the overall top k, so those queries need every matching sender.
+        String path = k == 0 ? "/api/transactions/aggregate?" + query(filter) + "k=0" : "/api/partial/aggregate?" + query(filter);
+        List<PartialAggregate> aggregates = gather(path, new TypeReference<PartialAggregate>() {
+        });
+        long transactionCount = 0;
+        double totalAmount = 0.0;
+        double maxAmount = 0.0;
+        Map<String, Double> senders = new LinkedHashMap<>();
+        for (PartialAggregate aggregate : aggregates) {
+            transactionCount += aggregate.transactionCount();
+            totalAmount += aggregate.totalAmount();
+            maxAmount = Math.max(maxAmount, aggregate.maxAmount());
+            aggregate.topSenders().forEach((sender, total) -> senders.merge(sender, total, Double::sum));
+        }
+        return new TransactionAggregate(transactionCount, totalAmount, maxAmount, topSenders(senders, k));
+    }
+
+    /**
+     * Total sent amount of every sender over all nodes, in node order of first appearance.
+     */
+    private Map<String, Double> senderTotals() {
+        Map<String, Double> totals = new LinkedHashMap<>();
+        gather("/api/partial/senders", new TypeReference<Map<String, Double>>() {
+        }).forEach(partial -> partial.forEach((sender, total) -> totals.merge(sender, total, Double::sum)));
+        return totals;
+    }
+
+    private TransactionSketches sketches() {
+        List<TransactionSketches> sketches = gather("/api/partial/sketches", new TypeReference<TransactionSketches>() {
+        });
+        if (sketches.contains(null)) {
+            throw new ServiceException("Partition Sketches Disabled.");
+        }
+        return TransactionSketches.merge(sketches);
+    }
+
+    private void screen(List<String> names, Consumer<ClientScreening> results) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try {
+            for (String name : names) {
+                objectMapper.writeValue(body, name);
+                body.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<List<PartialScreening>> partials = scatter("/api/clients/screening", body.toByteArray(), PartialScreening.class);
+        for (List<PartialScreening> partial : partials) {
+            if (partial.size() != names.size()) {
+                log.warn("screen : Node answered {} of {} clients.", partial.size(), names.size());
+                throw new ServiceException("Querying Partition Failed.");
+            }
+        }
+        for (int i = 0; i < names.size(); i++) {
+            int count = 0;
+            int[] issueIds = new int[0];
+            for (List<PartialScreening> partial : partials) {
+                PartialScreening screening = partial.get(i);
+                count += screening.openIssueCount();
+                if (screening.openIssueIds().length > 0) {
+                    int from = issueIds.length;
+                    issueIds = Arrays.copyOf(issueIds, from + screening.openIssueIds().length);
+                    System.arraycopy(screening.openIssueIds(), 0, issueIds, from, screening.openIssueIds().length);
+                }
+            }
+            results.accept(new ClientScreening(names.get(i), count > 0, count, issueIds));
+        }
+    }
+
+    private static Map<String, Double> topSenders(Map<String, Double> totals, int k) {
+        Map<String, Double> top = new LinkedHashMap<>();
+        totals.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(k)
+                .forEach(sender -> top.put(sender.getKey(), sender.getValue()));
+        return top;
+    }
+
+    private static List<Transaction> topTransactions(List<List<Transaction>> partials, int k) {
+        return partials.stream()
+                .flatMap(List::stream)
+                .sorted(BY_AMOUNT_DESCENDING)
+                .limit(k)
+                .toList();
+    }
+
+    /**
+     * Sends the request to every node at once and waits for all answers, in node order. A node failing fails the
+     * query; a partial result is never returned as a complete one.
+     */
+    private <T> List<T> gather(String path, TypeReference<T> type) {
+        List<CompletableFuture<T>> pending = new ArrayList<>(nodes.size());
+        for (int node = 0; node < nodes.size(); node++) {
+            pending.add(fetch(node, path, type));
+        }
+        return join(path, pending);
+    }
+
+    /**
+     * Posts the ndjson body to every node at once and reads each answer as ndjson values, in node order; never
+     * cached, and failing like {@link #gather(String, TypeReference)}.
+     */
+    private <T> List<List<T>> scatter(String path, byte[] body, Class<T> type) {
+        List<CompletableFuture<List<T>>> pending = new ArrayList<>(nodes.size());
+        for (int node = 0; node < nodes.size(); node++) {
+            URI uri = nodes.get(node).resolve(path);
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(timeout)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build();
+            pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    log.warn("scatter : Node {} answered {} to {}.", uri, response.statusCode(), path);
+                    throw new ServiceException("Querying Partition Failed.");
+                }
+                try (MappingIterator<T> values = objectMapper.readerFor(type).readValues(response.body())) {
+                    return values.readAll();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        return join(path, pending);
+    }
+
+    private <T> List<T> join(String path, List<CompletableFuture<T>> pending) {
+        List<T> results = new ArrayList<>(nodes.size());
+        try {
+            for (CompletableFuture<T> result : pending) {
+                results.add(result.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ServiceException serviceException) {
+                throw serviceException;
+            }
+            log.warn("gather : Querying {} failed.", path, e.getCause());
+            throw new ServiceException("Querying Partition Failed.");
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> fetch(int node, String path, TypeReference<T> type) {
+        Map<String, Partial> cache = partials.get(node);
+        Partial cached = cache.get(path);
+        HttpRequest.Builder request = HttpRequest.newBuilder(nodes.get(node).resolve(path)).timeout(timeout).GET();
+        if (cached != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, cached.eTag());
+        }
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() == 304 && cached != null) {
+                return (T) cached.value();
+            }
+            if (response.statusCode() != 200) {
+                log.warn("fetch : Node {} answered {} to {}.", nodes.get(node), response.statusCode(), path);
+                throw new ServiceException("Querying Partition Failed.");
+            }
+            T value;
+            try {
+                value = objectMapper.readValue(response.body(), type);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Optional<String> eTag = response.headers().firstValue(HttpHeaders.ETAG);
+            if (eTag.isPresent() && (cached != null || cache.size() < MAX_CACHED_PARTIALS)) {
+                cache.put(path, new Partial(eTag.get(), value));
+            }
+            return value;
+        });
+    }
+
+    private static String names(Collection<String> names) {
+        StringJoiner query = new StringJoiner("&");
+        names.forEach(name -> query.add("name=" + URLEncoder.encode(name, StandardCharsets.UTF_8)));
+        return query.toString();
+    }
+
+    /**
+     * Query string of the filter's bounds, each followed by an ampersand.
+     */
+    private static String query(TransactionFilter filter) {
+        StringBuilder query = new StringBuilder();
+        append(query, "minAmount", filter.getMinAmount());
+        append(query, "maxAmount", filter.getMaxAmount());
+        append(query, "minSenderAge", filter.getMinSenderAge());
+        append(query, "maxSenderAge", filter.getMaxSenderAge());
+        append(query, "minBeneficiaryAge", filter.getMinBeneficiaryAge());
+        append(query, "maxBeneficiaryAge", filter.getMaxBeneficiaryAge());
+        append(query, "issueStatus", filter.getIssueStatus());
+        return query.toString();
+    }
+
+    private static void append(StringBuilder query, String name, Object value) {
+        if (value != null) {
+            query.append(name).append('=').append(value).append('&');
+        }
+    }
+
+    private static void requireNonNegative(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+    }
+
+    /**
+     * Last body of a query on one node, parsed, with the ETag it was served with. Treated as immutable: merges
+     * copy out of it.
+     */
+    private record Partial(String eTag, Object value) {
+    }
+
+    /**
+     * Wire form of a node's {@link ClientScreening}.
+     */
+    private record PartialScreening(String clientFullName, boolean open, int openIssueCount, int[] openIssueIds) {
+    }
+
+    /**
+     * Wire form of a node's {@link TransactionAggregate}.
+     */
+    private record PartialAggregate(long transactionCount, double totalAmount, double maxAmount,
+                                    Map<String, Double> topSenders) {
+    }
+}
@@ -1,76 +1,75 @@
 package com.smallworld;
 
+import com.smallworld.data.ClientScreening;
 import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionAggregate;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.data.TransactionStatistics;
 import com.smallworld.service.TransactionService;
 import lombok.RequiredArgsConstructor;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
 
+/**
+ * Answers every query from the statistics snapshot precomputed by the {@link TransactionService}, so no call
+ * scans the transaction rows, apart from {@link #getTransactionsByBeneficiaryName()}, which materializes them.
+ */
 @RequiredArgsConstructor
 public class TransactionDataFetcher {
 
     private final TransactionService transactionService;
 
-    /**
-     * method for distinct on property.
-     */
-    private static <T> Predicate<T> distinctByKey(Function<? super T, ?> keyExtractor) {
-        Set<Object> seen = ConcurrentHashMap.newKeySet();
-        return t -> seen.add(keyExtractor.apply(t));
-    }
-
     /**
      * Returns the sum of the amounts of all transactions
      */
 
     public double getTotalTransactionAmount() {
-        List<Transaction> transactions = transactionService.getAllTransaction();
-        return transactions.isEmpty() ? 0.0 :
-                transactions.stream()
-                        .filter(distinctByKey(Transaction::getMtn))     // fetching unique transactions as single transaction can have more then one entry because of multiple issues.
-                        .mapToDouble(Transaction::getAmount).sum();
+        return transactionService.getStatistics().getTotalAmount();
     }
 
     /**
      * Returns the sum of the amounts of all transactions sent by the specified client
      */
     public double getTotalTransactionAmountSentBy(String senderFullName) {
-        List<Transaction> transactions = transactionService.getAllTransaction();
-        return transactions.isEmpty() ? 0.0 : transactions.stream()
-                .filter(transaction -> transaction.getSenderFullName().equals(senderFullName))
-                .filter(distinctByKey(Transaction::getMtn))     // fetching unique transactions as single transaction can have more then one entry because of multiple issues.
-                .mapToDouble(Transaction::getAmount).sum();
+        return transactionService.getStatistics().getTotalAmountSentBy(senderFullName);
+    }
+
+    /**
+     * Returns the sum of the amounts of all transactions sent by each of the specified clients, in the given order
+     */
+    public Map<String, Double> getTotalTransactionAmountSentBy(Collection<String> senderFullNames) {
+        TransactionStatistics statistics = transactionService.getStatistics();
+        Map<String, Double> totals = new LinkedHashMap<>();
+        senderFullNames.forEach(sender -> totals.put(sender, statistics.getTotalAmountSentBy(sender)));
+        return totals;
+    }
+
+    /**
+     * Returns the mtns of all transactions sent by the specified client
+     */
+    public int[] getTransactionMtnsSentBy(String senderFullName) {
+        return transactionService.getStatistics().getMtnsSentBy(senderFullName);
     }
 
     /**
      * Returns the highest transaction amount
      */
     public double getMaxTransactionAmount() {
-        List<Transaction> transactions = transactionService.getAllTransaction();
-        return transactions.isEmpty() ? 0.0 : transactions.stream()
-                .max(Comparator.comparingDouble(Transaction::getAmount))
-                .get().getAmount();
+        return transactionService.getStatistics().getMaxAmount();
     }
 
     /**
      * Counts the number of unique clients that sent or received a transaction
      */
     public long countUniqueClients() {
-        List<Transaction> transactions = transactionService.getAllTransaction();
-        return transactions.isEmpty() ? 0 : transactions.stream()
-                .flatMap(t -> Stream.of(t.getSenderFullName(), t.getBeneficiaryFullName()))
-                .distinct().count();
+        return transactionService.getStatistics().getUniqueClientCount();
     }
 
     /**
@@ -78,75 +77,111 @@ public class TransactionDataFetcher {
      * issue that has not been solved
      */
     public boolean hasOpenComplianceIssues(String clientFullName) {
-        List<Transaction> transactions = transactionService.getAllTransaction();
-        return transactions.isEmpty() ? Boolean.FALSE : transactions.stream()
-                .anyMatch(t -> (t.getSenderFullName().equals(clientFullName) ||
-                        t.getBeneficiaryFullName().equals(clientFullName)) &&
-                        t.getIssueSolved().equals(Boolean.FALSE));
+        return transactionService.getStatistics().hasOpenIssues(clientFullName);
+    }
+
+    /**
+     * Returns for each of the specified clients whether it has at least one open compliance issue, in the given order
+     */
+    public Map<String, Boolean> hasOpenComplianceIssues(Collection<String> clientFullNames) {
+        TransactionStatistics statistics = transactionService.getStatistics();
+        Map<String, Boolean> openIssues = new LinkedHashMap<>();
+        clientFullNames.forEach(client -> openIssues.put(client, statistics.hasOpenIssues(client)));
+        return openIssues;
+    }
+
+    /**
+     * Counts the compliance issues that have not been solved on transactions the client sent or received
+     */
+    public int countOpenComplianceIssues(String clientFullName) {
+        return transactionService.getStatistics().getOpenIssueCount(clientFullName);
+    }
+
+    /**
+     * Screens each of the specified clients for open compliance issues, in the given order, passing every result
+     * on as soon as it is known
+     */
+    public void screenClients(Iterator<String> clientFullNames, Consumer<ClientScreening> results) {
+        transactionService.getStatistics().screen(clientFullNames, results);
     }
 
     /**
-     * Returns all transactions indexed by beneficiary name
+     * Returns all transactions indexed by beneficiary name; O(n), the rows are materialized on every call
      */
     public Map<String, List<Transaction>> getTransactionsByBeneficiaryName() {
-        List<Transaction> transactions = transactionService.getAllTransaction();
-        return transactions.isEmpty() ? Collections.emptyMap() :
-                transactions.stream().collect(Collectors.groupingBy(Transaction::getBeneficiaryFullName));
+        return transactionService.getStatistics().getTransactionsByBeneficiary();
     }
 
     /**
      * Returns the identifiers of all open compliance issues
      */
     public Set<Integer> getUnsolvedIssueIds() {
-        List<Transaction> transactions = transactionService.getAllTransaction();
-        return transactions.isEmpty() ? Collections.emptySet() :
-                transactions.stream()
-                        .filter(transaction -> transaction.getIssueSolved().equals(Boolean.FALSE))
-                        .map(Transaction::getIssueId).collect(Collectors.toSet());
+        return transactionService.getStatistics().getUnsolvedIssueIds();
     }
 
     /**
      * Returns a list of all solved issue messages
      */
     public List<String> getAllSolvedIssueMessages() {
-        List<Transaction> transactions = transactionService.getAllTransaction();
-        return transactions.isEmpty() ? Collections.emptyList() :
-                transactions.stream()
-                        .filter(transaction ->
-                                Objects.nonNull(transaction.getIssueMessage()) &&
-                                        transaction.getIssueSolved().equals(Boolean.TRUE))
-                        .map(Transaction::getIssueMessage).toList();
+        return transactionService.getStatistics().getSolvedIssueMessages();
     }
 
     /**
      * Returns the 3 transactions with the highest amount sorted by amount descending
      */
     public List<Transaction> getTop3TransactionsByAmount() {
-        List<Transaction> transactions = transactionService.getAllTransaction();
+        return transactionService.getStatistics().getTopTransactionsByAmount();
+    }
 
-        return transactions.isEmpty() ? Collections.emptyList() :
-                transactions.stream()
-                        .filter(distinctByKey(Transaction::getMtn))                         // fetching unique transactions as single transaction can have more then one entry because of multiple issues.
-                        .sorted(Comparator.comparing(Transaction::getAmount).reversed())    // sorting on amount to descending order.
-                        .limit(3).collect(Collectors.toList());                           // Limiting to 3 to get top 3.
+    /**
+     * Returns the k transactions with the highest amount sorted by amount descending
+     */
+    public List<Transaction> getTopNTransactionsByAmount(int k) {
+        return transactionService.getStatistics().getTopNTransactionsByAmount(k);
     }
 
     /**
      * Returns the senderFullName of the sender with the most total sent amount
      */
     public Optional<String> getTopSender() {
-        List<Transaction> transactions = transactionService.getAllTransaction();
-
-        // grouping by sender and using sum as aggregate function. Then from that result finding the sender with max sum
-        Map<String, Double> senderWithTotalAmountMap =
-                transactions.stream()
-                        .filter(distinctByKey(Transaction::getMtn))
-                        .collect(Collectors.groupingBy(
-                                Transaction::getSenderFullName,
-                                Collectors.summingDouble(Transaction::getAmount)));
-
-        return transactions.isEmpty() ? Optional.empty() :
-                Optional.ofNullable(Collections.max(senderWithTotalAmountMap.entrySet(), Map.Entry.comparingByValue()).getKey());
+        return transactionService.getStatistics().findTopSender();
+    }
+
+    /**
+     * Returns the k senders with the most total sent amount mapped to that amount, sorted descending
+     */
+    public Map<String, Double> getTopNSenders(int k) {
+        return transactionService.getStatistics().getTopNSenders(k);
+    }
+
+    /**
+     * Returns the count, total and highest amount of the transactions matching the filter, and the k senders with
+     * the most total sent amount over those transactions
+     */
+    public TransactionAggregate aggregate(TransactionFilter filter, int k) {
+        return transactionService.getStatistics().aggregate(filter, k);
+    }
+
+    /**
+     * Returns the sum of the amounts of the transactions matching the filter
+     */
+    public double getTotalTransactionAmount(TransactionFilter filter) {
+        return aggregate(filter, 0).getTotalAmount();
+    }
+
+    /**
+     * Returns the highest amount of the transactions matching the filter
+     */
+    public double getMaxTransactionAmount(TransactionFilter filter) {
+        return aggregate(filter, 0).getMaxAmount();
+    }
+
+    /**
+     * Returns the k senders with the most total sent amount over the transactions matching the filter, sorted
+     * descending
+     */
+    public Map<String, Double> getTopNSenders(TransactionFilter filter, int k) {
+        return aggregate(filter, k).getTopSenders();
     }
 
 }
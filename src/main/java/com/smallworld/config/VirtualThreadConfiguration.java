@@ -0,0 +1,24 @@
+package com.smallworld.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Virtual thread mode, switched on with {@code smallworld.virtual-threads.enabled}: Tomcat hands every request to a
+ * new virtual thread instead of its bounded platform thread pool, and the loaders and the file watcher start their
+ * threads as virtual ones. Needs a Java 21 runtime; the context fails to start on an older one.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "smallworld.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        log.info("virtualThreadProtocolHandlerCustomizer : Handling requests on virtual threads.");
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.perTaskExecutor("http-virtual-"));
+    }
+}
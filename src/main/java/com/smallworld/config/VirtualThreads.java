@@ -0,0 +1,74 @@
+package com.smallworld.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Virtual thread factories for the virtual thread mode. The application is built for Java 17, so the Java 21 API is
+ * reached reflectively; on an older runtime asking for a factory fails fast instead of silently falling back to
+ * platform threads.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Returns whether the running JVM has virtual threads without preview features, from Java 21 on; Java 19 and 20
+     * have the API but refuse to start a virtual thread unless run with {@code --enable-preview}.
+     */
+    public static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * Returns a factory of virtual threads named with the prefix followed by a counter.
+     *
+     * @param prefix thread name prefix
+     * @return thread factory
+     * @throws IllegalStateException when the JVM has no virtual threads
+     */
+    public static ThreadFactory factory(String prefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, running " + Runtime.version());
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later, running " + Runtime.version(), e);
+        }
+    }
+
+    /**
+     * Returns a factory of virtual threads in the virtual thread mode and of platform threads otherwise, both named
+     * with the prefix followed by a counter.
+     *
+     * @param prefix thread name prefix
+     * @param virtual whether the virtual thread mode is on
+     * @return thread factory
+     * @throws IllegalStateException when virtual and the JVM has no virtual threads
+     */
+    public static ThreadFactory factory(String prefix, boolean virtual) {
+        if (virtual) {
+            return factory(prefix);
+        }
+        AtomicLong count = new AtomicLong();
+        return task -> new Thread(task, prefix + count.getAndIncrement());
+    }
+
+    /**
+     * Returns an executor starting a new virtual thread per task.
+     *
+     * @param prefix thread name prefix
+     * @return executor
+     * @throws IllegalStateException when the JVM has no virtual threads
+     */
+    public static Executor perTaskExecutor(String prefix) {
+        ThreadFactory factory = factory(prefix);
+        return task -> factory.newThread(task).start();
+    }
+}
@@ -0,0 +1,82 @@
+package com.smallworld.controller;
+
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.data.TransactionStatistics;
+import com.smallworld.service.TransactionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Partial results a partition node serves to the scatter gather coordinator, for the queries whose answer can't
+ * be merged from the nodes' final answers: clients and sender totals span partitions, so the coordinator needs
+ * every one of them. Bodies are pre-serialized and ETag tagged like the rest of the api, so a coordinator
+ * revalidating an unchanged partition gets a 304 instead of the full list.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/partial")
+public class PartitionController {
+
+    private final TransactionService transactionService;
+    private final PreSerializedResponses responses;
+
+    /**
+     * Names of all clients of the partition.
+     */
+    @GetMapping("/clients")
+    public ResponseEntity<byte[]> getClientNames(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("partial-clients", ifNoneMatch, () -> transactionService.getStatistics().getClientNames());
+    }
+
+    /**
+     * Total sent amount of every sender of the partition, highest first.
+     */
+    @GetMapping("/senders")
+    public ResponseEntity<byte[]> getSenderTotals(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("partial-senders", ifNoneMatch, () -> {
+            TransactionStatistics statistics = transactionService.getStatistics();
+            return statistics.getTopNSenders((int) statistics.getUniqueClientCount());
+        });
+    }
+
+    /**
+     * Sketches of the partition's client names and sender totals, null unless enabled.
+     */
+    @GetMapping("/sketches")
+    public ResponseEntity<byte[]> getSketches(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("partial-sketches", ifNoneMatch, () -> transactionService.getStatistics().getSketches());
+    }
+
+    /**
+     * Aggregate of the partition's transactions matching the filter, with the total of every matching sender.
+     */
+    @GetMapping("/aggregate")
+    public ResponseEntity<byte[]> aggregate(@RequestParam(required = false) Double minAmount,
+                                            @RequestParam(required = false) Double maxAmount,
+                                            @RequestParam(required = false) Integer minSenderAge,
+                                            @RequestParam(required = false) Integer maxSenderAge,
+                                            @RequestParam(required = false) Integer minBeneficiaryAge,
+                                            @RequestParam(required = false) Integer maxBeneficiaryAge,
+                                            @RequestParam(required = false) TransactionFilter.IssueStatus issueStatus,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        TransactionFilter filter = TransactionFilter.builder()
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .minSenderAge(minSenderAge)
+                .maxSenderAge(maxSenderAge)
+                .minBeneficiaryAge(minBeneficiaryAge)
+                .maxBeneficiaryAge(maxBeneficiaryAge)
+                .issueStatus(issueStatus)
+                .build();
+        return responses.respond("partial-aggregate:" + filter, ifNoneMatch, () -> {
+            TransactionStatistics statistics = transactionService.getStatistics();
+            return statistics.aggregate(filter, (int) statistics.getUniqueClientCount());
+        });
+    }
+}
@@ -0,0 +1,262 @@
+package com.smallworld.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.TransactionSnapshot;
+import com.smallworld.exception.ServiceException;
+import com.smallworld.service.TransactionService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Serves query results as json bytes serialized once per data version. The ETag is the snapshot version plus the
+ * revision of its statistics, so a client presenting it in If-None-Match gets a 304 without the query even running,
+ * and every other request of an unchanged result is a map lookup. Bodies are kept in a generation per ETag, bounded
+ * to {@code api.response-cache.max-entries} with least recently used eviction; the first request seeing new data
+ * swaps in an empty generation, so every body of the old data is dropped at once and none is ever served for newer
+ * data. A body whose data changed while its query ran is served without an ETag and not cached. Lookups, hits and
+ * evictions are published as metrics.
+ */
+@Component
+@RequiredArgsConstructor
+public class PreSerializedResponses implements MeterBinder {
+
+    static final int DEFAULT_MAX_ENTRIES = 4096;
+    // the lru order is kept per segment, so concurrent requests of different keys rarely wait for each other.
+    private static final int SEGMENTS = 16;
+
+    private final TransactionService transactionService;
+    private final ObjectMapper objectMapper;
+    @Value("${api.response-cache.max-entries:4096}")
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private final AtomicReference<Generation> generation = new AtomicReference<>(new Generation(null, 0, 0));
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Answers with the cached body of the key when it was serialized for the current data, running the query
+     * otherwise.
+     *
+     * @param key         identifies the query and its parameters, null to never cache the body
+     * @param ifNoneMatch If-None-Match header of the request, may be null
+     * @param query       computes the result
+     * @return 304 when the client has the current result, the json body otherwise
+     */
+    public ResponseEntity<byte[]> respond(String key, String ifNoneMatch, Supplier<?> query) {
+        Generation current = generation();
+        String eTag = current.eTag();
+        if (matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        boolean cacheable = key != null && maxEntries > 0;
+        if (cacheable) {
+            byte[] body = current.get(key);
+            if (body != null) {
+                hits.increment();
+                return ResponseEntity.ok().eTag(eTag).contentType(MediaType.APPLICATION_JSON).body(body);
+            }
+            misses.increment();
+        }
+        byte[] body = serialize(query.get());
+        // the query read whatever the service published when it ran: if that moved on since the generation was
+        // taken, the body belongs to newer data than the ETag, so it is neither cached nor tagged.
+        if (!current.isCurrent(transactionService)) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        }
+        if (cacheable) {
+            current.put(key, body, evictions);
+        }
+        return ResponseEntity.ok().eTag(eTag).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Publishes the cache meters; read on scrape.
+     *
+     * @param registry meter registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("api.response.cache.lookups", hits, LongAdder::sum)
+                .description("Cacheable requests looking for a serialized body of the current data")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("api.response.cache.lookups", misses, LongAdder::sum)
+                .description("Cacheable requests looking for a serialized body of the current data")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("api.response.cache.evictions", evictions, LongAdder::sum)
+                .description("Bodies evicted as least recently used to stay within the maximum entries")
+                .register(registry);
+        Gauge.builder("api.response.cache.size", generation, current -> current.get().size())
+                .description("Bodies cached for the current data")
+                .register(registry);
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the generation of the data the service currently publishes, swapping it in when the data changed
+     * since the current one. A request that read the data just before a newer generation was swapped in gets an
+     * empty generation of its own instead of swapping the older one back.
+     */
+    private Generation generation() {
+        TransactionSnapshot snapshot = transactionService.getSnapshot();
+        long revision = snapshot.getStatistics().getRevision();
+        Generation current = generation.get();
+        while (!current.isOf(snapshot, revision)) {
+            Generation next = new Generation(snapshot, revision, maxEntries);
+            if (current.isNewerThan(next)) {
+                return next;
+            }
+            if (generation.compareAndSet(current, next)) {
+                return next;
+            }
+            current = generation.get();
+        }
+        return current;
+    }
+
+    private byte[] serialize(Object result) {
+        try {
+            return objectMapper.writeValueAsBytes(result);
+        } catch (JsonProcessingException e) {
+            throw new ServiceException("Serializing Response Failed.");
+        }
+    }
+
+    /**
+     * Weak comparison as If-None-Match asks for: any listed tag, with or without the W/ prefix, or *.
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bodies serialized for one revision of one snapshot, with its ETag built once, split over segments by key hash,
+     * each a least recently used map of its share of the maximum entries.
+     */
+    private static final class Generation {
+
+        private final TransactionSnapshot snapshot;
+        private final long revision;
+        private final String eTag;
+        private final Segment[] segments = new Segment[SEGMENTS];
+
+        private Generation(TransactionSnapshot snapshot, long revision, int maxEntries) {
+            this.snapshot = snapshot;
+            this.revision = revision;
+            this.eTag = snapshot == null ? "" : "\"" + snapshot.getVersion() + "." + revision + "\"";
+            int segmentEntries = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment(segmentEntries);
+            }
+        }
+
+        private String eTag() {
+            return eTag;
+        }
+
+        private boolean isOf(TransactionSnapshot other, long otherRevision) {
+            return snapshot == other && revision == otherRevision;
+        }
+
+        /**
+         * Returns whether the service still publishes the data of this generation. Versions and revisions only
+         * grow, so a query run between taking the generation and this check read the data of this generation.
+         */
+        private boolean isCurrent(TransactionService transactionService) {
+            TransactionSnapshot current = transactionService.getSnapshot();
+            return isOf(current, current.getStatistics().getRevision());
+        }
+
+        private boolean isNewerThan(Generation other) {
+            if (snapshot == null) {
+                return false;
+            }
+            return snapshot.getVersion() != other.snapshot.getVersion() ? snapshot.getVersion() > other.snapshot.getVersion()
+                    : revision > other.revision;
+        }
+
+        private byte[] get(String key) {
+            Segment segment = segment(key);
+            synchronized (segment) {
+                return segment.get(key);
+            }
+        }
+
+        private void put(String key, byte[] body, LongAdder evictions) {
+            Segment segment = segment(key);
+            synchronized (segment) {
+                segment.put(key, body);
+                if (segment.size() > segment.maxEntries) {
+                    Iterator<String> eldest = segment.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+
+        private int size() {
+            int size = 0;
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    size += segment.size();
+                }
+            }
+            return size;
+        }
+
+        private Segment segment(String key) {
+            int hash = key.hashCode();
+            return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<String, byte[]> {
+
+        private final int maxEntries;
+
+        private Segment(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.smallworld.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.smallworld.TransactionDataFetcher;
+import com.smallworld.data.ClientScreening;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.exception.ExceptionResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Read only http api over the {@link TransactionDataFetcher}, one endpoint per query. Bodies are served
+ * pre-serialized and carry an ETag of the data version; see {@link PreSerializedResponses}. Queries taking a list
+ * of clients are not cached, only revalidated; the screening of a stream of clients is neither.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api")
+public class TransactionController {
+
+    private static final int SCREENING_FLUSH_INTERVAL = 1024;
+
+    private final TransactionDataFetcher transactionDataFetcher;
+    private final PreSerializedResponses responses;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping("/transactions/total-amount")
+    public ResponseEntity<byte[]> getTotalTransactionAmount(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("total-amount", ifNoneMatch, transactionDataFetcher::getTotalTransactionAmount);
+    }
+
+    @GetMapping("/transactions/max-amount")
+    public ResponseEntity<byte[]> getMaxTransactionAmount(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("max-amount", ifNoneMatch, transactionDataFetcher::getMaxTransactionAmount);
+    }
+
+    @GetMapping(value = "/transactions/top", params = "!k")
+    public ResponseEntity<byte[]> getTop3TransactionsByAmount(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("top-transactions", ifNoneMatch, transactionDataFetcher::getTop3TransactionsByAmount);
+    }
+
+    @GetMapping(value = "/transactions/top", params = "k")
+    public ResponseEntity<byte[]> getTopNTransactionsByAmount(@RequestParam int k,
+                                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("top-transactions:" + k, ifNoneMatch, () -> transactionDataFetcher.getTopNTransactionsByAmount(k));
+    }
+
+    @GetMapping("/transactions/by-beneficiary")
+    public ResponseEntity<byte[]> getTransactionsByBeneficiaryName(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("by-beneficiary", ifNoneMatch, transactionDataFetcher::getTransactionsByBeneficiaryName);
+    }
+
+    @GetMapping("/transactions/aggregate")
+    public ResponseEntity<byte[]> aggregate(@RequestParam(required = false) Double minAmount,
+                                            @RequestParam(required = false) Double maxAmount,
+                                            @RequestParam(required = false) Integer minSenderAge,
+                                            @RequestParam(required = false) Integer maxSenderAge,
+                                            @RequestParam(required = false) Integer minBeneficiaryAge,
+                                            @RequestParam(required = false) Integer maxBeneficiaryAge,
+                                            @RequestParam(required = false) TransactionFilter.IssueStatus issueStatus,
+                                            @RequestParam(defaultValue = "0") int k,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        TransactionFilter filter = TransactionFilter.builder()
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .minSenderAge(minSenderAge)
+                .maxSenderAge(maxSenderAge)
+                .minBeneficiaryAge(minBeneficiaryAge)
+                .maxBeneficiaryAge(maxBeneficiaryAge)
+                .issueStatus(issueStatus)
+                .build();
+        return responses.respond("aggregate:" + filter + ":" + k, ifNoneMatch, () -> transactionDataFetcher.aggregate(filter, k));
+    }
+
+    @GetMapping("/clients/count")
+    public ResponseEntity<byte[]> countUniqueClients(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("client-count", ifNoneMatch, transactionDataFetcher::countUniqueClients);
+    }
+
+    @GetMapping("/clients/{name}/total-amount-sent")
+    public ResponseEntity<byte[]> getTotalTransactionAmountSentBy(@PathVariable String name,
+                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("total-amount-sent:" + name, ifNoneMatch, () -> transactionDataFetcher.getTotalTransactionAmountSentBy(name));
+    }
+
+    @GetMapping("/clients/total-amount-sent")
+    public ResponseEntity<byte[]> getTotalTransactionAmountSentBy(@RequestParam List<String> name,
+                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond(null, ifNoneMatch, () -> transactionDataFetcher.getTotalTransactionAmountSentBy(name));
+    }
+
+    @GetMapping("/clients/{name}/mtns-sent")
+    public ResponseEntity<byte[]> getTransactionMtnsSentBy(@PathVariable String name,
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("mtns-sent:" + name, ifNoneMatch, () -> transactionDataFetcher.getTransactionMtnsSentBy(name));
+    }
+
+    @GetMapping(value = "/clients/mtns-sent", params = "name")
+    public ResponseEntity<byte[]> getTransactionMtnsSentByName(@RequestParam String name,
+                                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return getTransactionMtnsSentBy(name, ifNoneMatch);
+    }
+
+    @GetMapping("/clients/{name}/open-issues")
+    public ResponseEntity<byte[]> hasOpenComplianceIssues(@PathVariable String name,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("open-issues:" + name, ifNoneMatch, () -> transactionDataFetcher.hasOpenComplianceIssues(name));
+    }
+
+    @GetMapping("/clients/open-issues")
+    public ResponseEntity<byte[]> hasOpenComplianceIssues(@RequestParam List<String> name,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond(null, ifNoneMatch, () -> transactionDataFetcher.hasOpenComplianceIssues(name));
+    }
+
+    @GetMapping("/clients/{name}/open-issues/count")
+    public ResponseEntity<byte[]> countOpenComplianceIssues(@PathVariable String name,
+                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("open-issue-count:" + name, ifNoneMatch, () -> transactionDataFetcher.countOpenComplianceIssues(name));
+    }
+
+    @GetMapping(value = "/clients/open-issues/count", params = "name")
+    public ResponseEntity<byte[]> countOpenComplianceIssuesByName(@RequestParam String name,
+                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return countOpenComplianceIssues(name, ifNoneMatch);
+    }
+
+    /**
+     * Screens the clients of the body, one json string per line, and streams back one result per line in the same
+     * order while the body is still being read, e.g.
+     * {@code {"clientFullName":"Tom Shelby","open":true,"openIssueCount":2,"openIssueIds":[1,3]}}. Results are
+     * flushed every {@value #SCREENING_FLUSH_INTERVAL} clients. The status is sent before the body is read, so a
+     * malformed line, or a null, ends the stream with an error record instead, e.g.
+     * {@code {"message":"Reading Client Name 3 Failed.","status":"BAD_REQUEST"}}.
+     */
+    @PostMapping(value = "/clients/screening", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> screenClients(InputStream body) {
+        ObjectWriter writer = objectMapper.writerFor(ClientScreening.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(output -> {
+            int[] pending = new int[1];
+            // lines end with a newline of their own rather than the default space between root values; the
+            // container closes the output stream.
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output).setRootValueSeparator(null)
+                    .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                 MappingIterator<String> values = objectMapper.readerFor(String.class).readValues(body)) {
+                ClientNames names = new ClientNames(values);
+                transactionDataFetcher.screenClients(names, screening -> {
+                    try {
+                        writer.writeValue(generator, screening);
+                        generator.writeRaw('\n');
+                        if (++pending[0] == SCREENING_FLUSH_INTERVAL) {
+                            generator.flush();
+                            pending[0] = 0;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (names.isFailed()) {
+                    ExceptionResponse response = new ExceptionResponse("Reading Client Name " + (names.getRead() + 1) + " Failed.");
+                    response.setStatus(HttpStatus.BAD_REQUEST);
+                    objectMapper.writeValue(generator, response);
+                    generator.writeRaw('\n');
+                }
+            }
+        });
+    }
+
+    @GetMapping("/issues/unsolved")
+    public ResponseEntity<byte[]> getUnsolvedIssueIds(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("unsolved-issues", ifNoneMatch, transactionDataFetcher::getUnsolvedIssueIds);
+    }
+
+    @GetMapping("/issues/solved/messages")
+    public ResponseEntity<byte[]> getAllSolvedIssueMessages(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("solved-issue-messages", ifNoneMatch, transactionDataFetcher::getAllSolvedIssueMessages);
+    }
+
+    @GetMapping(value = "/senders/top", params = "!k")
+    public ResponseEntity<byte[]> getTopSender(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("top-sender", ifNoneMatch, () -> transactionDataFetcher.getTopSender().orElse(null));
+    }
+
+    @GetMapping(value = "/senders/top", params = "k")
+    public ResponseEntity<byte[]> getTopNSenders(@RequestParam int k,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return responses.respond("top-senders:" + k, ifNoneMatch, () -> transactionDataFetcher.getTopNSenders(k));
+    }
+
+    /**
+     * Rejected query parameters, e.g. a negative k.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ExceptionResponse> handleIllegalArgument(IllegalArgumentException e) {
+        ExceptionResponse response = new ExceptionResponse(e.getMessage());
+        response.setStatus(HttpStatus.BAD_REQUEST);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    /**
+     * Client names of a screening body, ending at the first line that is not a json string instead of throwing, so
+     * the results before it are still streamed.
+     */
+    private static final class ClientNames implements Iterator<String> {
+
+        private final MappingIterator<String> values;
+        private String next;
+        private int read;
+        private boolean failed;
+
+        private ClientNames(MappingIterator<String> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !failed) {
+                try {
+                    if (values.hasNextValue()) {
+                        next = values.nextValue();
+                        // a null is no client name either.
+                        failed = next == null;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failed = true;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String name = next;
+            next = null;
+            read++;
+            return name;
+        }
+
+        boolean isFailed() {
+            return failed;
+        }
+
+        int getRead() {
+            return read;
+        }
+    }
+}
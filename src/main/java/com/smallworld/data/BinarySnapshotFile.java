@@ -0,0 +1,276 @@
+package com.smallworld.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary image of the loaded columns, so a restart can skip parsing the json source.
+ * Layout, little endian: a header (magic, format version, source mtime, source size, source CRC32C) followed by the
+ * columns as written by {@link TransactionColumns} and both string dictionaries. Aggregates are not stored; they are
+ * recomputed from the columns, which is a fraction of the parsing cost.
+ */
+public final class BinarySnapshotFile {
+
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x58545753;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long CHECKSUM_REGION_SIZE = 1L << 26;
+
+    private BinarySnapshotFile() {
+    }
+
+    /**
+     * Writes the columns of the statistics, stamped with the source they were loaded from. The file is written
+     * next to the target and moved in place, so a crash never leaves a truncated snapshot behind.
+     *
+     * @param statistics loaded statistics
+     * @param source     json file the statistics were loaded from
+     * @param target     snapshot file
+     * @throws IOException when the snapshot can't be written
+     */
+    public static void write(TransactionStatistics statistics, Path source, Path target) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelWriter writer = new ChannelWriter(channel);
+            writer.writeInt(MAGIC);
+            writer.writeInt(FORMAT_VERSION);
+            writer.writeLong(Files.getLastModifiedTime(source).toMillis());
+            writer.writeLong(Files.size(source));
+            writer.writeLong(checksum(source));
+            statistics.getColumns().write(writer);
+            writer.flush();
+            channel.force(false);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Memory maps the snapshot and rebuilds the statistics from it. Nothing is returned when the snapshot is
+     * missing, has another format version, or was written for a source with another mtime, size or checksum.
+     *
+     * @param snapshot          snapshot file
+     * @param source            json file the snapshot must have been loaded from
+     * @param parallelThreshold row count from which aggregation runs in parallel
+     * @return statistics, if the snapshot is current
+     * @throws IOException when the snapshot can't be read or is truncated
+     */
+    public static Optional<TransactionStatistics> read(Path snapshot, Path source, int parallelThreshold) throws IOException {
+        return read(snapshot, source, parallelThreshold, TransactionColumns.Storage.HEAP);
+    }
+
+    /**
+     * Same as {@link #read(Path, Path, int)}, restoring the columns into the given storage.
+     *
+     * @param snapshot          snapshot file
+     * @param source            json file the snapshot must have been loaded from
+     * @param parallelThreshold row count from which aggregation runs in parallel
+     * @param storage           where the restored columns live
+     * @return statistics, if the snapshot is current
+     * @throws IOException when the snapshot can't be read or is truncated
+     */
+    public static Optional<TransactionStatistics> read(Path snapshot, Path source, int parallelThreshold,
+                                                       TransactionColumns.Storage storage) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedReader reader = new MappedReader(channel);
+            if (reader.readInt() != MAGIC || reader.readInt() != FORMAT_VERSION
+                    || reader.readLong() != Files.getLastModifiedTime(source).toMillis()
+                    || reader.readLong() != Files.size(source)
+                    || reader.readLong() != checksum(source)) {
+                return Optional.empty();
+            }
+            return Optional.of(TransactionStatistics.of(TransactionColumns.read(reader, storage), parallelThreshold));
+        }
+    }
+
+    /**
+     * Returns the CRC32C of the file content, read through memory mapped regions.
+     */
+    static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += CHECKSUM_REGION_SIZE) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHECKSUM_REGION_SIZE, size - position)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Writes through a reused heap buffer; arrays are copied in with bulk puts.
+     */
+    private static final class ChannelWriter implements TransactionColumns.ColumnWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        private ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void writeInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        @Override
+        public void writeInts(int[] values, int count) throws IOException {
+            for (int offset = 0; offset < count; ) {
+                ensureRemaining(Integer.BYTES);
+                int length = Math.min(count - offset, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, offset, length);
+                buffer.position(buffer.position() + length * Integer.BYTES);
+                offset += length;
+            }
+        }
+
+        @Override
+        public void writeDoubles(double[] values, int count) throws IOException {
+            for (int offset = 0; offset < count; ) {
+                ensureRemaining(Double.BYTES);
+                int length = Math.min(count - offset, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(values, offset, length);
+                buffer.position(buffer.position() + length * Double.BYTES);
+                offset += length;
+            }
+        }
+
+        @Override
+        public void writeBytes(byte[] values, int count) throws IOException {
+            for (int offset = 0; offset < count; ) {
+                ensureRemaining(1);
+                int length = Math.min(count - offset, buffer.remaining());
+                buffer.put(values, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * Writes the entry count, the byte length of every entry and then all entries as one UTF-8 blob.
+         */
+        @Override
+        public void writeStrings(StringDictionary dictionary) throws IOException {
+            int count = dictionary.size();
+            byte[][] encoded = new byte[count][];
+            int[] lengths = new int[count];
+            for (int id = 0; id < count; id++) {
+                encoded[id] = dictionary.decode(id).getBytes(StandardCharsets.UTF_8);
+                lengths[id] = encoded[id].length;
+            }
+            writeInt(count);
+            writeInts(lengths, count);
+            for (byte[] value : encoded) {
+                writeBytes(value, value.length);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Maps every column as its own read only region, so no single mapping has to cover the whole file.
+     */
+    private static final class MappedReader implements TransactionColumns.ColumnReader {
+
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+
+        private MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        @Override
+        public int readInt() throws IOException {
+            return map(Integer.BYTES).getInt();
+        }
+
+        long readLong() throws IOException {
+            return map(Long.BYTES).getLong();
+        }
+
+        @Override
+        public int[] readInts(int count, int capacity) throws IOException {
+            int[] values = new int[capacity];
+            map((long) count * Integer.BYTES).asIntBuffer().get(values, 0, count);
+            return values;
+        }
+
+        @Override
+        public double[] readDoubles(int count, int capacity) throws IOException {
+            double[] values = new double[capacity];
+            map((long) count * Double.BYTES).asDoubleBuffer().get(values, 0, count);
+            return values;
+        }
+
+        @Override
+        public byte[] readBytes(int count, int capacity) throws IOException {
+            byte[] values = new byte[capacity];
+            map(count).get(values, 0, count);
+            return values;
+        }
+
+        @Override
+        public StringDictionary readStrings() throws IOException {
+            int count = readInt();
+            int[] lengths = readInts(count, count);
+            long total = 0;
+            for (int length : lengths) {
+                total += length;
+            }
+            ByteBuffer blob = map(total);
+            StringDictionary dictionary = new StringDictionary();
+            byte[] value = new byte[0];
+            for (int length : lengths) {
+                if (value.length < length) {
+                    value = new byte[length];
+                }
+                blob.get(value, 0, length);
+                dictionary.encode(new String(value, 0, length, StandardCharsets.UTF_8));
+            }
+            return dictionary;
+        }
+
+        private ByteBuffer map(long length) throws IOException {
+            if (length < 0 || position + length > size) {
+                throw new IOException("Truncated snapshot at offset " + position);
+            }
+            ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+            position += length;
+            return region;
+        }
+    }
+}
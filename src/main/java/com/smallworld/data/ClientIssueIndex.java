@@ -0,0 +1,94 @@
+package com.smallworld.data;
+
+import java.util.Arrays;
+
+/**
+ * Read only index of the open issues of every client over the first {@link #size()} rows: the rows each client sent
+ * or received whose issue was unsolved in the state it was built from, in load order, laid out client after client
+ * in one array. Issues are only ever solved, never reopened, so for the readers of a later state an index only goes
+ * stale by listing rows solved since, which they skip, and by not covering newer rows.
+ */
+final class ClientIssueIndex {
+
+    private final int size;
+    private final int clientCount;
+    private final long revision;
+    // rows of client c are rows[offsets[c]] to rows[offsets[c + 1] - 1].
+    private final int[] offsets;
+    private final int[] rows;
+
+    private ClientIssueIndex(int size, int clientCount, long revision, int[] offsets, int[] rows) {
+        this.size = size;
+        this.clientCount = clientCount;
+        this.revision = revision;
+        this.offsets = offsets;
+        this.rows = rows;
+    }
+
+    /**
+     * Indexes every row of the columns in two passes, one counting the open rows of each client and one placing
+     * them. The revision is the one of the state the columns belong to.
+     */
+    static ClientIssueIndex of(TransactionColumns columns, int clientCount, long revision) {
+        int size = columns.size();
+        int[] offsets = new int[clientCount + 1];
+        for (int row = 0; row < size; row++) {
+            if (!columns.isIssueSolved(row)) {
+                int sender = columns.senderId(row);
+                int beneficiary = columns.beneficiaryId(row);
+                offsets[sender + 1]++;
+                if (beneficiary != sender) {
+                    offsets[beneficiary + 1]++;
+                }
+            }
+        }
+        for (int client = 0; client < clientCount; client++) {
+            offsets[client + 1] += offsets[client];
+        }
+        int[] rows = new int[offsets[clientCount]];
+        int[] next = Arrays.copyOf(offsets, clientCount);
+        for (int row = 0; row < size; row++) {
+            if (!columns.isIssueSolved(row)) {
+                int sender = columns.senderId(row);
+                int beneficiary = columns.beneficiaryId(row);
+                rows[next[sender]++] = row;
+                if (beneficiary != sender) {
+                    rows[next[beneficiary]++] = row;
+                }
+            }
+        }
+        return new ClientIssueIndex(size, clientCount, revision, offsets, rows);
+    }
+
+    /**
+     * Returns the number of rows covered, the first ones in load order.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the revision of the state the index was built from.
+     */
+    long revision() {
+        return revision;
+    }
+
+    /**
+     * Returns the first position of the client's rows; clients newer than the index have none.
+     */
+    int from(int client) {
+        return client < clientCount ? offsets[client] : 0;
+    }
+
+    /**
+     * Returns the position after the last one of the client's rows.
+     */
+    int to(int client) {
+        return client < clientCount ? offsets[client + 1] : 0;
+    }
+
+    int rowAt(int position) {
+        return rows[position];
+    }
+}
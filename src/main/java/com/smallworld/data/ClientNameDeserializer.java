@@ -0,0 +1,35 @@
+package com.smallworld.data;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Deserializes client names through the {@link StringDictionary} set as the {@link #NAMES} attribute of the
+ * reader: a repeated name is resolved from the parser's buffer and shares one string instance, only a new name
+ * allocates. Without the attribute names are read as plain strings.
+ */
+public class ClientNameDeserializer extends StdDeserializer<String> {
+
+    /**
+     * Reader attribute holding the dictionary of the load.
+     */
+    public static final Object NAMES = ClientNameDeserializer.class;
+
+    public ClientNameDeserializer() {
+        super(String.class);
+    }
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        Object names = context.getAttribute(NAMES);
+        if (!(names instanceof StringDictionary dictionary) || parser.currentToken() != JsonToken.VALUE_STRING) {
+            return parser.getValueAsString();
+        }
+        int id = dictionary.lookup(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        return id == StringDictionary.NOT_FOUND ? dictionary.decode(dictionary.encode(parser.getText())) : dictionary.decode(id);
+    }
+}
@@ -0,0 +1,18 @@
+package com.smallworld.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Compliance screening of one client: the unsolved issues on transactions the client sent or received.
+ */
+@Getter
+@AllArgsConstructor
+public class ClientScreening {
+
+    private final String clientFullName;
+    private final boolean open;
+    private final int openIssueCount;
+    // in load order; an open row without issue id counts as an open issue, so there may be fewer ids than the count.
+    private final int[] openIssueIds;
+}
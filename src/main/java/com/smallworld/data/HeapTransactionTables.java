@@ -0,0 +1,178 @@
+package com.smallworld.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Tables held in one primitive array per column, doubled when full.
+ */
+final class HeapTransactionTables implements TransactionTables {
+
+    // transaction table
+    private final int[] mtn;
+    private final double[] amount;
+    private final int[] senderId;
+    private final int[] senderAge;
+    private final int[] beneficiaryId;
+    private final int[] beneficiaryAge;
+    private final int[] firstRow;
+
+    // issue table
+    private final int[] transaction;
+    private final int[] issueId;
+    private final int[] issueMessageId;
+    private final byte[] flags;
+
+    HeapTransactionTables(int transactionCapacity, int rowCapacity) {
+        this(new int[transactionCapacity], new double[transactionCapacity], new int[transactionCapacity],
+                new int[transactionCapacity], new int[transactionCapacity], new int[transactionCapacity],
+                new int[transactionCapacity],
+                new int[rowCapacity], new int[rowCapacity], new int[rowCapacity], new byte[rowCapacity]);
+    }
+
+    HeapTransactionTables(int[] mtn, double[] amount, int[] senderId, int[] senderAge, int[] beneficiaryId,
+                          int[] beneficiaryAge, int[] firstRow,
+                          int[] transaction, int[] issueId, int[] issueMessageId, byte[] flags) {
+        this.mtn = mtn;
+        this.amount = amount;
+        this.senderId = senderId;
+        this.senderAge = senderAge;
+        this.beneficiaryId = beneficiaryId;
+        this.beneficiaryAge = beneficiaryAge;
+        this.firstRow = firstRow;
+        this.transaction = transaction;
+        this.issueId = issueId;
+        this.issueMessageId = issueMessageId;
+        this.flags = flags;
+    }
+
+    @Override
+    public int mtn(int transaction) {
+        return mtn[transaction];
+    }
+
+    @Override
+    public double amount(int transaction) {
+        return amount[transaction];
+    }
+
+    @Override
+    public int senderId(int transaction) {
+        return senderId[transaction];
+    }
+
+    @Override
+    public int senderAge(int transaction) {
+        return senderAge[transaction];
+    }
+
+    @Override
+    public int beneficiaryId(int transaction) {
+        return beneficiaryId[transaction];
+    }
+
+    @Override
+    public int beneficiaryAge(int transaction) {
+        return beneficiaryAge[transaction];
+    }
+
+    @Override
+    public int firstRow(int transaction) {
+        return firstRow[transaction];
+    }
+
+    @Override
+    public int transaction(int row) {
+        return transaction[row];
+    }
+
+    @Override
+    public int issueId(int row) {
+        return issueId[row];
+    }
+
+    @Override
+    public int issueMessageId(int row) {
+        return issueMessageId[row];
+    }
+
+    @Override
+    public byte flags(int row) {
+        return flags[row];
+    }
+
+    @Override
+    public void setTransaction(int of, int transactionMtn, double transactionAmount, int sender, int senderYears,
+                               int beneficiary, int beneficiaryYears) {
+        mtn[of] = transactionMtn;
+        amount[of] = transactionAmount;
+        senderId[of] = sender;
+        senderAge[of] = senderYears;
+        beneficiaryId[of] = beneficiary;
+        beneficiaryAge[of] = beneficiaryYears;
+    }
+
+    @Override
+    public void setFirstRow(int of, int row) {
+        firstRow[of] = row;
+    }
+
+    @Override
+    public void setRow(int row, int of, int issue, int messageId, byte rowFlags) {
+        transaction[row] = of;
+        issueId[row] = issue;
+        issueMessageId[row] = messageId;
+        flags[row] = rowFlags;
+    }
+
+    @Override
+    public void addFlags(int row, byte rowFlags) {
+        flags[row] |= rowFlags;
+    }
+
+    @Override
+    public int transactionCapacity() {
+        return mtn.length;
+    }
+
+    @Override
+    public int rowCapacity() {
+        return transaction.length;
+    }
+
+    @Override
+    public TransactionTables growTransactions() {
+        int capacity = mtn.length * 2;
+        return new HeapTransactionTables(Arrays.copyOf(mtn, capacity), Arrays.copyOf(amount, capacity),
+                Arrays.copyOf(senderId, capacity), Arrays.copyOf(senderAge, capacity),
+                Arrays.copyOf(beneficiaryId, capacity), Arrays.copyOf(beneficiaryAge, capacity),
+                Arrays.copyOf(firstRow, capacity),
+                transaction, issueId, issueMessageId, flags);
+    }
+
+    @Override
+    public TransactionTables growRows() {
+        int capacity = transaction.length * 2;
+        return new HeapTransactionTables(mtn, amount, senderId, senderAge, beneficiaryId, beneficiaryAge, firstRow,
+                Arrays.copyOf(transaction, capacity), Arrays.copyOf(issueId, capacity),
+                Arrays.copyOf(issueMessageId, capacity), Arrays.copyOf(flags, capacity));
+    }
+
+    @Override
+    public void writeTransactions(TransactionColumns.ColumnWriter writer, int count) throws IOException {
+        writer.writeInts(mtn, count);
+        writer.writeDoubles(amount, count);
+        writer.writeInts(senderId, count);
+        writer.writeInts(senderAge, count);
+        writer.writeInts(beneficiaryId, count);
+        writer.writeInts(beneficiaryAge, count);
+        writer.writeInts(firstRow, count);
+    }
+
+    @Override
+    public void writeRows(TransactionColumns.ColumnWriter writer, int count) throws IOException {
+        writer.writeInts(transaction, count);
+        writer.writeInts(issueId, count);
+        writer.writeInts(issueMessageId, count);
+    }
+}
@@ -0,0 +1,136 @@
+package com.smallworld.data;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
+
+/**
+ * HyperLogLog cardinality sketch: 2^precision one byte registers, each holding the longest run of leading zeros seen
+ * among the hashes routed to it. The estimate's relative standard error is 1.04 / sqrt(2^precision), e.g. 0.8% in
+ * 16 KB at precision 14, whatever the cardinality. Sketches of the same precision merge losslessly, so the distinct
+ * count of a union is the estimate of the merged sketch. Not thread safe.
+ */
+@EqualsAndHashCode
+public final class HyperLogLog {
+
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be within [" + MIN_PRECISION + ", " + MAX_PRECISION + "]: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Restores a sketch from its registers, as serialized.
+     */
+    @JsonCreator
+    public static HyperLogLog of(@JsonProperty("precision") int precision, @JsonProperty("registers") byte[] registers) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        if (registers.length != sketch.registers.length) {
+            throw new IllegalArgumentException("expected " + sketch.registers.length + " registers: " + registers.length);
+        }
+        System.arraycopy(registers, 0, sketch.registers, 0, registers.length);
+        return sketch;
+    }
+
+    /**
+     * Returns the smallest sketch whose relative standard error is at most the given one.
+     */
+    public static HyperLogLog withError(double relativeError) {
+        double registerCount = Math.pow(1.04 / relativeError, 2);
+        int precision = (int) Math.ceil(Math.log(registerCount) / Math.log(2));
+        return new HyperLogLog(Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision)));
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    public void addHash(long hash) {
+        int register = (int) (hash >>> (Long.SIZE - precision));
+        // the sentinel bit caps the run at the bits left after the register index.
+        int run = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (run > registers[register]) {
+            registers[register] = (byte) run;
+        }
+    }
+
+    /**
+     * Adds every value the other sketch has seen.
+     *
+     * @throws IllegalArgumentException when the precisions differ
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("can't merge precision " + other.precision + " into " + precision);
+        }
+        for (int register = 0; register < registers.length; register++) {
+            registers[register] = (byte) Math.max(registers[register], other.registers[register]);
+        }
+    }
+
+    /**
+     * Returns the estimated number of distinct values added, with linear counting while registers are still empty.
+     */
+    public long estimate() {
+        int count = registers.length;
+        double sum = 0.0;
+        int zeros = 0;
+        for (byte run : registers) {
+            sum += Math.scalb(1.0, -run);
+            if (run == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1.0 + 1.079 / count);
+        double estimate = alpha * count * count / sum;
+        if (estimate <= 2.5 * count && zeros > 0) {
+            estimate = count * Math.log((double) count / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public double relativeError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public int sizeInBytes() {
+        return registers.length;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public byte[] getRegisters() {
+        return registers.clone();
+    }
+
+    public HyperLogLog copy() {
+        return of(precision, registers);
+    }
+
+    /**
+     * 64 bit hash of the chars: FNV-1a, then the murmur3 finalizer to spread its low entropy high bits.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,87 @@
+package com.smallworld.data;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from int keys to non negative int values, so indexes over millions of rows don't box a key,
+ * a value and an entry per row. Not thread safe.
+ */
+final class IntIntHashMap {
+
+    static final int MISSING = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] keys = new int[INITIAL_CAPACITY];
+    // MISSING marks a free slot.
+    private int[] values = newValues(INITIAL_CAPACITY);
+    private int size;
+
+    /**
+     * Returns the value of the key or {@link #MISSING}.
+     */
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Maps the key to the non negative value, replacing any previous one.
+     */
+    void put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative: " + value);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != MISSING && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == MISSING) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = newValues(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int slot = slot(oldKeys[i], mask);
+                while (values[slot] != MISSING) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int[] newValues(int capacity) {
+        int[] values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        return values;
+    }
+}
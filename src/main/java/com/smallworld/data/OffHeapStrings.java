@@ -0,0 +1,113 @@
+package com.smallworld.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Values of a {@link StringDictionary} kept outside the heap: the UTF-16 chars of every value, prefixed by their
+ * count, appended to direct buffer segments. The heap only holds one long per value, its segment and offset, so
+ * comparing against a value allocates nothing while decoding creates a new string.
+ * A single writer appends; values are read by id once the dictionary published it.
+ */
+final class OffHeapStrings {
+
+    private static final int SEGMENT_BYTES = 1 << 20;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private volatile ByteBuffer[] segments = {allocate(SEGMENT_BYTES)};
+    private volatile long[] positions = new long[INITIAL_CAPACITY];
+    // writer side: next free offset of the last segment.
+    private int free;
+
+    /**
+     * Stores the value under the next id, which must be {@code id}.
+     */
+    void add(int id, String value) {
+        int bytes = Integer.BYTES + value.length() * Character.BYTES;
+        ByteBuffer[] current = segments;
+        ByteBuffer segment = current[current.length - 1];
+        if (free + bytes > segment.capacity()) {
+            segment = allocate(Math.max(SEGMENT_BYTES, bytes));
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = segment;
+            free = 0;
+        }
+        int offset = free;
+        segment.putInt(offset, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            segment.putChar(offset + Integer.BYTES + i * Character.BYTES, value.charAt(i));
+        }
+        // keeps every length prefix 4 byte aligned.
+        free = (offset + bytes + Integer.BYTES - 1) & -Integer.BYTES;
+        segments = current;
+        if (id == positions.length) {
+            positions = Arrays.copyOf(positions, id * 2);
+        }
+        positions[id] = (long) (current.length - 1) << Integer.SIZE | offset;
+    }
+
+    String get(int id) {
+        ByteBuffer segment = segment(id);
+        int offset = offset(id);
+        char[] chars = new char[segment.getInt(offset)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = segment.getChar(offset + Integer.BYTES + i * Character.BYTES);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns the value's {@link String#hashCode()}.
+     */
+    int hash(int id) {
+        ByteBuffer segment = segment(id);
+        int offset = offset(id);
+        int length = segment.getInt(offset);
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + segment.getChar(offset + Integer.BYTES + i * Character.BYTES);
+        }
+        return hash;
+    }
+
+    boolean contentEquals(int id, String value) {
+        ByteBuffer segment = segment(id);
+        int offset = offset(id);
+        if (segment.getInt(offset) != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (segment.getChar(offset + Integer.BYTES + i * Character.BYTES) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean contentEquals(int id, char[] chars, int from, int length) {
+        ByteBuffer segment = segment(id);
+        int offset = offset(id);
+        if (segment.getInt(offset) != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (segment.getChar(offset + Integer.BYTES + i * Character.BYTES) != chars[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer segment(int id) {
+        return segments[(int) (positions[id] >>> Integer.SIZE)];
+    }
+
+    private int offset(int id) {
+        return (int) positions[id];
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,248 @@
+package com.smallworld.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Tables held outside the heap, as fixed width records in direct buffer segments of {@value #SEGMENT_ENTRIES}
+ * entries: 32 bytes per transaction and 16 per row. The heap only keeps the segment arrays, so the collector has
+ * next to nothing to trace or copy whatever the row count. Growing adds a segment; existing ones are shared with
+ * the previous tables and never copied. Their memory is released when the last tables referencing them are
+ * collected and counts against {@code -XX:MaxDirectMemorySize}.
+ */
+final class OffHeapTransactionTables implements TransactionTables {
+
+    private static final int SEGMENT_ENTRIES = 1 << 16;
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_MASK = SEGMENT_ENTRIES - 1;
+    private static final int SCRATCH_SIZE = 1 << 12;
+
+    // transaction record layout, the amount first so that it is 8 byte aligned.
+    private static final int TRANSACTION_SHIFT = 5;
+    private static final int AMOUNT = 0;
+    private static final int MTN = 8;
+    private static final int SENDER_ID = 12;
+    private static final int SENDER_AGE = 16;
+    private static final int BENEFICIARY_ID = 20;
+    private static final int BENEFICIARY_AGE = 24;
+    private static final int FIRST_ROW = 28;
+
+    // row record layout.
+    private static final int ROW_SHIFT = 4;
+    private static final int TRANSACTION = 0;
+    private static final int ISSUE_ID = 4;
+    private static final int ISSUE_MESSAGE_ID = 8;
+    private static final int FLAGS = 12;
+
+    private final ByteBuffer[] transactions;
+    private final ByteBuffer[] rows;
+
+    OffHeapTransactionTables() {
+        this(new ByteBuffer[]{segment(TRANSACTION_SHIFT)}, new ByteBuffer[]{segment(ROW_SHIFT)});
+    }
+
+    private OffHeapTransactionTables(ByteBuffer[] transactions, ByteBuffer[] rows) {
+        this.transactions = transactions;
+        this.rows = rows;
+    }
+
+    /**
+     * Copies the first entries of other tables.
+     */
+    static OffHeapTransactionTables copyOf(TransactionTables tables, int transactionCount, int rowCount) {
+        TransactionTables copy = new OffHeapTransactionTables();
+        while (copy.transactionCapacity() < transactionCount) {
+            copy = copy.growTransactions();
+        }
+        while (copy.rowCapacity() < rowCount) {
+            copy = copy.growRows();
+        }
+        for (int of = 0; of < transactionCount; of++) {
+            copy.setTransaction(of, tables.mtn(of), tables.amount(of), tables.senderId(of), tables.senderAge(of),
+                    tables.beneficiaryId(of), tables.beneficiaryAge(of));
+            copy.setFirstRow(of, tables.firstRow(of));
+        }
+        for (int row = 0; row < rowCount; row++) {
+            copy.setRow(row, tables.transaction(row), tables.issueId(row), tables.issueMessageId(row), tables.flags(row));
+        }
+        return (OffHeapTransactionTables) copy;
+    }
+
+    @Override
+    public int mtn(int transaction) {
+        return transactionSegment(transaction).getInt(transactionOffset(transaction) + MTN);
+    }
+
+    @Override
+    public double amount(int transaction) {
+        return transactionSegment(transaction).getDouble(transactionOffset(transaction) + AMOUNT);
+    }
+
+    @Override
+    public int senderId(int transaction) {
+        return transactionSegment(transaction).getInt(transactionOffset(transaction) + SENDER_ID);
+    }
+
+    @Override
+    public int senderAge(int transaction) {
+        return transactionSegment(transaction).getInt(transactionOffset(transaction) + SENDER_AGE);
+    }
+
+    @Override
+    public int beneficiaryId(int transaction) {
+        return transactionSegment(transaction).getInt(transactionOffset(transaction) + BENEFICIARY_ID);
+    }
+
+    @Override
+    public int beneficiaryAge(int transaction) {
+        return transactionSegment(transaction).getInt(transactionOffset(transaction) + BENEFICIARY_AGE);
+    }
+
+    @Override
+    public int firstRow(int transaction) {
+        return transactionSegment(transaction).getInt(transactionOffset(transaction) + FIRST_ROW);
+    }
+
+    @Override
+    public int transaction(int row) {
+        return rowSegment(row).getInt(rowOffset(row) + TRANSACTION);
+    }
+
+    @Override
+    public int issueId(int row) {
+        return rowSegment(row).getInt(rowOffset(row) + ISSUE_ID);
+    }
+
+    @Override
+    public int issueMessageId(int row) {
+        return rowSegment(row).getInt(rowOffset(row) + ISSUE_MESSAGE_ID);
+    }
+
+    @Override
+    public byte flags(int row) {
+        return rowSegment(row).get(rowOffset(row) + FLAGS);
+    }
+
+    @Override
+    public void setTransaction(int of, int transactionMtn, double transactionAmount, int sender, int senderYears,
+                               int beneficiary, int beneficiaryYears) {
+        ByteBuffer segment = transactionSegment(of);
+        int offset = transactionOffset(of);
+        segment.putDouble(offset + AMOUNT, transactionAmount);
+        segment.putInt(offset + MTN, transactionMtn);
+        segment.putInt(offset + SENDER_ID, sender);
+        segment.putInt(offset + SENDER_AGE, senderYears);
+        segment.putInt(offset + BENEFICIARY_ID, beneficiary);
+        segment.putInt(offset + BENEFICIARY_AGE, beneficiaryYears);
+    }
+
+    @Override
+    public void setFirstRow(int of, int row) {
+        transactionSegment(of).putInt(transactionOffset(of) + FIRST_ROW, row);
+    }
+
+    @Override
+    public void setRow(int row, int of, int issue, int messageId, byte rowFlags) {
+        ByteBuffer segment = rowSegment(row);
+        int offset = rowOffset(row);
+        segment.putInt(offset + TRANSACTION, of);
+        segment.putInt(offset + ISSUE_ID, issue);
+        segment.putInt(offset + ISSUE_MESSAGE_ID, messageId);
+        segment.put(offset + FLAGS, rowFlags);
+    }
+
+    @Override
+    public void addFlags(int row, byte rowFlags) {
+        ByteBuffer segment = rowSegment(row);
+        int offset = rowOffset(row) + FLAGS;
+        segment.put(offset, (byte) (segment.get(offset) | rowFlags));
+    }
+
+    @Override
+    public int transactionCapacity() {
+        return transactions.length << SEGMENT_SHIFT;
+    }
+
+    @Override
+    public int rowCapacity() {
+        return rows.length << SEGMENT_SHIFT;
+    }
+
+    @Override
+    public TransactionTables growTransactions() {
+        return new OffHeapTransactionTables(append(transactions, segment(TRANSACTION_SHIFT)), rows);
+    }
+
+    @Override
+    public TransactionTables growRows() {
+        return new OffHeapTransactionTables(transactions, append(rows, segment(ROW_SHIFT)));
+    }
+
+    @Override
+    public void writeTransactions(TransactionColumns.ColumnWriter writer, int count) throws IOException {
+        writeInts(writer, count, this::mtn);
+        double[] amounts = new double[Math.min(count, SCRATCH_SIZE)];
+        for (int from = 0; from < count; from += amounts.length) {
+            int length = Math.min(amounts.length, count - from);
+            for (int i = 0; i < length; i++) {
+                amounts[i] = amount(from + i);
+            }
+            writer.writeDoubles(amounts, length);
+        }
+        writeInts(writer, count, this::senderId);
+        writeInts(writer, count, this::senderAge);
+        writeInts(writer, count, this::beneficiaryId);
+        writeInts(writer, count, this::beneficiaryAge);
+        writeInts(writer, count, this::firstRow);
+    }
+
+    @Override
+    public void writeRows(TransactionColumns.ColumnWriter writer, int count) throws IOException {
+        writeInts(writer, count, this::transaction);
+        writeInts(writer, count, this::issueId);
+        writeInts(writer, count, this::issueMessageId);
+    }
+
+    /**
+     * Writes one int column through a scratch array, which concatenates to the layout of a single array write.
+     */
+    private static void writeInts(TransactionColumns.ColumnWriter writer, int count, IntUnaryOperator column) throws IOException {
+        int[] values = new int[Math.min(count, SCRATCH_SIZE)];
+        for (int from = 0; from < count; from += values.length) {
+            int length = Math.min(values.length, count - from);
+            for (int i = 0; i < length; i++) {
+                values[i] = column.applyAsInt(from + i);
+            }
+            writer.writeInts(values, length);
+        }
+    }
+
+    private ByteBuffer transactionSegment(int transaction) {
+        return transactions[transaction >>> SEGMENT_SHIFT];
+    }
+
+    private static int transactionOffset(int transaction) {
+        return (transaction & SEGMENT_MASK) << TRANSACTION_SHIFT;
+    }
+
+    private ByteBuffer rowSegment(int row) {
+        return rows[row >>> SEGMENT_SHIFT];
+    }
+
+    private static int rowOffset(int row) {
+        return (row & SEGMENT_MASK) << ROW_SHIFT;
+    }
+
+    private static ByteBuffer segment(int recordShift) {
+        return ByteBuffer.allocateDirect(SEGMENT_ENTRIES << recordShift).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer[] append(ByteBuffer[] segments, ByteBuffer segment) {
+        ByteBuffer[] grown = Arrays.copyOf(segments, segments.length + 1);
+        grown[segments.length] = segment;
+        return grown;
+    }
+}
@@ -0,0 +1,258 @@
+package com.smallworld.data;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of a single writer that hands out read only snapshots without copying it. Entries live in pages
+ * of {@value #PAGE_SIZE}; a snapshot shares the page table and every page, and the writer copies a page, and the
+ * page table, the first time it writes to them after a snapshot. A write costs one page copy at most per snapshot
+ * instead of a copy of the whole array, and the readers of a snapshot never see a later write. Entries never
+ * written read as zero, false or null.
+ *
+ * @param <P> page type
+ */
+abstract class PagedArray<P> {
+
+    static final int PAGE_BITS = 10;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private Object[] pages;
+    // pages the writer may update in place; null in a snapshot, which is never written.
+    private boolean[] owned;
+    private boolean ownsTable;
+
+    PagedArray() {
+        pages = new Object[0];
+        owned = new boolean[0];
+        ownsTable = true;
+    }
+
+    PagedArray(Object[] pages) {
+        this.pages = pages;
+    }
+
+    abstract P newPage();
+
+    abstract P copyOf(P page);
+
+    static int offset(int index) {
+        return index & (PAGE_SIZE - 1);
+    }
+
+    /**
+     * Returns the page holding the entry, or null if none of its entries was ever written.
+     */
+    @SuppressWarnings("unchecked")
+    final P page(int index) {
+        int page = index >>> PAGE_BITS;
+        return page < pages.length ? (P) pages[page] : null;
+    }
+
+    /**
+     * Returns the page holding the entry, allocated or copied first unless only this array holds it.
+     */
+    @SuppressWarnings("unchecked")
+    final P writablePage(int index) {
+        if (owned == null) {
+            throw new IllegalStateException("snapshots are read only");
+        }
+        int page = index >>> PAGE_BITS;
+        if (page >= pages.length) {
+            int length = Math.max(page + 1, pages.length * 2);
+            pages = Arrays.copyOf(pages, length);
+            owned = Arrays.copyOf(owned, length);
+            ownsTable = true;
+        } else if (!ownsTable) {
+            pages = pages.clone();
+            ownsTable = true;
+        }
+        if (!owned[page]) {
+            pages[page] = pages[page] == null ? newPage() : copyOf((P) pages[page]);
+            owned[page] = true;
+        }
+        return (P) pages[page];
+    }
+
+    /**
+     * Hands the current pages over to a snapshot; the writer copies each of them before writing to it again.
+     */
+    final Object[] share() {
+        if (ownsTable) {
+            ownsTable = false;
+            Arrays.fill(owned, false);
+        }
+        return pages;
+    }
+
+    /**
+     * Paged int array.
+     */
+    static final class Ints extends PagedArray<int[]> {
+
+        Ints() {
+        }
+
+        private Ints(Object[] pages) {
+            super(pages);
+        }
+
+        int get(int index) {
+            int[] page = page(index);
+            return page == null ? 0 : page[offset(index)];
+        }
+
+        void add(int index, int delta) {
+            writablePage(index)[offset(index)] += delta;
+        }
+
+        Ints snapshot() {
+            return new Ints(share());
+        }
+
+        @Override
+        int[] newPage() {
+            return new int[PAGE_SIZE];
+        }
+
+        @Override
+        int[] copyOf(int[] page) {
+            return page.clone();
+        }
+    }
+
+    /**
+     * Paged double array.
+     */
+    static final class Doubles extends PagedArray<double[]> {
+
+        Doubles() {
+        }
+
+        private Doubles(Object[] pages) {
+            super(pages);
+        }
+
+        double get(int index) {
+            double[] page = page(index);
+            return page == null ? 0.0 : page[offset(index)];
+        }
+
+        void set(int index, double value) {
+            writablePage(index)[offset(index)] = value;
+        }
+
+        Doubles snapshot() {
+            return new Doubles(share());
+        }
+
+        @Override
+        double[] newPage() {
+            return new double[PAGE_SIZE];
+        }
+
+        @Override
+        double[] copyOf(double[] page) {
+            return page.clone();
+        }
+    }
+
+    /**
+     * Paged array of references.
+     */
+    static final class Refs<T> extends PagedArray<Object[]> {
+
+        Refs() {
+        }
+
+        private Refs(Object[] pages) {
+            super(pages);
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int index) {
+            Object[] page = page(index);
+            return page == null ? null : (T) page[offset(index)];
+        }
+
+        void set(int index, T value) {
+            writablePage(index)[offset(index)] = value;
+        }
+
+        Refs<T> snapshot() {
+            return new Refs<>(share());
+        }
+
+        @Override
+        Object[] newPage() {
+            return new Object[PAGE_SIZE];
+        }
+
+        @Override
+        Object[] copyOf(Object[] page) {
+            return page.clone();
+        }
+    }
+
+    /**
+     * Paged bit set, one page holding {@value #PAGE_SIZE} words of 64 bits.
+     */
+    static final class Bits extends PagedArray<long[]> {
+
+        Bits() {
+        }
+
+        private Bits(Object[] pages) {
+            super(pages);
+        }
+
+        boolean get(int bit) {
+            long[] page = page(bit >>> 6);
+            return page != null && (page[offset(bit >>> 6)] & (1L << bit)) != 0;
+        }
+
+        void set(int bit) {
+            writablePage(bit >>> 6)[offset(bit >>> 6)] |= 1L << bit;
+        }
+
+        void clear(int bit) {
+            writablePage(bit >>> 6)[offset(bit >>> 6)] &= ~(1L << bit);
+        }
+
+        /**
+         * Returns the first set bit from {@code from} on and below {@code to}, or -1; pages never written are
+         * skipped whole.
+         */
+        int nextSetBit(int from, int to) {
+            long bit = from;
+            while (bit < to) {
+                int word = (int) (bit >>> 6);
+                long[] page = page(word);
+                if (page == null) {
+                    bit = (long) ((word >>> PAGE_BITS) + 1) << (PAGE_BITS + 6);
+                    continue;
+                }
+                long bits = page[offset(word)] & (-1L << bit);
+                if (bits != 0) {
+                    long found = ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+                    return found < to ? (int) found : -1;
+                }
+                bit = (long) (word + 1) << 6;
+            }
+            return -1;
+        }
+
+        Bits snapshot() {
+            return new Bits(share());
+        }
+
+        @Override
+        long[] newPage() {
+            return new long[PAGE_SIZE];
+        }
+
+        @Override
+        long[] copyOf(long[] page) {
+            return page.clone();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.smallworld.data;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy hitter sketch over weighted keys: at most {@code capacity} counters, kept in a min-heap on their
+ * count. A new key takes over the smallest counter, inheriting its count as its error. Every count overestimates
+ * the key's true total by at most its error, and the error of any counter is at most total / capacity, so every key
+ * weighing more than that is kept. Memory is bounded by the capacity whatever the number of keys. Not thread safe.
+ */
+public final class SpaceSaving {
+
+    private static final Comparator<Counter> BY_COUNT_DESCENDING = Comparator.comparingDouble(Counter::count).reversed();
+
+    private final int capacity;
+    private final String[] keys;
+    private final double[] counts;
+    private final double[] errors;
+    // min-heap of counter slots by count, and the heap position of every slot.
+    private final int[] heap;
+    private final int[] positions;
+    private final Map<String, Integer> slots;
+    private int size;
+    private double total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.counts = new double[capacity];
+        this.errors = new double[capacity];
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.slots = new HashMap<>(capacity * 4 / 3 + 1);
+    }
+
+    /**
+     * Returns the smallest sketch whose counts overestimate by at most the given share of the total weight.
+     */
+    public static SpaceSaving withError(double relativeError) {
+        return new SpaceSaving((int) Math.ceil(1.0 / relativeError));
+    }
+
+    /**
+     * Restores a sketch from its counters, as serialized.
+     */
+    @JsonCreator
+    public static SpaceSaving of(@JsonProperty("capacity") int capacity, @JsonProperty("total") double total,
+                                 @JsonProperty("counters") List<Counter> counters) {
+        if (counters.size() > capacity) {
+            throw new IllegalArgumentException(counters.size() + " counters exceed the capacity " + capacity);
+        }
+        SpaceSaving sketch = new SpaceSaving(capacity);
+        for (Counter counter : counters) {
+            sketch.insert(counter.key(), counter.count(), counter.error());
+        }
+        sketch.total = total;
+        return sketch;
+    }
+
+    /**
+     * Merges sketches of disjoint streams. A key missing from a full sketch may still have weighed up to that
+     * sketch's smallest count there, so it is charged that much, as count and as error; the largest counters are
+     * kept.
+     */
+    public static SpaceSaving merge(Collection<SpaceSaving> sketches, int capacity) {
+        Map<String, double[]> merged = new LinkedHashMap<>();
+        double floors = 0.0;
+        double total = 0.0;
+        for (SpaceSaving sketch : sketches) {
+            double floor = sketch.floor();
+            floors += floor;
+            total += sketch.total;
+            for (int slot = 0; slot < sketch.size; slot++) {
+                double[] counter = merged.computeIfAbsent(sketch.keys[slot], key -> new double[3]);
+                counter[0] += sketch.counts[slot];
+                counter[1] += sketch.errors[slot];
+                // floors of the sketches the key is in, which aren't charged.
+                counter[2] += floor;
+            }
+        }
+        List<Counter> counters = new ArrayList<>(merged.size());
+        for (Map.Entry<String, double[]> entry : merged.entrySet()) {
+            double[] counter = entry.getValue();
+            double charged = floors - counter[2];
+            counters.add(new Counter(entry.getKey(), counter[0] + charged, counter[1] + charged));
+        }
+        counters.sort(BY_COUNT_DESCENDING);
+        return of(capacity, total, counters.subList(0, Math.min(capacity, counters.size())));
+    }
+
+    public void add(String key, double weight) {
+        if (!(weight >= 0.0)) {
+            throw new IllegalArgumentException("weight must not be negative: " + weight);
+        }
+        total += weight;
+        Integer slot = slots.get(key);
+        if (slot != null) {
+            counts[slot] += weight;
+            siftDown(positions[slot]);
+        } else if (size < capacity) {
+            insert(key, weight, 0.0);
+        } else {
+            int smallest = heap[0];
+            slots.remove(keys[smallest]);
+            keys[smallest] = key;
+            errors[smallest] = counts[smallest];
+            counts[smallest] += weight;
+            slots.put(key, smallest);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns the k largest counters, largest first.
+     */
+    public List<Counter> top(int k) {
+        List<Counter> counters = getCounters();
+        return counters.subList(0, Math.min(k, counters.size()));
+    }
+
+    /**
+     * Returns the largest overestimate of any count: the smallest count once every counter is taken, 0 before.
+     */
+    public double floor() {
+        return size < capacity ? 0.0 : counts[heap[0]];
+    }
+
+    public int sizeInBytes() {
+        int bytes = capacity * (Double.BYTES * 2 + Integer.BYTES * 2 + 2 * Long.BYTES);
+        for (int slot = 0; slot < size; slot++) {
+            bytes += 40 + keys[slot].length() * Character.BYTES;
+        }
+        return bytes;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns every counter, largest first.
+     */
+    public List<Counter> getCounters() {
+        List<Counter> counters = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            counters.add(new Counter(keys[slot], counts[slot], errors[slot]));
+        }
+        counters.sort(BY_COUNT_DESCENDING);
+        return counters;
+    }
+
+    public SpaceSaving copy() {
+        return of(capacity, total, getCounters());
+    }
+
+    private void insert(String key, double count, double error) {
+        int slot = size++;
+        keys[slot] = key;
+        counts[slot] = count;
+        errors[slot] = error;
+        heap[slot] = slot;
+        positions[slot] = slot;
+        slots.put(key, slot);
+        siftUp(slot);
+    }
+
+    private void siftUp(int position) {
+        int slot = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[slot]) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(slot, position);
+    }
+
+    private void siftDown(int position) {
+        int slot = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (counts[slot] <= counts[heap[child]]) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(slot, position);
+    }
+
+    private void place(int slot, int position) {
+        heap[position] = slot;
+        positions[slot] = position;
+    }
+
+    /**
+     * A key's estimated total, at most {@code error} above the true one.
+     */
+    public record Counter(String key, double count, double error) {
+    }
+}
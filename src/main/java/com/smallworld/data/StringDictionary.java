@@ -0,0 +1,156 @@
+package com.smallworld.data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Maps repeated strings to dense int identifiers so columns can store an int per row instead of a reference.
+ * The index is an open addressing table of ids, so an entry costs two ints instead of a map node and a boxed id.
+ * A single writer encodes, any number of readers can look up and decode concurrently.
+ */
+public final class StringDictionary {
+
+    public static final int NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // id + 1 per slot, 0 marks a free one; slots are published with release semantics after the value is stored.
+    private volatile int[] slots = new int[INITIAL_CAPACITY * 2];
+    private volatile String[] values;
+    // set when the values are kept outside the heap, values is null then.
+    private final OffHeapStrings offHeapValues;
+    private volatile int size;
+
+    public StringDictionary() {
+        this(null);
+    }
+
+    private StringDictionary(OffHeapStrings offHeapValues) {
+        this.offHeapValues = offHeapValues;
+        this.values = offHeapValues == null ? new String[INITIAL_CAPACITY] : null;
+    }
+
+    /**
+     * Returns an empty dictionary keeping its values outside the heap. Looking a value up allocates nothing,
+     * decoding one creates a new string on every call.
+     */
+    public static StringDictionary offHeap() {
+        return new StringDictionary(new OffHeapStrings());
+    }
+
+    /**
+     * Returns the identifier of the value, assigning the next free one when the value is new.
+     */
+    public int encode(String value) {
+        int id = lookup(Objects.requireNonNull(value, "value"));
+        if (id == NOT_FOUND) {
+            id = size;
+            if ((id + 1) * 2 > slots.length) {
+                slots = rehash(slots.length * 2, id);
+            }
+            // the value is stored before the id is published, so whoever finds the id can decode it.
+            if (offHeapValues != null) {
+                offHeapValues.add(id, value);
+            } else {
+                if (id == values.length) {
+                    values = Arrays.copyOf(values, id * 2);
+                }
+                values[id] = value;
+            }
+            size = id + 1;
+            SLOTS.setRelease(slots, freeSlot(slots, value.hashCode()), id + 1);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the identifier of the value or {@link #NOT_FOUND} when it was never encoded.
+     */
+    public int lookup(String value) {
+        if (value == null) {
+            return NOT_FOUND;
+        }
+        int[] table = slots;
+        int mask = table.length - 1;
+        for (int slot = spread(value.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int entry = (int) SLOTS.getAcquire(table, slot);
+            if (entry == 0) {
+                return NOT_FOUND;
+            }
+            if (offHeapValues != null ? offHeapValues.contentEquals(entry - 1, value) : values[entry - 1].equals(value)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the identifier of the characters in {@code chars[offset, offset + length)} or {@link #NOT_FOUND},
+     * without creating a string, so a parser can resolve repeated values straight from its buffer.
+     */
+    public int lookup(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int[] table = slots;
+        int mask = table.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = (int) SLOTS.getAcquire(table, slot);
+            if (entry == 0) {
+                return NOT_FOUND;
+            }
+            if (offHeapValues != null ? offHeapValues.contentEquals(entry - 1, chars, offset, length)
+                    : values[entry - 1].hashCode() == hash && contentEquals(values[entry - 1], chars, offset, length)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    public String decode(int id) {
+        return offHeapValues != null ? offHeapValues.get(id) : values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a table of the given capacity holding the first {@code count} ids.
+     */
+    private int[] rehash(int capacity, int count) {
+        int[] table = new int[capacity];
+        for (int id = 0; id < count; id++) {
+            table[freeSlot(table, offHeapValues != null ? offHeapValues.hash(id) : values[id].hashCode())] = id + 1;
+        }
+        return table;
+    }
+
+    private static int freeSlot(int[] table, int hash) {
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int spread(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    private static boolean contentEquals(String value, char[] chars, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,136 @@
+package com.smallworld.data;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Bounded selection of the k indexes with the highest values: a min-heap of at most k entries whose root is the
+ * weakest one kept, so n candidates cost O(n log k) time and O(k) memory. Higher value ranks first, ties by the
+ * lower index.
+ */
+final class TopK {
+
+    private static final int PARALLEL_CHUNK_SIZE = 1 << 16;
+
+    private final int[] indexes;
+    private final double[] values;
+    private int size;
+
+    private TopK(int k) {
+        this.indexes = new int[k];
+        this.values = new double[k];
+    }
+
+    /**
+     * Selects among the indexes in [from, to) accepted by the filter.
+     *
+     * @return the selected indexes, best first
+     */
+    static int[] select(int from, int to, int k, IntPredicate filter, IntToDoubleFunction value) {
+        return scan(from, to, k, filter, value).sorted();
+    }
+
+    /**
+     * Same as {@link #select} but scans chunks of the range on the common fork join pool and merges the partial
+     * heaps; ranges below a chunk are scanned on the calling thread.
+     *
+     * @return the selected indexes, best first
+     */
+    static int[] selectParallel(int from, int to, int k, IntPredicate filter, IntToDoubleFunction value) {
+        int chunks = (to - from + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+        if (chunks <= 1) {
+            return select(from, to, k, filter, value);
+        }
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> scan(from + chunk * PARALLEL_CHUNK_SIZE,
+                        Math.min(to, from + (chunk + 1) * PARALLEL_CHUNK_SIZE), k, filter, value))
+                .reduce(TopK::merge)
+                .orElseGet(() -> new TopK(k))
+                .sorted();
+    }
+
+    private static TopK scan(int from, int to, int k, IntPredicate filter, IntToDoubleFunction value) {
+        TopK top = new TopK(k);
+        for (int index = from; index < to; index++) {
+            if (filter.test(index)) {
+                top.offer(index, value.applyAsDouble(index));
+            }
+        }
+        return top;
+    }
+
+    private TopK merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.indexes[i], other.values[i]);
+        }
+        return this;
+    }
+
+    private void offer(int index, double value) {
+        if (size < indexes.length) {
+            indexes[size] = index;
+            values[size] = value;
+            siftUp(size++);
+        } else if (size > 0 && ranksBefore(index, value, 0)) {
+            indexes[0] = index;
+            values[0] = value;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Drains the heap; the weakest entry is moved to the end each time, leaving the best first.
+     */
+    private int[] sorted() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        return Arrays.copyOf(indexes, size);
+    }
+
+    private boolean ranksBefore(int index, double value, int position) {
+        return value > values[position] || value == values[position] && index < indexes[position];
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!ranksBefore(indexes[parent], values[parent], position)) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position, int end) {
+        while (true) {
+            int weakest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < end && ranksBefore(indexes[weakest], values[weakest], left)) {
+                weakest = left;
+            }
+            if (right < end && ranksBefore(indexes[weakest], values[weakest], right)) {
+                weakest = right;
+            }
+            if (weakest == position) {
+                return;
+            }
+            swap(position, weakest);
+            position = weakest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int index = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = index;
+        double value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+}
@@ -1,21 +1,25 @@
 package com.smallworld.data;
 
-
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
 @Getter
 @Builder
+@EqualsAndHashCode
 @AllArgsConstructor
 @NoArgsConstructor
 public class Transaction {
 
     private Integer mtn;
     private Double amount;
+    @JsonDeserialize(using = ClientNameDeserializer.class)
     private String senderFullName;
     private Integer senderAge;
+    @JsonDeserialize(using = ClientNameDeserializer.class)
     private String beneficiaryFullName;
     private Integer beneficiaryAge;
     private Integer issueId;
@@ -0,0 +1,21 @@
+package com.smallworld.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Aggregates of the unique transactions matching a {@link TransactionFilter}.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionAggregate {
+
+    private final long transactionCount;
+    private final double totalAmount;
+    // 0.0 when no transaction matches, like the unfiltered maximum of an empty dataset.
+    private final double maxAmount;
+    // highest total first
+    private final Map<String, Double> topSenders;
+}
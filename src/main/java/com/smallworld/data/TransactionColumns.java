@@ -0,0 +1,529 @@
+package com.smallworld.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column oriented, primitive storage of the transaction rows, normalized into two tables: one entry per unique
+ * transaction (mtn, amount, clients) and one row per issue pointing at its transaction. A transaction without
+ * issue has a single row without issue, so a row index still addresses the denormalized row it was loaded from.
+ * Client names and issue messages are dictionary encoded.
+ * An instance is a view of the first {@link #size()} rows of a {@link Builder}; neither rows appended later nor
+ * issues solved later are part of it. Tables and dictionaries live on the heap or outside of it, see {@link Storage}.
+ */
+public final class TransactionColumns {
+
+    public static final int MISSING = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final byte ISSUE_PRESENT = 1;
+    private static final byte ISSUE_SOLVED = 1 << 1;
+    private static final int SCRATCH_SIZE = 1 << 12;
+
+    private final int transactionCount;
+    private final int size;
+    private final TransactionTables tables;
+    // rows whose issue was solved after they were part of a view, which must not see it.
+    private final PagedArray.Bits solvedAfterView;
+    private final StringDictionary names;
+    private final StringDictionary messages;
+
+    /**
+     * Where a builder keeps its tables and dictionaries.
+     */
+    public enum Storage {
+        /**
+         * Primitive arrays, one per column; the fastest to scan.
+         */
+        HEAP,
+        /**
+         * Fixed width records and string values in direct memory, so the collector neither traces nor copies them
+         * at tens of millions of rows. Reads go through a buffer and decoded names are new strings.
+         */
+        OFF_HEAP
+    }
+
+    private TransactionColumns(Builder builder) {
+        this.transactionCount = builder.transactionCount;
+        this.size = builder.size;
+        this.tables = builder.tables;
+        this.solvedAfterView = builder.solvedAfterView.snapshot();
+        this.names = builder.names;
+        this.messages = builder.messages;
+    }
+
+    /**
+     * Encodes the given rows into columns.
+     *
+     * @param transactions denormalized transaction rows
+     * @return columns
+     */
+    public static TransactionColumns of(List<Transaction> transactions) {
+        Builder builder = new Builder();
+        transactions.forEach(builder::append);
+        return builder.view();
+    }
+
+    /**
+     * Returns the number of rows, i.e. of issues plus transactions without issue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of unique transactions.
+     */
+    public int transactionCount() {
+        return transactionCount;
+    }
+
+    public int transactionOf(int row) {
+        return tables.transaction(row);
+    }
+
+    public int mtn(int row) {
+        return tables.mtn(tables.transaction(row));
+    }
+
+    public double amount(int row) {
+        return tables.amount(tables.transaction(row));
+    }
+
+    public int senderId(int row) {
+        return tables.senderId(tables.transaction(row));
+    }
+
+    public int beneficiaryId(int row) {
+        return tables.beneficiaryId(tables.transaction(row));
+    }
+
+    public boolean hasIssue(int row) {
+        return (tables.flags(row) & ISSUE_PRESENT) != 0;
+    }
+
+    public int issueId(int row) {
+        return tables.issueId(row);
+    }
+
+    public boolean isIssueSolved(int row) {
+        return (tables.flags(row) & ISSUE_SOLVED) != 0 || solvedAfterView.get(row);
+    }
+
+    /**
+     * Returns whether the row is the first one of its transaction.
+     */
+    public boolean isFirstRowOfTransaction(int row) {
+        return tables.firstRow(tables.transaction(row)) == row;
+    }
+
+    public String issueMessage(int row) {
+        int messageId = tables.issueMessageId(row);
+        return messageId == MISSING ? null : messages.decode(messageId);
+    }
+
+    public int transactionMtn(int transaction) {
+        return tables.mtn(transaction);
+    }
+
+    public double transactionAmount(int transaction) {
+        return tables.amount(transaction);
+    }
+
+    public int transactionSenderId(int transaction) {
+        return tables.senderId(transaction);
+    }
+
+    public int transactionBeneficiaryId(int transaction) {
+        return tables.beneficiaryId(transaction);
+    }
+
+    /**
+     * Returns the sender age of the transaction or {@link #MISSING} when unknown.
+     */
+    public int transactionSenderAge(int transaction) {
+        return tables.senderAge(transaction);
+    }
+
+    /**
+     * Returns the beneficiary age of the transaction or {@link #MISSING} when unknown.
+     */
+    public int transactionBeneficiaryAge(int transaction) {
+        return tables.beneficiaryAge(transaction);
+    }
+
+    /**
+     * Returns the row the transaction was first loaded with.
+     */
+    public int firstRowOf(int transaction) {
+        return tables.firstRow(transaction);
+    }
+
+    /**
+     * Dictionary of every sender and beneficiary name; its size is the number of unique clients.
+     */
+    public StringDictionary names() {
+        return names;
+    }
+
+    /**
+     * Materializes a row back into a {@link Transaction}.
+     */
+    public Transaction toTransaction(int row) {
+        int of = tables.transaction(row);
+        int senderAge = tables.senderAge(of);
+        int beneficiaryAge = tables.beneficiaryAge(of);
+        return Transaction.builder()
+                .mtn(tables.mtn(of))
+                .amount(tables.amount(of))
+                .senderFullName(names.decode(tables.senderId(of)))
+                .senderAge(senderAge == MISSING ? null : senderAge)
+                .beneficiaryFullName(names.decode(tables.beneficiaryId(of)))
+                .beneficiaryAge(beneficiaryAge == MISSING ? null : beneficiaryAge)
+                .issueId(hasIssue(row) ? tables.issueId(row) : null)
+                .issueSolved(isIssueSolved(row))
+                .issueMessage(issueMessage(row))
+                .build();
+    }
+
+    /**
+     * Writes both dictionaries, the transaction table and the issue table, column after column; the layout read
+     * back by {@link #read(ColumnReader)}. The flags are written as this view sees them.
+     */
+    void write(ColumnWriter writer) throws IOException {
+        writer.writeStrings(names);
+        writer.writeStrings(messages);
+        writer.writeInt(transactionCount);
+        tables.writeTransactions(writer, transactionCount);
+        writer.writeInt(size);
+        tables.writeRows(writer, size);
+        byte[] flags = new byte[Math.min(size, SCRATCH_SIZE)];
+        for (int from = 0; from < size; from += flags.length) {
+            int length = Math.min(flags.length, size - from);
+            for (int i = 0; i < length; i++) {
+                flags[i] = (byte) (tables.flags(from + i) | (solvedAfterView.get(from + i) ? ISSUE_SOLVED : 0));
+            }
+            writer.writeBytes(flags, length);
+        }
+    }
+
+    /**
+     * Restores the tables written by {@link #write(ColumnWriter)} into a builder that further rows can be appended
+     * to. Off heap tables are filled from the restored arrays, which are dropped afterwards.
+     */
+    static Builder read(ColumnReader reader, Storage storage) throws IOException {
+        StringDictionary names = reader.readStrings();
+        StringDictionary messages = reader.readStrings();
+        int transactionCount = reader.readInt();
+        int transactionCapacity = Math.max(transactionCount, INITIAL_CAPACITY);
+        int[] mtn = reader.readInts(transactionCount, transactionCapacity);
+        double[] amount = reader.readDoubles(transactionCount, transactionCapacity);
+        int[] senderId = reader.readInts(transactionCount, transactionCapacity);
+        int[] senderAge = reader.readInts(transactionCount, transactionCapacity);
+        int[] beneficiaryId = reader.readInts(transactionCount, transactionCapacity);
+        int[] beneficiaryAge = reader.readInts(transactionCount, transactionCapacity);
+        int[] firstRow = reader.readInts(transactionCount, transactionCapacity);
+        int size = reader.readInt();
+        int capacity = Math.max(size, INITIAL_CAPACITY);
+        TransactionTables tables = new HeapTransactionTables(mtn, amount, senderId, senderAge, beneficiaryId,
+                beneficiaryAge, firstRow, reader.readInts(size, capacity), reader.readInts(size, capacity),
+                reader.readInts(size, capacity), reader.readBytes(size, capacity));
+        if (storage == Storage.OFF_HEAP) {
+            tables = OffHeapTransactionTables.copyOf(tables, transactionCount, size);
+            names = offHeapCopyOf(names);
+            messages = offHeapCopyOf(messages);
+        }
+        Builder builder = new Builder(tables, names, messages);
+        builder.transactionCount = transactionCount;
+        builder.size = size;
+        builder.index();
+        return builder;
+    }
+
+    private static StringDictionary offHeapCopyOf(StringDictionary dictionary) {
+        StringDictionary copy = StringDictionary.offHeap();
+        for (int id = 0; id < dictionary.size(); id++) {
+            copy.encode(dictionary.decode(id));
+        }
+        return copy;
+    }
+
+    /**
+     * Sink of the primitive columns of a binary snapshot.
+     */
+    interface ColumnWriter {
+
+        void writeInt(int value) throws IOException;
+
+        void writeInts(int[] values, int count) throws IOException;
+
+        void writeDoubles(double[] values, int count) throws IOException;
+
+        void writeBytes(byte[] values, int count) throws IOException;
+
+        void writeStrings(StringDictionary dictionary) throws IOException;
+    }
+
+    /**
+     * Source of the primitive columns of a binary snapshot; arrays are returned with the given capacity.
+     */
+    interface ColumnReader {
+
+        int readInt() throws IOException;
+
+        int[] readInts(int count, int capacity) throws IOException;
+
+        double[] readDoubles(int count, int capacity) throws IOException;
+
+        byte[] readBytes(int count, int capacity) throws IOException;
+
+        StringDictionary readStrings() throws IOException;
+    }
+
+    /**
+     * Appends rows into growing tables, adding a transaction entry only for an mtn not seen before.
+     * Not thread safe: a single writer appends, readers only ever see the immutable-size views it hands out.
+     */
+    public static final class Builder {
+
+        private int transactionCount;
+        private int size;
+        private TransactionTables tables;
+        // rows up to viewSize are part of a view, so their flags are no longer changed in place.
+        private int viewSize;
+        private final PagedArray.Bits solvedAfterView = new PagedArray.Bits();
+
+        private final IntIntHashMap transactionByMtn = new IntIntHashMap();
+        private final IntIntHashMap rowByIssueId = new IntIntHashMap();
+        private final StringDictionary names;
+        private final StringDictionary messages;
+
+        public Builder() {
+            this(Storage.HEAP);
+        }
+
+        public Builder(Storage storage) {
+            this(storage == Storage.OFF_HEAP ? new OffHeapTransactionTables()
+                            : new HeapTransactionTables(INITIAL_CAPACITY, INITIAL_CAPACITY),
+                    dictionary(storage), dictionary(storage));
+        }
+
+        private Builder(TransactionTables tables, StringDictionary names, StringDictionary messages) {
+            this.tables = tables;
+            this.names = names;
+            this.messages = messages;
+        }
+
+        /**
+         * Appends the row and returns its index.
+         */
+        public int append(Transaction row) {
+            int of = transactionByMtn.get(row.getMtn());
+            if (of == IntIntHashMap.MISSING) {
+                of = appendTransaction(row.getMtn(), row.getAmount(), names.encode(row.getSenderFullName()),
+                        row.getSenderAge() == null ? MISSING : row.getSenderAge(),
+                        names.encode(row.getBeneficiaryFullName()),
+                        row.getBeneficiaryAge() == null ? MISSING : row.getBeneficiaryAge());
+            }
+            byte rowFlags = 0;
+            if (row.getIssueId() != null) {
+                rowFlags |= ISSUE_PRESENT;
+            }
+            if (Boolean.TRUE.equals(row.getIssueSolved())) {
+                rowFlags |= ISSUE_SOLVED;
+            }
+            return appendRow(of, row.getIssueId() == null ? MISSING : row.getIssueId(),
+                    row.getIssueMessage() == null ? MISSING : messages.encode(row.getIssueMessage()), rowFlags);
+        }
+
+        /**
+         * Appends the rows of another builder in their order, reconciled the way the statistics reconcile rows added
+         * one by one: a row of an already known issue can only solve it, and a row without issue of an already known
+         * transaction is dropped. Rows of one mtn are expected to carry the same transaction attributes, as they share
+         * one transaction entry. Names and messages are re-encoded once per distinct value, when first used by a kept
+         * row.
+         */
+        public void merge(Builder shard) {
+            int[] nameIds = missing(shard.names.size());
+            int[] messageIds = missing(shard.messages.size());
+            TransactionTables from = shard.tables;
+            for (int row = 0; row < shard.size; row++) {
+                int of = from.transaction(row);
+                byte rowFlags = from.flags(row);
+                int known = transactionByMtn.get(from.mtn(of));
+                if ((rowFlags & ISSUE_PRESENT) != 0) {
+                    int issueRow = rowByIssueId.get(from.issueId(row));
+                    if (issueRow != IntIntHashMap.MISSING) {
+                        if ((rowFlags & ISSUE_SOLVED) != 0) {
+                            markIssueSolved(issueRow);
+                        }
+                        continue;
+                    }
+                } else if (known != IntIntHashMap.MISSING) {
+                    continue;
+                }
+                if (known == IntIntHashMap.MISSING) {
+                    int sender = reencode(shard.names, names, nameIds, from.senderId(of));
+                    int beneficiary = reencode(shard.names, names, nameIds, from.beneficiaryId(of));
+                    known = appendTransaction(from.mtn(of), from.amount(of), sender, from.senderAge(of), beneficiary,
+                            from.beneficiaryAge(of));
+                }
+                int messageId = from.issueMessageId(row);
+                int message = messageId == MISSING ? MISSING : reencode(shard.messages, messages, messageIds, messageId);
+                appendRow(known, from.issueId(row), message, rowFlags);
+            }
+        }
+
+        /**
+         * Returns whether a row of the transaction was already appended.
+         */
+        public boolean containsTransaction(int transactionMtn) {
+            return transactionByMtn.get(transactionMtn) != IntIntHashMap.MISSING;
+        }
+
+        /**
+         * Returns the row carrying the issue or {@link #MISSING}.
+         */
+        public int rowOfIssue(int issue) {
+            return rowByIssueId.get(issue);
+        }
+
+        /**
+         * Flags the issue of the row as solved; views handed out before don't see it.
+         */
+        public void markIssueSolved(int row) {
+            if (row < viewSize) {
+                solvedAfterView.set(row);
+            } else {
+                tables.addFlags(row, ISSUE_SOLVED);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int transactionCount() {
+            return transactionCount;
+        }
+
+        int transactionOf(int row) {
+            return tables.transaction(row);
+        }
+
+        int senderId(int row) {
+            return tables.senderId(tables.transaction(row));
+        }
+
+        int beneficiaryId(int row) {
+            return tables.beneficiaryId(tables.transaction(row));
+        }
+
+        boolean hasIssue(int row) {
+            return (tables.flags(row) & ISSUE_PRESENT) != 0;
+        }
+
+        int issueId(int row) {
+            return tables.issueId(row);
+        }
+
+        boolean isIssueSolved(int row) {
+            return (tables.flags(row) & ISSUE_SOLVED) != 0 || solvedAfterView.get(row);
+        }
+
+        String issueMessage(int row) {
+            int messageId = tables.issueMessageId(row);
+            return messageId == MISSING ? null : messages.decode(messageId);
+        }
+
+        int transactionMtn(int transaction) {
+            return tables.mtn(transaction);
+        }
+
+        double transactionAmount(int transaction) {
+            return tables.amount(transaction);
+        }
+
+        int transactionSenderId(int transaction) {
+            return tables.senderId(transaction);
+        }
+
+        int firstRowOf(int transaction) {
+            return tables.firstRow(transaction);
+        }
+
+        StringDictionary names() {
+            return names;
+        }
+
+        /**
+         * Returns a view of the rows appended so far.
+         */
+        public TransactionColumns view() {
+            viewSize = size;
+            return new TransactionColumns(this);
+        }
+
+        private int appendTransaction(int transactionMtn, double transactionAmount, int sender, int senderYears,
+                                      int beneficiary, int beneficiaryYears) {
+            if (transactionCount == tables.transactionCapacity()) {
+                tables = tables.growTransactions();
+            }
+            int appended = transactionCount;
+            tables.setTransaction(appended, transactionMtn, transactionAmount, sender, senderYears, beneficiary,
+                    beneficiaryYears);
+            tables.setFirstRow(appended, MISSING);
+            transactionByMtn.put(transactionMtn, appended);
+            transactionCount++;
+            return appended;
+        }
+
+        private int appendRow(int of, int issue, int messageId, byte rowFlags) {
+            if (size == tables.rowCapacity()) {
+                tables = tables.growRows();
+            }
+            int appended = size;
+            tables.setRow(appended, of, issue, messageId, rowFlags);
+            if ((rowFlags & ISSUE_PRESENT) != 0) {
+                rowByIssueId.put(issue, appended);
+            }
+            if (tables.firstRow(of) == MISSING) {
+                tables.setFirstRow(of, appended);
+            }
+            size++;
+            return appended;
+        }
+
+        private static StringDictionary dictionary(Storage storage) {
+            return storage == Storage.OFF_HEAP ? StringDictionary.offHeap() : new StringDictionary();
+        }
+
+        private static int[] missing(int size) {
+            int[] ids = new int[size];
+            Arrays.fill(ids, MISSING);
+            return ids;
+        }
+
+        private static int reencode(StringDictionary from, StringDictionary to, int[] ids, int id) {
+            if (ids[id] == MISSING) {
+                ids[id] = to.encode(from.decode(id));
+            }
+            return ids[id];
+        }
+
+        /**
+         * Rebuilds the mtn and issue indexes of restored tables.
+         */
+        private void index() {
+            for (int of = 0; of < transactionCount; of++) {
+                transactionByMtn.put(tables.mtn(of), of);
+            }
+            for (int row = 0; row < size; row++) {
+                if ((tables.flags(row) & ISSUE_PRESENT) != 0) {
+                    rowByIssueId.put(tables.issueId(row), row);
+                }
+            }
+        }
+    }
+}
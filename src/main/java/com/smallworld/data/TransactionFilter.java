@@ -0,0 +1,80 @@
+package com.smallworld.data;
+
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Conditions on unique transactions, all of which must hold. Bounds are inclusive and a null bound is open; a
+ * transaction with an unknown age never matches an age bound. Filters compose with {@link #and(TransactionFilter)}.
+ */
+@Getter
+@Builder
+@ToString
+@EqualsAndHashCode
+public class TransactionFilter {
+
+    /**
+     * Filter matching every transaction.
+     */
+    public static final TransactionFilter ALL = TransactionFilter.builder().build();
+
+    private final Double minAmount;
+    private final Double maxAmount;
+    private final Integer minSenderAge;
+    private final Integer maxSenderAge;
+    private final Integer minBeneficiaryAge;
+    private final Integer maxBeneficiaryAge;
+    private final IssueStatus issueStatus;
+
+    /**
+     * Compliance state of a transaction over all its issues.
+     */
+    public enum IssueStatus {
+        /**
+         * At least one issue is not solved.
+         */
+        OPEN,
+        /**
+         * Every issue is solved, or there is none.
+         */
+        CLEARED
+    }
+
+    /**
+     * Returns the filter matching the transactions both filters match.
+     *
+     * @throws IllegalArgumentException when both filters ask for different issue statuses
+     */
+    public TransactionFilter and(TransactionFilter other) {
+        if (issueStatus != null && other.issueStatus != null && issueStatus != other.issueStatus) {
+            throw new IllegalArgumentException("conflicting issue status: " + issueStatus + " and " + other.issueStatus);
+        }
+        return TransactionFilter.builder()
+                .minAmount(max(minAmount, other.minAmount))
+                .maxAmount(min(maxAmount, other.maxAmount))
+                .minSenderAge(max(minSenderAge, other.minSenderAge))
+                .maxSenderAge(min(maxSenderAge, other.maxSenderAge))
+                .minBeneficiaryAge(max(minBeneficiaryAge, other.minBeneficiaryAge))
+                .maxBeneficiaryAge(min(maxBeneficiaryAge, other.maxBeneficiaryAge))
+                .issueStatus(issueStatus != null ? issueStatus : other.issueStatus)
+                .build();
+    }
+
+    boolean hasSenderAgeBound() {
+        return minSenderAge != null || maxSenderAge != null;
+    }
+
+    boolean hasBeneficiaryAgeBound() {
+        return minBeneficiaryAge != null || maxBeneficiaryAge != null;
+    }
+
+    private static <T extends Comparable<T>> T max(T a, T b) {
+        return a == null ? b : b == null || a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private static <T extends Comparable<T>> T min(T a, T b) {
+        return a == null ? b : b == null || a.compareTo(b) <= 0 ? a : b;
+    }
+}
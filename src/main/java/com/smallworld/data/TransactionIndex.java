@@ -0,0 +1,207 @@
+package com.smallworld.data;
+
+/**
+ * Read only secondary indexes over the first {@link #size()} unique transactions: the transactions ordered by
+ * amount, so an amount range is a slice found by binary search, and one bitmap per ten year age band for senders
+ * and beneficiaries. Transaction attributes never change once appended, so an index only goes stale by not
+ * covering newer transactions.
+ */
+final class TransactionIndex {
+
+    static final int AGE_BAND_WIDTH = 10;
+    // the last band is open ended; transactions with an unknown age are in no band.
+    static final int AGE_BANDS = 13;
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private final int size;
+    private final int[] byAmount;
+    private final double[] sortedAmounts;
+    private final long[][] senderAgeBands;
+    private final long[][] beneficiaryAgeBands;
+
+    private TransactionIndex(int size, int[] byAmount, double[] sortedAmounts, long[][] senderAgeBands,
+                             long[][] beneficiaryAgeBands) {
+        this.size = size;
+        this.byAmount = byAmount;
+        this.sortedAmounts = sortedAmounts;
+        this.senderAgeBands = senderAgeBands;
+        this.beneficiaryAgeBands = beneficiaryAgeBands;
+    }
+
+    /**
+     * Indexes every transaction of the columns. The amount order is an LSD radix sort of the amounts' sortable bit
+     * patterns, O(n) and stable, so equal amounts keep their load order.
+     */
+    static TransactionIndex of(TransactionColumns columns) {
+        int size = columns.transactionCount();
+        long[] keys = new long[size];
+        int[] order = new int[size];
+        long[][] senderAgeBands = new long[AGE_BANDS][words(size)];
+        long[][] beneficiaryAgeBands = new long[AGE_BANDS][words(size)];
+        for (int transaction = 0; transaction < size; transaction++) {
+            keys[transaction] = sortableBits(columns.transactionAmount(transaction));
+            order[transaction] = transaction;
+            setBand(senderAgeBands, columns.transactionSenderAge(transaction), transaction);
+            setBand(beneficiaryAgeBands, columns.transactionBeneficiaryAge(transaction), transaction);
+        }
+        radixSort(keys, order);
+        double[] sortedAmounts = new double[size];
+        for (int i = 0; i < size; i++) {
+            sortedAmounts[i] = columns.transactionAmount(order[i]);
+        }
+        return new TransactionIndex(size, order, sortedAmounts, senderAgeBands, beneficiaryAgeBands);
+    }
+
+    /**
+     * Returns the number of transactions covered, the first ones in load order.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the transaction at the position of the amount order.
+     */
+    int transactionAt(int position) {
+        return byAmount[position];
+    }
+
+    /**
+     * Returns the first position of the amount order whose amount is at least {@code min}; 0 for null.
+     */
+    int lowerBound(Double min) {
+        if (min == null) {
+            return 0;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedAmounts[middle] < min) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the position after the last one of the amount order whose amount is at most {@code max}; the size
+     * for null.
+     */
+    int upperBound(Double max) {
+        if (max == null) {
+            return size;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedAmounts[middle] <= max) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns a bitmap of the transactions that may match the age bounds of the filter; a superset, as whole bands
+     * are taken, so candidates still need an exact check. Null when the filter has no age bound.
+     */
+    long[] ageCandidates(TransactionFilter filter) {
+        long[] candidates = null;
+        if (filter.hasSenderAgeBound()) {
+            candidates = union(senderAgeBands, filter.getMinSenderAge(), filter.getMaxSenderAge());
+        }
+        if (filter.hasBeneficiaryAgeBound()) {
+            long[] beneficiaries = union(beneficiaryAgeBands, filter.getMinBeneficiaryAge(), filter.getMaxBeneficiaryAge());
+            if (candidates == null) {
+                candidates = beneficiaries;
+            } else {
+                for (int word = 0; word < candidates.length; word++) {
+                    candidates[word] &= beneficiaries[word];
+                }
+            }
+        }
+        return candidates;
+    }
+
+    static int cardinality(long[] bitmap) {
+        int count = 0;
+        for (long word : bitmap) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private long[] union(long[][] bands, Integer min, Integer max) {
+        long[] union = new long[words(size)];
+        if (min != null && max != null && min > max) {
+            return union;
+        }
+        int from = min == null ? 0 : band(min);
+        int to = max == null ? AGE_BANDS - 1 : band(max);
+        for (int band = from; band <= to; band++) {
+            long[] members = bands[band];
+            for (int word = 0; word < union.length; word++) {
+                union[word] |= members[word];
+            }
+        }
+        return union;
+    }
+
+    private static void setBand(long[][] bands, int age, int transaction) {
+        if (age != TransactionColumns.MISSING) {
+            bands[band(age)][transaction >>> 6] |= 1L << transaction;
+        }
+    }
+
+    private static int band(int age) {
+        return Math.max(0, Math.min(age / AGE_BAND_WIDTH, AGE_BANDS - 1));
+    }
+
+    private static int words(int bits) {
+        return (bits + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Maps a double to a long whose unsigned order is the double's numeric order.
+     */
+    private static long sortableBits(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    /**
+     * Sorts the keys as unsigned longs one byte at a time, carrying the values along; bytes all keys share are
+     * skipped.
+     */
+    private static void radixSort(long[] keys, int[] values) {
+        long[] keyBuffer = new long[keys.length];
+        int[] valueBuffer = new int[values.length];
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            int[] counts = new int[RADIX + 1];
+            for (long key : keys) {
+                counts[((int) (key >>> shift) & (RADIX - 1)) + 1]++;
+            }
+            if (keys.length == 0 || counts[((int) (keys[0] >>> shift) & (RADIX - 1)) + 1] == keys.length) {
+                continue;
+            }
+            for (int digit = 0; digit < RADIX; digit++) {
+                counts[digit + 1] += counts[digit];
+            }
+            for (int i = 0; i < keys.length; i++) {
+                int position = counts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+                keyBuffer[position] = keys[i];
+                valueBuffer[position] = values[i];
+            }
+            System.arraycopy(keyBuffer, 0, keys, 0, keys.length);
+            System.arraycopy(valueBuffer, 0, values, 0, values.length);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.smallworld.data;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * One of {@code count} disjoint slices of the transactions, chosen by a hash of the mtn. Every row of a transaction
+ * lands in the same slice, so each node of a partitioned deployment holds whole transactions and their issues.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class TransactionPartition {
+
+    /**
+     * The single partition holding every transaction.
+     */
+    public static final TransactionPartition ALL = new TransactionPartition(0, 1);
+
+    private final int index;
+    private final int count;
+
+    /**
+     * @throws IllegalArgumentException unless 0 <= index < count
+     */
+    public TransactionPartition(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("partition " + index + " of " + count + " does not exist");
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Returns the partition of the mtn among {@code count}; the mtn is mixed first so that sequential mtns spread
+     * evenly.
+     */
+    public static int indexOf(Integer mtn, int count) {
+        int hash = mtn == null ? 0 : mtn;
+        // murmur3 finalizer
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, count);
+    }
+
+    public boolean isAll() {
+        return count == 1;
+    }
+
+    public boolean contains(Transaction transaction) {
+        return count == 1 || indexOf(transaction.getMtn(), count) == index;
+    }
+
+    /**
+     * Returns the rows of this partition among the given ones, lazily.
+     */
+    public <T extends Transaction> Iterator<T> filter(Iterator<T> transactions) {
+        if (isAll()) {
+            return transactions;
+        }
+        return new Iterator<>() {
+
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && transactions.hasNext()) {
+                    T candidate = transactions.next();
+                    if (contains(candidate)) {
+                        next = candidate;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T current = next;
+                next = null;
+                return current;
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.smallworld.data;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed size summaries of the transactions answering the client count and the top senders approximately: a
+ * {@link HyperLogLog} over the client names and a {@link SpaceSaving} over the sender totals. Their size depends on
+ * the configured errors only, not on the number of clients, and sketches of disjoint partitions merge, so a
+ * coordinator can answer from a few kilobytes per partition instead of every client name and sender total.
+ * Updated by the statistics' writer and read concurrently, hence synchronized.
+ */
+public final class TransactionSketches {
+
+    private final HyperLogLog clients;
+    private final SpaceSaving senders;
+
+    @JsonCreator
+    public TransactionSketches(@JsonProperty("clients") HyperLogLog clients, @JsonProperty("senders") SpaceSaving senders) {
+        this.clients = clients;
+        this.senders = senders;
+    }
+
+    /**
+     * Returns empty sketches within the given relative errors: the standard error of the client count, and the
+     * largest overestimate of a sender total as a share of the total amount.
+     */
+    public static TransactionSketches of(double clientError, double senderError) {
+        return new TransactionSketches(HyperLogLog.withError(clientError), SpaceSaving.withError(senderError));
+    }
+
+    /**
+     * Merges the sketches of disjoint partitions, keeping the largest sender capacity.
+     *
+     * @throws IllegalArgumentException when the client sketches have different precisions
+     */
+    public static TransactionSketches merge(List<TransactionSketches> partials) {
+        HyperLogLog clients = null;
+        List<SpaceSaving> senders = new ArrayList<>(partials.size());
+        int capacity = 1;
+        for (TransactionSketches partial : partials) {
+            HyperLogLog partialClients = partial.getClients();
+            if (clients == null) {
+                clients = partialClients;
+            } else {
+                clients.merge(partialClients);
+            }
+            SpaceSaving partialSenders = partial.getSenders();
+            senders.add(partialSenders);
+            capacity = Math.max(capacity, partialSenders.getCapacity());
+        }
+        return new TransactionSketches(clients, SpaceSaving.merge(senders, capacity));
+    }
+
+    public synchronized void add(String senderFullName, String beneficiaryFullName, double amount) {
+        clients.add(senderFullName);
+        clients.add(beneficiaryFullName);
+        senders.add(senderFullName, amount);
+    }
+
+    public synchronized long estimateClientCount() {
+        return clients.estimate();
+    }
+
+    /**
+     * Returns the k senders with the highest estimated totals mapped to that estimate, highest first. Every
+     * estimate is at most {@link #getSenderErrorBound()} above the sender's true total.
+     */
+    public synchronized Map<String, Double> estimateTopNSenders(int k) {
+        Map<String, Double> top = new LinkedHashMap<>();
+        for (SpaceSaving.Counter counter : senders.top(k)) {
+            top.put(counter.key(), counter.count());
+        }
+        return top;
+    }
+
+    @JsonIgnore
+    public synchronized double getSenderErrorBound() {
+        return senders.floor();
+    }
+
+    @JsonIgnore
+    public synchronized int getSizeInBytes() {
+        return clients.sizeInBytes() + senders.sizeInBytes();
+    }
+
+    public synchronized HyperLogLog getClients() {
+        return clients.copy();
+    }
+
+    public synchronized SpaceSaving getSenders() {
+        return senders.copy();
+    }
+}
@@ -0,0 +1,21 @@
+package com.smallworld.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A loaded generation of the transaction data. A reload never touches the published snapshot, it builds a new one
+ * with the next version and swaps it in.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionSnapshot {
+
+    private final long version;
+    private final Instant loadedAt;
+    private final Duration loadDuration;
+    private final TransactionStatistics statistics;
+}
@@ -0,0 +1,1152 @@
+package com.smallworld.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Everything the fetcher needs, maintained incrementally as rows are added and issues get solved: every write
+ * updates the aggregates in O(log n) at most and nothing is ever recomputed from scratch.
+ * Writers are serialized on this instance. Readers never lock; they see the state published by the last
+ * completed write.
+ */
+public final class TransactionStatistics {
+
+    /**
+     * Parallel threshold that keeps aggregation sequential whatever the row count.
+     */
+    public static final int SEQUENTIAL = Integer.MAX_VALUE;
+
+    private static final int TOP_TRANSACTIONS_SIZE = 3;
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+    private static final int INITIAL_CLIENT_CAPACITY = 256;
+    private static final int MIN_UNINDEXED_TRANSACTIONS = 1024;
+    private static final int MIN_UNINDEXED_ROWS = 1024;
+    // index candidates are only read when they are less than 1 in this many transactions.
+    private static final int INDEX_SCAN_CROSSOVER = 2;
+
+    private final TransactionColumns.Builder rows;
+
+    // writer side state, guarded by this.
+    private final double[] totalSum = new double[1];
+    private final double[] totalCompensation = new double[1];
+    private double maxAmount = Double.NEGATIVE_INFINITY;
+    private double[] senderSums = new double[INITIAL_CLIENT_CAPACITY];
+    private double[] senderCompensations = new double[INITIAL_CLIENT_CAPACITY];
+    private final int[] topIndexes = new int[TOP_TRANSACTIONS_SIZE];
+    private final double[] topAmounts = new double[TOP_TRANSACTIONS_SIZE];
+    private int topSize;
+    private long revision;
+
+    // client and transaction indexed arrays of the writer; readers get snapshots of them through the state.
+    private final PagedArray.Doubles totalAmountBySender = new PagedArray.Doubles();
+    private final PagedArray.Ints openIssueCountByClient = new PagedArray.Ints();
+    private final PagedArray.Refs<SentTransaction> lastSentByClient = new PagedArray.Refs<>();
+    private final PagedArray.Ints openIssueCountByTransaction = new PagedArray.Ints();
+    // row indexed: rows of an open issue, and rows of a solved issue with a message.
+    private final PagedArray.Bits unsolvedIssueRows = new PagedArray.Bits();
+    private final PagedArray.Bits solvedMessageRows = new PagedArray.Bits();
+
+    private final ConcurrentSkipListSet<SenderTotal> senderRanking = new ConcurrentSkipListSet<>(SenderTotal.ORDER);
+
+    private volatile State state;
+    // built by the first filtered query and rebuilt once too many transactions were added after it.
+    private volatile TransactionIndex index;
+    // built by the first screening and rebuilt once too many rows were added after it.
+    private volatile ClientIssueIndex clientIssueIndex;
+    // null unless enabled; then updated by the writer with every added transaction.
+    private volatile TransactionSketches sketches;
+
+    public TransactionStatistics() {
+        this(new TransactionColumns.Builder());
+    }
+
+    private TransactionStatistics(TransactionColumns.Builder rows) {
+        this.rows = rows;
+        publish();
+    }
+
+    /**
+     * Builds the statistics for the given rows in a single pass.
+     *
+     * @param transactions denormalized transaction rows
+     * @return statistics
+     */
+    public static TransactionStatistics of(Iterator<? extends Transaction> transactions) {
+        return of(transactions, SEQUENTIAL);
+    }
+
+    /**
+     * Builds the statistics for the given rows. Rows are encoded on the calling thread; from
+     * {@code parallelThreshold} rows on the aggregates are then computed per chunk on the fork join pool and the
+     * partial aggregates merged, below it in a single sequential pass.
+     *
+     * @param transactions      denormalized transaction rows
+     * @param parallelThreshold row count from which aggregation runs in parallel, {@link #SEQUENTIAL} to never
+     * @return statistics
+     */
+    public static TransactionStatistics of(Iterator<? extends Transaction> transactions, int parallelThreshold) {
+        return of(transactions, parallelThreshold, TransactionColumns.Storage.HEAP);
+    }
+
+    /**
+     * Same as {@link #of(Iterator, int)}, keeping the columns in the given storage.
+     *
+     * @param transactions      denormalized transaction rows
+     * @param parallelThreshold row count from which aggregation runs in parallel, {@link #SEQUENTIAL} to never
+     * @param storage           where the columns live
+     * @return statistics
+     */
+    public static TransactionStatistics of(Iterator<? extends Transaction> transactions, int parallelThreshold,
+                                           TransactionColumns.Storage storage) {
+        TransactionStatistics statistics = new TransactionStatistics(new TransactionColumns.Builder(storage));
+        synchronized (statistics) {
+            transactions.forEachRemaining(transaction -> statistics.apply(transaction, false));
+            statistics.aggregateAll(parallelThreshold);
+        }
+        return statistics;
+    }
+
+    /**
+     * Encodes the rows of one shard as they are, without reconciling repeated transactions or issues, which needs
+     * the shards before it; shards encoded on separate threads are combined by {@link #ofShards(List, int)}.
+     *
+     * @param transactions denormalized transaction rows of one shard
+     * @return the encoded rows
+     */
+    public static TransactionColumns.Builder encode(Iterator<? extends Transaction> transactions) {
+        TransactionColumns.Builder shard = new TransactionColumns.Builder();
+        transactions.forEachRemaining(shard::append);
+        return shard;
+    }
+
+    /**
+     * Builds the statistics over encoded shards, merged in the given order. The result is the one of loading the
+     * shards' rows one after the other: a transaction found in several shards is stored and counted once, and an
+     * issue is solved when any shard has it solved. Aggregation runs once over the merged rows, in parallel from
+     * {@code parallelThreshold} rows on.
+     *
+     * @param shards            shards from {@link #encode(Iterator)}
+     * @param parallelThreshold row count from which aggregation runs in parallel, {@link #SEQUENTIAL} to never
+     * @return statistics
+     */
+    public static TransactionStatistics ofShards(List<TransactionColumns.Builder> shards, int parallelThreshold) {
+        return ofShards(shards, parallelThreshold, TransactionColumns.Storage.HEAP);
+    }
+
+    /**
+     * Same as {@link #ofShards(List, int)}, merging into columns in the given storage; the shards themselves are
+     * encoded on the heap and dropped after the merge.
+     *
+     * @param shards            shards from {@link #encode(Iterator)}
+     * @param parallelThreshold row count from which aggregation runs in parallel, {@link #SEQUENTIAL} to never
+     * @param storage           where the merged columns live
+     * @return statistics
+     */
+    public static TransactionStatistics ofShards(List<TransactionColumns.Builder> shards, int parallelThreshold,
+                                                 TransactionColumns.Storage storage) {
+        TransactionColumns.Builder rows = new TransactionColumns.Builder(storage);
+        shards.forEach(rows::merge);
+        return of(rows, parallelThreshold);
+    }
+
+    /**
+     * Builds the statistics over already encoded rows, e.g. restored from a binary snapshot.
+     */
+    static TransactionStatistics of(TransactionColumns.Builder rows, int parallelThreshold) {
+        TransactionStatistics statistics = new TransactionStatistics(rows);
+        synchronized (statistics) {
+            statistics.aggregateAll(parallelThreshold);
+        }
+        return statistics;
+    }
+
+    /**
+     * Builds the statistics for the given rows in a single pass.
+     *
+     * @param transactions denormalized transaction rows
+     * @return statistics
+     */
+    public static TransactionStatistics of(List<Transaction> transactions) {
+        return of(transactions.iterator());
+    }
+
+    /**
+     * Builds the statistics for the given rows, in parallel from {@code parallelThreshold} rows on.
+     *
+     * @param transactions      denormalized transaction rows
+     * @param parallelThreshold row count from which aggregation runs in parallel, {@link #SEQUENTIAL} to never
+     * @return statistics
+     */
+    public static TransactionStatistics of(List<Transaction> transactions, int parallelThreshold) {
+        return of(transactions.iterator(), parallelThreshold);
+    }
+
+    /**
+     * Adds a row. A row whose issue is already known only updates that issue's status, and a row without issue
+     * for an already known transaction is ignored.
+     *
+     * @param transaction denormalized transaction row
+     * @return whether anything changed
+     */
+    public synchronized boolean add(Transaction transaction) {
+        boolean changed = apply(transaction, true);
+        if (changed) {
+            publish();
+        }
+        return changed;
+    }
+
+    /**
+     * Marks the issue as solved.
+     *
+     * @param issueId issue identifier
+     * @return whether the issue was known and open
+     */
+    public synchronized boolean markIssueSolved(int issueId) {
+        int row = rows.rowOfIssue(issueId);
+        boolean changed = row != TransactionColumns.MISSING && solve(row);
+        if (changed) {
+            publish();
+        }
+        return changed;
+    }
+
+    /**
+     * Builds sketches of the client names and sender totals from every transaction so far, in one pass, and keeps
+     * them up to date with the transactions added afterwards.
+     *
+     * @param clientError relative standard error of the estimated client count
+     * @param senderError largest overestimate of an estimated sender total, as a share of the total amount
+     * @return the sketches, also returned by {@link #getSketches()} from then on
+     */
+    public synchronized TransactionSketches enableSketches(double clientError, double senderError) {
+        TransactionSketches built = TransactionSketches.of(clientError, senderError);
+        for (int transaction = 0; transaction < rows.transactionCount(); transaction++) {
+            sketch(built, transaction);
+        }
+        sketches = built;
+        return built;
+    }
+
+    /**
+     * Returns the sketches of the transactions, or null unless {@link #enableSketches(double, double)} was called.
+     */
+    public TransactionSketches getSketches() {
+        return sketches;
+    }
+
+    /**
+     * Builds the secondary indexes of the filtered aggregation and of the screening now rather than on the first
+     * query needing them.
+     */
+    public void buildIndex() {
+        State current = state;
+        index(current.columns());
+        clientIssueIndex(current);
+    }
+
+    public TransactionColumns getColumns() {
+        return state.columns();
+    }
+
+    /**
+     * Returns the number of changes published before the current state; grows with every row added or issue
+     * solved, so together with the snapshot version it identifies what a reader sees.
+     */
+    public long getRevision() {
+        return state.revision();
+    }
+
+    public double getTotalAmount() {
+        return state.totalAmount();
+    }
+
+    public double getMaxAmount() {
+        return state.maxAmount();
+    }
+
+    public long getUniqueClientCount() {
+        return state.clientCount();
+    }
+
+    /**
+     * Returns the names of all clients, senders and beneficiaries, in first appearance order; O(clients).
+     */
+    public List<String> getClientNames() {
+        State current = state;
+        List<String> names = new ArrayList<>(current.clientCount());
+        for (int client = 0; client < current.clientCount(); client++) {
+            names.add(current.columns().names().decode(client));
+        }
+        return names;
+    }
+
+    public List<Transaction> getTopTransactionsByAmount() {
+        return state.topTransactions();
+    }
+
+    public String getTopSender() {
+        return state.topSender().orElse(null);
+    }
+
+    /**
+     * Same as {@link #getTopSender()}, wrapped once per published state so repeated calls allocate nothing.
+     */
+    public Optional<String> findTopSender() {
+        return state.topSender();
+    }
+
+    /**
+     * Returns the k unique transactions with the highest amounts, highest first; ties keep their load order.
+     * Up to the maintained top 3 this is a lookup, beyond it a bounded heap selection over the transaction table.
+     */
+    public List<Transaction> getTopNTransactionsByAmount(int k) {
+        return topTransactionsByAmount(k, false);
+    }
+
+    /**
+     * Same as {@link #getTopNTransactionsByAmount(int)}, selecting chunks of the transactions on several cores.
+     */
+    public List<Transaction> getTopNTransactionsByAmountParallel(int k) {
+        return topTransactionsByAmount(k, true);
+    }
+
+    /**
+     * Returns the k senders with the highest total sent amounts mapped to that total, highest first; ties by
+     * first appearance.
+     */
+    public Map<String, Double> getTopNSenders(int k) {
+        return topSenders(k, false);
+    }
+
+    /**
+     * Same as {@link #getTopNSenders(int)}, selecting chunks of the clients on several cores.
+     */
+    public Map<String, Double> getTopNSendersParallel(int k) {
+        return topSenders(k, true);
+    }
+
+    /**
+     * Returns the identifiers of all open issues in ascending order, read only. Collected once per published state
+     * by the first caller, in O(n / 64) plus one entry per open issue.
+     */
+    public Set<Integer> getUnsolvedIssueIds() {
+        return state.unsolvedIssueIds();
+    }
+
+    /**
+     * Returns the messages of all solved issues in row order, read only; collected once per published state like
+     * {@link #getUnsolvedIssueIds()}.
+     */
+    public List<String> getSolvedIssueMessages() {
+        return state.solvedIssueMessages();
+    }
+
+    /**
+     * Returns the sum of the amounts of all unique transactions sent by the specified client
+     */
+    public double getTotalAmountSentBy(String senderFullName) {
+        State current = state;
+        int sender = current.client(senderFullName);
+        return sender == StringDictionary.NOT_FOUND ? 0.0 : current.totalAmountBySender().get(sender);
+    }
+
+    /**
+     * Returns whether the client (sender or beneficiary) is part of a transaction with an unsolved issue
+     */
+    public boolean hasOpenIssues(String clientFullName) {
+        return getOpenIssueCount(clientFullName) > 0;
+    }
+
+    /**
+     * Returns the number of unsolved issues on transactions the client sent or received
+     */
+    public int getOpenIssueCount(String clientFullName) {
+        State current = state;
+        int client = current.client(clientFullName);
+        return client == StringDictionary.NOT_FOUND ? 0 : current.openIssueCountByClient().get(client);
+    }
+
+    /**
+     * Screens the clients one after the other for open issues and passes each result on as soon as it is known, so
+     * a caller can stream both the names in and the results out. The open rows of a client are read from the client
+     * issue index, plus the rows added since it was built, which are chained by client once for the whole call;
+     * every name costs one dictionary lookup and a walk over its own open rows. All clients are screened against
+     * the same state.
+     */
+    public void screen(Iterator<String> clientFullNames, Consumer<ClientScreening> results) {
+        State current = state;
+        TransactionColumns columns = current.columns();
+        ClientIssueIndex indexed = clientIssueIndex(current);
+        int size = columns.size();
+        // open rows added since the index was built, chained per client in load order: firstNewer maps a client to
+        // its first entry, and nextNewer links an entry to the client's next one.
+        int[] newerRows = new int[2 * (size - indexed.size())];
+        int[] nextNewer = new int[newerRows.length];
+        IntIntHashMap firstNewer = new IntIntHashMap();
+        int newerCount = 0;
+        for (int row = size - 1; row >= indexed.size(); row--) {
+            if (!columns.isIssueSolved(row)) {
+                int sender = columns.senderId(row);
+                int beneficiary = columns.beneficiaryId(row);
+                newerCount = prepend(firstNewer, newerRows, nextNewer, newerCount, sender, row);
+                if (beneficiary != sender) {
+                    newerCount = prepend(firstNewer, newerRows, nextNewer, newerCount, beneficiary, row);
+                }
+            }
+        }
+
+        int[] issueIds = new int[16];
+        while (clientFullNames.hasNext()) {
+            String clientFullName = clientFullNames.next();
+            int client = current.client(clientFullName);
+            int count = 0;
+            int idCount = 0;
+            if (client != StringDictionary.NOT_FOUND) {
+                int position = indexed.from(client);
+                int to = indexed.to(client);
+                int newer = firstNewer.get(client);
+                while (position < to || newer != IntIntHashMap.MISSING) {
+                    int row;
+                    if (position < to) {
+                        row = indexed.rowAt(position++);
+                    } else {
+                        row = newerRows[newer];
+                        newer = nextNewer[newer];
+                    }
+                    if (!columns.isIssueSolved(row)) {
+                        count++;
+                        if (columns.hasIssue(row)) {
+                            if (idCount == issueIds.length) {
+                                issueIds = Arrays.copyOf(issueIds, idCount * 2);
+                            }
+                            issueIds[idCount++] = columns.issueId(row);
+                        }
+                    }
+                }
+            }
+            results.accept(new ClientScreening(clientFullName, count > 0, count, Arrays.copyOf(issueIds, idCount)));
+        }
+    }
+
+    /**
+     * Puts the row in front of the client's chain and returns the new entry count.
+     */
+    private static int prepend(IntIntHashMap first, int[] rows, int[] next, int count, int client, int row) {
+        rows[count] = row;
+        next[count] = first.get(client);
+        first.put(client, count);
+        return count + 1;
+    }
+
+    /**
+     * Returns the mtns of the unique transactions sent by the client, in load order
+     */
+    public int[] getMtnsSentBy(String senderFullName) {
+        State current = state;
+        int sender = current.client(senderFullName);
+        if (sender == StringDictionary.NOT_FOUND) {
+            return new int[0];
+        }
+        // transactions of a sender are chained from the latest one backwards; ones newer than the state are skipped.
+        int transactionCount = current.columns().transactionCount();
+        int[] mtns = new int[8];
+        int count = 0;
+        for (SentTransaction sent = current.lastSentByClient().get(sender); sent != null; sent = sent.previous()) {
+            if (sent.transaction() < transactionCount) {
+                if (count == mtns.length) {
+                    mtns = Arrays.copyOf(mtns, count * 2);
+                }
+                mtns[count++] = sent.mtn();
+            }
+        }
+        int[] inLoadOrder = new int[count];
+        for (int i = 0; i < count; i++) {
+            inLoadOrder[i] = mtns[count - 1 - i];
+        }
+        return inLoadOrder;
+    }
+
+    /**
+     * Materializes every row; O(n), meant for callers that really need all the objects.
+     */
+    public List<Transaction> getTransactions() {
+        TransactionColumns columns = state.columns();
+        List<Transaction> transactions = new ArrayList<>(columns.size());
+        for (int row = 0; row < columns.size(); row++) {
+            transactions.add(columns.toTransaction(row));
+        }
+        return transactions;
+    }
+
+    /**
+     * Materializes every row grouped by beneficiary name; O(n), the groups are not kept in the snapshot. Rows are
+     * grouped on the client id and every name is decoded once per group.
+     */
+    public Map<String, List<Transaction>> getTransactionsByBeneficiary() {
+        State current = state;
+        TransactionColumns columns = current.columns();
+        List<List<Transaction>> byBeneficiaryId = new ArrayList<>(Collections.nCopies(current.clientCount(), null));
+        int groups = 0;
+        for (int row = 0; row < columns.size(); row++) {
+            int beneficiary = columns.beneficiaryId(row);
+            List<Transaction> group = byBeneficiaryId.get(beneficiary);
+            if (group == null) {
+                group = new ArrayList<>();
+                byBeneficiaryId.set(beneficiary, group);
+                groups++;
+            }
+            group.add(columns.toTransaction(row));
+        }
+        Map<String, List<Transaction>> byBeneficiary = new HashMap<>(groups * 4 / 3 + 1);
+        for (int client = 0; client < byBeneficiaryId.size(); client++) {
+            if (byBeneficiaryId.get(client) != null) {
+                byBeneficiary.put(columns.names().decode(client), byBeneficiaryId.get(client));
+            }
+        }
+        return byBeneficiary;
+    }
+
+    /**
+     * Returns the count, total and maximum amount of the unique transactions matching the filter, and the k
+     * senders with the highest total over them, highest first; ties by first appearance. An amount range is
+     * resolved on the amount index and age bounds on the age band bitmaps, whichever leaves fewer candidates; only
+     * those are checked, plus the transactions added since the index was built. When the candidates are a large
+     * share of the transactions a sequential scan is cheaper than their scattered reads, so all are checked instead.
+     */
+    public TransactionAggregate aggregate(TransactionFilter filter, int k) {
+        requireNonNegative(k);
+        State current = state;
+        TransactionColumns columns = current.columns();
+        int transactionCount = columns.transactionCount();
+        TransactionIndex indexed = index(columns);
+        int covered = Math.min(indexed.size(), transactionCount);
+
+        int from = indexed.lowerBound(filter.getMinAmount());
+        int to = Math.max(from, indexed.upperBound(filter.getMaxAmount()));
+        long[] ageCandidates = indexed.ageCandidates(filter);
+        int ageCandidateCount = ageCandidates == null ? Integer.MAX_VALUE : TransactionIndex.cardinality(ageCandidates);
+        int candidates = Math.min(to - from, ageCandidateCount);
+        boolean scan = (long) candidates * INDEX_SCAN_CROSSOVER >= covered;
+
+        FilteredAggregate aggregate = new FilteredAggregate(columns, filter, current.openIssueCountByTransaction(),
+                k == 0 ? 0 : current.clientCount());
+        if (scan) {
+            for (int transaction = 0; transaction < covered; transaction++) {
+                aggregate.offer(transaction);
+            }
+        } else if (ageCandidateCount < to - from) {
+            for (int word = 0; word < ageCandidates.length; word++) {
+                for (long bits = ageCandidates[word]; bits != 0; bits &= bits - 1) {
+                    aggregate.offer(word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                }
+            }
+        } else {
+            for (int position = from; position < to; position++) {
+                aggregate.offer(indexed.transactionAt(position));
+            }
+        }
+        for (int transaction = covered; transaction < transactionCount; transaction++) {
+            aggregate.offer(transaction);
+        }
+        return aggregate.result(k);
+    }
+
+    private List<Transaction> topTransactionsByAmount(int k, boolean parallel) {
+        requireNonNegative(k);
+        State current = state;
+        if (k <= current.topTransactions().size() || current.topTransactions().size() < TOP_TRANSACTIONS_SIZE) {
+            return current.topTransactions().subList(0, Math.min(k, current.topTransactions().size()));
+        }
+        TransactionColumns columns = current.columns();
+        int[] selected = parallel
+                ? TopK.selectParallel(0, columns.transactionCount(), k, transaction -> true, columns::transactionAmount)
+                : TopK.select(0, columns.transactionCount(), k, transaction -> true, columns::transactionAmount);
+        List<Transaction> transactions = new ArrayList<>(selected.length);
+        for (int transaction : selected) {
+            transactions.add(columns.toTransaction(columns.firstRowOf(transaction)));
+        }
+        return transactions;
+    }
+
+    private Map<String, Double> topSenders(int k, boolean parallel) {
+        requireNonNegative(k);
+        State current = state;
+        PagedArray.Doubles totals = current.totalAmountBySender();
+        PagedArray.Refs<SentTransaction> lastSent = current.lastSentByClient();
+        int[] selected = parallel
+                ? TopK.selectParallel(0, current.clientCount(), k, client -> lastSent.get(client) != null, totals::get)
+                : TopK.select(0, current.clientCount(), k, client -> lastSent.get(client) != null, totals::get);
+        Map<String, Double> senders = new LinkedHashMap<>();
+        for (int client : selected) {
+            senders.put(current.columns().names().decode(client), totals.get(client));
+        }
+        return senders;
+    }
+
+    /**
+     * Returns the current index, rebuilding it when the columns hold too many transactions it doesn't cover. Readers
+     * racing on a rebuild each build one and the last one wins, which is harmless.
+     */
+    private TransactionIndex index(TransactionColumns columns) {
+        TransactionIndex current = index;
+        int unindexed = columns.transactionCount() - (current == null ? 0 : current.size());
+        if (current == null || unindexed > Math.max(MIN_UNINDEXED_TRANSACTIONS, current.size() / 16)) {
+            current = TransactionIndex.of(columns);
+            index = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the current client issue index, rebuilding it when the columns hold too many rows it doesn't cover;
+     * racing readers each build one, like {@link #index(TransactionColumns)}. An index built from a newer state
+     * leaves out the issues solved since the given one, so a reader of an older state builds its own.
+     */
+    private ClientIssueIndex clientIssueIndex(State of) {
+        ClientIssueIndex current = clientIssueIndex;
+        TransactionColumns columns = of.columns();
+        int unindexed = columns.size() - (current == null ? 0 : current.size());
+        if (current != null && current.revision() > of.revision()) {
+            return ClientIssueIndex.of(columns, of.clientCount(), of.revision());
+        }
+        if (current == null || unindexed > Math.max(MIN_UNINDEXED_ROWS, current.size() / 16)) {
+            current = ClientIssueIndex.of(columns, of.clientCount(), of.revision());
+            clientIssueIndex = current;
+        }
+        return current;
+    }
+
+    private static void requireNonNegative(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+    }
+
+    /**
+     * Appends the row, or applies it to the already known issue or transaction. Without {@code aggregate} only the
+     * columns are touched and the aggregates are left to a later pass over the rows.
+     */
+    private boolean apply(Transaction transaction, boolean aggregate) {
+        if (transaction.getIssueId() != null) {
+            int known = rows.rowOfIssue(transaction.getIssueId());
+            if (known != TransactionColumns.MISSING) {
+                if (!Boolean.TRUE.equals(transaction.getIssueSolved())) {
+                    return false;
+                }
+                if (aggregate) {
+                    return solve(known);
+                }
+                boolean open = !rows.isIssueSolved(known);
+                rows.markIssueSolved(known);
+                return open;
+            }
+        } else if (rows.containsTransaction(transaction.getMtn())) {
+            return false;
+        }
+
+        int row = rows.append(transaction);
+        if (aggregate) {
+            ensureCapacity(rows.names().size());
+            aggregate(row, true);
+        }
+        return true;
+    }
+
+    /**
+     * Aggregates every row appended so far, then ranks the senders once and publishes.
+     */
+    private void aggregateAll(int parallelThreshold) {
+        int size = rows.size();
+        ensureCapacity(rows.names().size());
+        if (size > 0 && size >= parallelThreshold) {
+            aggregateParallel(size);
+        } else {
+            for (int row = 0; row < size; row++) {
+                aggregateIssue(row);
+            }
+            for (int transaction = 0; transaction < rows.transactionCount(); transaction++) {
+                aggregateTransaction(transaction, false);
+            }
+        }
+        // senders are ranked once at the end instead of being re-ranked on every row.
+        int clientCount = rows.names().size();
+        for (int sender = 0; sender < clientCount; sender++) {
+            if (lastSentByClient.get(sender) != null) {
+                senderRanking.add(new SenderTotal(sender, totalAmountBySender.get(sender)));
+            }
+        }
+        publish();
+    }
+
+    /**
+     * Adds an appended row to the aggregates, and its transaction when the row is the transaction's first.
+     */
+    private void aggregate(int row, boolean rankSenders) {
+        aggregateIssue(row);
+        int transaction = rows.transactionOf(row);
+        if (rows.firstRowOf(transaction) == row) {
+            aggregateTransaction(transaction, rankSenders);
+        }
+    }
+
+    private void aggregateIssue(int row) {
+        if (rows.isIssueSolved(row)) {
+            if (rows.issueMessage(row) != null) {
+                solvedMessageRows.set(row);
+            }
+        } else {
+            if (rows.hasIssue(row)) {
+                unsolvedIssueRows.set(row);
+            }
+            int sender = rows.senderId(row);
+            int beneficiary = rows.beneficiaryId(row);
+            openIssueCountByClient.add(sender, 1);
+            if (beneficiary != sender) {
+                openIssueCountByClient.add(beneficiary, 1);
+            }
+            openIssueCountByTransaction.add(rows.transactionOf(row), 1);
+        }
+    }
+
+    /**
+     * Adds a transaction's amount; every transaction is stored once, however many issues it has.
+     */
+    private void aggregateTransaction(int transaction, boolean rankSenders) {
+        int sender = rows.transactionSenderId(transaction);
+        double amount = rows.transactionAmount(transaction);
+        maxAmount = Math.max(maxAmount, amount);
+        addCompensated(totalSum, totalCompensation, 0, amount);
+
+        double previousTotal = totalAmountBySender.get(sender);
+        addCompensated(senderSums, senderCompensations, sender, amount);
+        totalAmountBySender.set(sender, senderSums[sender] + senderCompensations[sender]);
+        if (rankSenders) {
+            senderRanking.remove(new SenderTotal(sender, previousTotal));
+            senderRanking.add(new SenderTotal(sender, totalAmountBySender.get(sender)));
+        }
+
+        lastSentByClient.set(sender, new SentTransaction(transaction, rows.transactionMtn(transaction),
+                lastSentByClient.get(sender)));
+        offerTopTransaction(transaction, amount);
+        if (sketches != null) {
+            sketch(sketches, transaction);
+        }
+    }
+
+    private void sketch(TransactionSketches target, int transaction) {
+        StringDictionary names = rows.names();
+        target.add(names.decode(rows.transactionSenderId(transaction)),
+                names.decode(rows.beneficiaryId(rows.firstRowOf(transaction))),
+                rows.transactionAmount(transaction));
+    }
+
+    /**
+     * Aggregates the first {@code size} rows and their transactions as one chunk of each per core and merges the
+     * partial aggregates in chunk order. Only the per sender transaction chains, which must be linked in load order,
+     * and the per transaction open issue counts are built sequentially.
+     */
+    private void aggregateParallel(int size) {
+        int clientCount = rows.names().size();
+        int transactionCount = rows.transactionCount();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (size + Runtime.getRuntime().availableProcessors() - 1)
+                / Runtime.getRuntime().availableProcessors());
+        int chunks = (size + chunkSize - 1) / chunkSize;
+        int transactionChunkSize = (transactionCount + chunks - 1) / chunks;
+        List<PartialAggregate> partials = IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> PartialAggregate.of(rows,
+                        chunk * chunkSize, Math.min(size, (chunk + 1) * chunkSize),
+                        Math.min(transactionCount, chunk * transactionChunkSize),
+                        Math.min(transactionCount, (chunk + 1) * transactionChunkSize),
+                        clientCount))
+                .toList();
+
+        for (PartialAggregate partial : partials) {
+            addCompensated(totalSum, totalCompensation, 0, partial.sum);
+            addCompensated(totalSum, totalCompensation, 0, partial.compensation);
+            maxAmount = Math.max(maxAmount, partial.maxAmount);
+            for (int client = 0; client < clientCount; client++) {
+                if (partial.senderSums[client] != 0.0 || partial.senderCompensations[client] != 0.0) {
+                    addCompensated(senderSums, senderCompensations, client, partial.senderSums[client]);
+                    addCompensated(senderSums, senderCompensations, client, partial.senderCompensations[client]);
+                }
+                if (partial.openIssueCountByClient[client] != 0) {
+                    openIssueCountByClient.add(client, partial.openIssueCountByClient[client]);
+                }
+            }
+            for (int i = 0; i < partial.unsolvedCount; i++) {
+                unsolvedIssueRows.set(partial.unsolvedRows[i]);
+            }
+            for (int i = 0; i < partial.solvedCount; i++) {
+                solvedMessageRows.set(partial.solvedRows[i]);
+            }
+        }
+        for (int client = 0; client < clientCount; client++) {
+            totalAmountBySender.set(client, senderSums[client] + senderCompensations[client]);
+        }
+
+        for (int transaction = 0; transaction < transactionCount; transaction++) {
+            int sender = rows.transactionSenderId(transaction);
+            lastSentByClient.set(sender, new SentTransaction(transaction, rows.transactionMtn(transaction),
+                    lastSentByClient.get(sender)));
+        }
+        // rows of one transaction can straddle two chunks, so these counts are not split.
+        for (int row = 0; row < size; row++) {
+            if (!rows.isIssueSolved(row)) {
+                openIssueCountByTransaction.add(rows.transactionOf(row), 1);
+            }
+        }
+        int[] top = TopK.selectParallel(0, transactionCount, TOP_TRANSACTIONS_SIZE, transaction -> true, rows::transactionAmount);
+        for (int transaction : top) {
+            offerTopTransaction(transaction, rows.transactionAmount(transaction));
+        }
+    }
+
+    private boolean solve(int row) {
+        if (rows.isIssueSolved(row)) {
+            return false;
+        }
+        rows.markIssueSolved(row);
+        openIssueCountByClient.add(rows.senderId(row), -1);
+        if (rows.beneficiaryId(row) != rows.senderId(row)) {
+            openIssueCountByClient.add(rows.beneficiaryId(row), -1);
+        }
+        openIssueCountByTransaction.add(rows.transactionOf(row), -1);
+        unsolvedIssueRows.clear(row);
+        if (rows.issueMessage(row) != null) {
+            solvedMessageRows.set(row);
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the transactions with the highest amounts in descending order; ties keep their encounter order.
+     */
+    private void offerTopTransaction(int transaction, double amount) {
+        int position = topSize;
+        while (position > 0 && topAmounts[position - 1] < amount) {
+            position--;
+        }
+        if (position == topIndexes.length) {
+            return;
+        }
+        int last = Math.min(topSize, topIndexes.length - 1);
+        System.arraycopy(topIndexes, position, topIndexes, position + 1, last - position);
+        System.arraycopy(topAmounts, position, topAmounts, position + 1, last - position);
+        topIndexes[position] = transaction;
+        topAmounts[position] = amount;
+        topSize = Math.min(topSize + 1, topIndexes.length);
+    }
+
+    /**
+     * Hands the readers a consistent state; called by the writer after every completed change. The columns and the
+     * arrays are snapshots the writer never changes afterwards, each write copies the pages it touches instead.
+     */
+    private void publish() {
+        TransactionColumns columns = rows.view();
+        List<Transaction> topTransactions = new ArrayList<>(topSize);
+        for (int i = 0; i < topSize; i++) {
+            topTransactions.add(columns.toTransaction(columns.firstRowOf(topIndexes[i])));
+        }
+        SenderTotal topSender = senderRanking.isEmpty() ? null : senderRanking.first();
+        state = new State(revision++,
+                columns,
+                totalSum[0] + totalCompensation[0],
+                columns.size() == 0 ? 0.0 : maxAmount,
+                columns.names().size(),
+                Collections.unmodifiableList(topTransactions),
+                topSender == null ? Optional.empty() : Optional.of(columns.names().decode(topSender.client())),
+                totalAmountBySender.snapshot(),
+                openIssueCountByClient.snapshot(),
+                lastSentByClient.snapshot(),
+                openIssueCountByTransaction.snapshot(),
+                unsolvedIssueRows.snapshot(),
+                solvedMessageRows.snapshot(),
+                new IssueLists());
+    }
+
+    private void ensureCapacity(int clientCount) {
+        if (clientCount > senderSums.length) {
+            int capacity = Math.max(clientCount, senderSums.length * 2);
+            senderSums = Arrays.copyOf(senderSums, capacity);
+            senderCompensations = Arrays.copyOf(senderCompensations, capacity);
+        }
+    }
+
+    /**
+     * Neumaier compensated addition, so large sums don't drift the way a naive {@code +=} does.
+     */
+    private static void addCompensated(double[] sums, double[] compensations, int index, double value) {
+        double sum = sums[index];
+        double next = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensations[index] += (sum - next) + value;
+        } else {
+            compensations[index] += (value - next) + sum;
+        }
+        sums[index] = next;
+    }
+
+    /**
+     * Aggregates of one chunk of rows and one chunk of transactions, computed without touching any shared state.
+     */
+    private static final class PartialAggregate {
+
+        private double sum;
+        private double compensation;
+        private double maxAmount = Double.NEGATIVE_INFINITY;
+        private final double[] senderSums;
+        private final double[] senderCompensations;
+        private final int[] openIssueCountByClient;
+        private int[] unsolvedRows = new int[16];
+        private int unsolvedCount;
+        private int[] solvedRows = new int[16];
+        private int solvedCount;
+
+        private PartialAggregate(int clientCount) {
+            senderSums = new double[clientCount];
+            senderCompensations = new double[clientCount];
+            openIssueCountByClient = new int[clientCount];
+        }
+
+        static PartialAggregate of(TransactionColumns.Builder rows, int fromRow, int toRow, int fromTransaction,
+                                   int toTransaction, int clientCount) {
+            PartialAggregate partial = new PartialAggregate(clientCount);
+            for (int row = fromRow; row < toRow; row++) {
+                if (rows.isIssueSolved(row)) {
+                    if (rows.issueMessage(row) != null) {
+                        partial.solvedRows = push(partial.solvedRows, partial.solvedCount++, row);
+                    }
+                } else {
+                    if (rows.hasIssue(row)) {
+                        partial.unsolvedRows = push(partial.unsolvedRows, partial.unsolvedCount++, row);
+                    }
+                    int sender = rows.senderId(row);
+                    int beneficiary = rows.beneficiaryId(row);
+                    partial.openIssueCountByClient[sender]++;
+                    if (beneficiary != sender) {
+                        partial.openIssueCountByClient[beneficiary]++;
+                    }
+                }
+            }
+            double[] sum = new double[1];
+            double[] compensation = new double[1];
+            for (int transaction = fromTransaction; transaction < toTransaction; transaction++) {
+                double amount = rows.transactionAmount(transaction);
+                partial.maxAmount = Math.max(partial.maxAmount, amount);
+                addCompensated(sum, compensation, 0, amount);
+                addCompensated(partial.senderSums, partial.senderCompensations, rows.transactionSenderId(transaction), amount);
+            }
+            partial.sum = sum[0];
+            partial.compensation = compensation[0];
+            return partial;
+        }
+
+        private static int[] push(int[] values, int count, int value) {
+            int[] target = count == values.length ? Arrays.copyOf(values, count * 2) : values;
+            target[count] = value;
+            return target;
+        }
+    }
+
+    /**
+     * Accumulates the transactions matching a filter; candidates are offered in any order, each at most once, and
+     * those beyond the state are skipped. Senders are summed on arrays indexed by client id.
+     */
+    private static final class FilteredAggregate {
+
+        private final TransactionColumns columns;
+        private final PagedArray.Ints openIssueCountByTransaction;
+        private final double minAmount;
+        private final double maxAmount;
+        private final boolean senderAgeBound;
+        private final int minSenderAge;
+        private final int maxSenderAge;
+        private final boolean beneficiaryAgeBound;
+        private final int minBeneficiaryAge;
+        private final int maxBeneficiaryAge;
+        private final TransactionFilter.IssueStatus issueStatus;
+
+        private final double[] sum = new double[1];
+        private final double[] compensation = new double[1];
+        private double max = Double.NEGATIVE_INFINITY;
+        private long count;
+
+        private final double[] senderSums;
+        private final double[] senderCompensations;
+        private final boolean[] sent;
+
+        private FilteredAggregate(TransactionColumns columns, TransactionFilter filter,
+                                  PagedArray.Ints openIssueCountByTransaction, int clientCount) {
+            this.columns = columns;
+            this.openIssueCountByTransaction = openIssueCountByTransaction;
+            minAmount = filter.getMinAmount() == null ? Double.NEGATIVE_INFINITY : filter.getMinAmount();
+            maxAmount = filter.getMaxAmount() == null ? Double.POSITIVE_INFINITY : filter.getMaxAmount();
+            senderAgeBound = filter.hasSenderAgeBound();
+            minSenderAge = filter.getMinSenderAge() == null ? Integer.MIN_VALUE : filter.getMinSenderAge();
+            maxSenderAge = filter.getMaxSenderAge() == null ? Integer.MAX_VALUE : filter.getMaxSenderAge();
+            beneficiaryAgeBound = filter.hasBeneficiaryAgeBound();
+            minBeneficiaryAge = filter.getMinBeneficiaryAge() == null ? Integer.MIN_VALUE : filter.getMinBeneficiaryAge();
+            maxBeneficiaryAge = filter.getMaxBeneficiaryAge() == null ? Integer.MAX_VALUE : filter.getMaxBeneficiaryAge();
+            issueStatus = filter.getIssueStatus();
+            senderSums = new double[clientCount];
+            senderCompensations = new double[clientCount];
+            sent = new boolean[clientCount];
+        }
+
+        void offer(int transaction) {
+            if (transaction >= columns.transactionCount() || !matches(transaction)) {
+                return;
+            }
+            double amount = columns.transactionAmount(transaction);
+            count++;
+            max = Math.max(max, amount);
+            addCompensated(sum, compensation, 0, amount);
+            if (sent.length > 0) {
+                int sender = columns.transactionSenderId(transaction);
+                sent[sender] = true;
+                addCompensated(senderSums, senderCompensations, sender, amount);
+            }
+        }
+
+        private boolean matches(int transaction) {
+            double amount = columns.transactionAmount(transaction);
+            if (amount < minAmount || amount > maxAmount) {
+                return false;
+            }
+            if (senderAgeBound) {
+                int age = columns.transactionSenderAge(transaction);
+                if (age == TransactionColumns.MISSING || age < minSenderAge || age > maxSenderAge) {
+                    return false;
+                }
+            }
+            if (beneficiaryAgeBound) {
+                int age = columns.transactionBeneficiaryAge(transaction);
+                if (age == TransactionColumns.MISSING || age < minBeneficiaryAge || age > maxBeneficiaryAge) {
+                    return false;
+                }
+            }
+            return issueStatus == null
+                    || (openIssueCountByTransaction.get(transaction) > 0) == (issueStatus == TransactionFilter.IssueStatus.OPEN);
+        }
+
+        TransactionAggregate result(int k) {
+            int[] selected = TopK.select(0, sent.length, k, client -> sent[client],
+                    client -> senderSums[client] + senderCompensations[client]);
+            Map<String, Double> topSenders = new LinkedHashMap<>();
+            for (int client : selected) {
+                topSenders.put(columns.names().decode(client), senderSums[client] + senderCompensations[client]);
+            }
+            return new TransactionAggregate(count, sum[0] + compensation[0], count == 0 ? 0.0 : max, topSenders);
+        }
+    }
+
+    /**
+     * What a reader sees: scalars fixed at publication plus snapshots of the arrays they index into, and the issue
+     * lists collected from them on first use.
+     */
+    private record State(long revision,
+                         TransactionColumns columns,
+                         double totalAmount,
+                         double maxAmount,
+                         int clientCount,
+                         List<Transaction> topTransactions,
+                         Optional<String> topSender,
+                         PagedArray.Doubles totalAmountBySender,
+                         PagedArray.Ints openIssueCountByClient,
+                         PagedArray.Refs<SentTransaction> lastSentByClient,
+                         PagedArray.Ints openIssueCountByTransaction,
+                         PagedArray.Bits unsolvedIssueRows,
+                         PagedArray.Bits solvedMessageRows,
+                         IssueLists issueLists) {
+
+        /**
+         * Returns the client id if the client is part of this state, {@link StringDictionary#NOT_FOUND} otherwise.
+         */
+        int client(String fullName) {
+            int client = columns.names().lookup(fullName);
+            return client < clientCount ? client : StringDictionary.NOT_FOUND;
+        }
+
+        /**
+         * Returns the open issue ids, collected by the first caller; racing callers each collect equal sets.
+         */
+        Set<Integer> unsolvedIssueIds() {
+            Set<Integer> ids = issueLists.unsolvedIssueIds;
+            if (ids == null) {
+                int[] sorted = new int[16];
+                int count = 0;
+                for (int row = unsolvedIssueRows.nextSetBit(0, columns.size()); row >= 0;
+                     row = unsolvedIssueRows.nextSetBit(row + 1, columns.size())) {
+                    if (count == sorted.length) {
+                        sorted = Arrays.copyOf(sorted, count * 2);
+                    }
+                    sorted[count++] = columns.issueId(row);
+                }
+                Arrays.sort(sorted, 0, count);
+                Set<Integer> collected = new LinkedHashSet<>(count * 4 / 3 + 1);
+                for (int i = 0; i < count; i++) {
+                    collected.add(sorted[i]);
+                }
+                ids = Collections.unmodifiableSet(collected);
+                issueLists.unsolvedIssueIds = ids;
+            }
+            return ids;
+        }
+
+        /**
+         * Returns the solved issue messages, collected by the first caller like {@link #unsolvedIssueIds()}.
+         */
+        List<String> solvedIssueMessages() {
+            List<String> messages = issueLists.solvedIssueMessages;
+            if (messages == null) {
+                List<String> collected = new ArrayList<>();
+                for (int row = solvedMessageRows.nextSetBit(0, columns.size()); row >= 0;
+                     row = solvedMessageRows.nextSetBit(row + 1, columns.size())) {
+                    collected.add(columns.issueMessage(row));
+                }
+                messages = Collections.unmodifiableList(collected);
+                issueLists.solvedIssueMessages = messages;
+            }
+            return messages;
+        }
+    }
+
+    /**
+     * Issue lists of one state, collected from its row bit sets when first asked for.
+     */
+    private static final class IssueLists {
+
+        private volatile Set<Integer> unsolvedIssueIds;
+        private volatile List<String> solvedIssueMessages;
+    }
+
+    /**
+     * Unique transaction of a sender, linked to the sender's previous one. Immutable, so readers can follow the
+     * chain while the writer prepends to it.
+     */
+    private record SentTransaction(int transaction, int mtn, SentTransaction previous) {
+    }
+
+    /**
+     * Ranking entry of a sender; highest total first, ties by client id.
+     */
+    private record SenderTotal(int client, double total) {
+
+        static final Comparator<SenderTotal> ORDER = Comparator.comparingDouble(SenderTotal::total).reversed()
+                .thenComparingInt(SenderTotal::client);
+    }
+}
@@ -0,0 +1,67 @@
+package com.smallworld.data;
+
+import java.io.IOException;
+
+/**
+ * Storage of the two tables of {@link TransactionColumns}: the transaction table indexed by transaction and the
+ * issue table indexed by row. Entries are only ever appended by a single writer, apart from the flags of a row.
+ * Growing returns new tables holding the same entries, so a view keeps reading the tables it was created with.
+ */
+interface TransactionTables {
+
+    int mtn(int transaction);
+
+    double amount(int transaction);
+
+    int senderId(int transaction);
+
+    int senderAge(int transaction);
+
+    int beneficiaryId(int transaction);
+
+    int beneficiaryAge(int transaction);
+
+    int firstRow(int transaction);
+
+    int transaction(int row);
+
+    int issueId(int row);
+
+    int issueMessageId(int row);
+
+    byte flags(int row);
+
+    void setTransaction(int transaction, int mtn, double amount, int senderId, int senderAge, int beneficiaryId,
+                        int beneficiaryAge);
+
+    void setFirstRow(int transaction, int row);
+
+    void setRow(int row, int transaction, int issueId, int issueMessageId, byte flags);
+
+    void addFlags(int row, byte flags);
+
+    int transactionCapacity();
+
+    int rowCapacity();
+
+    /**
+     * Returns tables with room for more transactions.
+     */
+    TransactionTables growTransactions();
+
+    /**
+     * Returns tables with room for more rows.
+     */
+    TransactionTables growRows();
+
+    /**
+     * Writes the first {@code count} entries of the transaction table column after column.
+     */
+    void writeTransactions(TransactionColumns.ColumnWriter writer, int count) throws IOException;
+
+    /**
+     * Writes the first {@code count} entries of the issue table column after column, except for the flags, which
+     * the columns write as a view sees them.
+     */
+    void writeRows(TransactionColumns.ColumnWriter writer, int count) throws IOException;
+}
@@ -1,6 +1,9 @@
 package com.smallworld.service;
 
 import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionSnapshot;
+import com.smallworld.data.TransactionStatistics;
 
 import java.util.List;
 
@@ -8,4 +11,16 @@ public interface TransactionService {
 
     List<Transaction> getAllTransaction();
 
+    TransactionColumns getColumns();
+
+    TransactionStatistics getStatistics();
+
+    TransactionSnapshot getSnapshot();
+
+    TransactionSnapshot reload();
+
+    boolean ingest(Transaction transaction);
+
+    boolean markIssueSolved(int issueId);
+
 }
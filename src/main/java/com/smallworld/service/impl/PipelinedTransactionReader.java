@@ -0,0 +1,326 @@
+package com.smallworld.service.impl;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.config.VirtualThreads;
+import com.smallworld.data.ClientNameDeserializer;
+import com.smallworld.data.StringDictionary;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionPartition;
+import com.smallworld.data.TransactionStatistics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads a json file in three overlapping stages, each on its own thread, a virtual one in the virtual thread mode: a
+ * reader filling large chunks from a file channel, a parser turning them into batches of rows, and the calling
+ * thread encoding the batches into the columns, aggregating and building the filter indexes. Stages hand over
+ * through bounded queues, so a slow stage blocks the one before it and at most {@link #CHUNKS_IN_FLIGHT} chunks and
+ * {@link #BATCHES_IN_FLIGHT} batches are held at a time. The file is read while the previous chunk is parsed and a
+ * batch is encoded while the next is parsed, so on several cores the load takes about as long as its slowest stage
+ * instead of the sum of all three.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PipelinedTransactionReader {
+
+    static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    static final int CHUNKS_IN_FLIGHT = 8;
+    static final int BATCH_SIZE = 4096;
+    static final int BATCHES_IN_FLIGHT = 16;
+    private static final byte[] END_OF_FILE = new byte[0];
+    private static final List<Transaction> END_OF_ROWS = Collections.emptyList();
+    private static final long POLL_MILLIS = 100;
+
+    private final ObjectMapper mapper;
+    private final int parallelThreshold;
+    private final TransactionColumns.Storage storage;
+    private final TransactionPartition partition;
+    private final boolean virtualThreads;
+
+    /**
+     * Loads the file into a statistics snapshot with its filter indexes built, and logs the time each stage spent
+     * blocked on its neighbours.
+     *
+     * @param file json array of transactions
+     * @return statistics
+     * @throws IOException when the file can't be read or parsed
+     */
+    public TransactionStatistics read(Path file) throws IOException {
+        long start = System.nanoTime();
+        Pipeline pipeline = new Pipeline();
+        Thread reader = VirtualThreads.factory("transaction-file-reader-", virtualThreads)
+                .newThread(() -> pipeline.run(() -> readChunks(file, pipeline), pipeline.chunks, END_OF_FILE));
+        Thread parser = VirtualThreads.factory("transaction-parser-", virtualThreads)
+                .newThread(() -> pipeline.run(() -> parseBatches(pipeline), pipeline.batches, END_OF_ROWS));
+        reader.setDaemon(true);
+        parser.setDaemon(true);
+        reader.start();
+        parser.start();
+
+        TransactionStatistics statistics;
+        try {
+            statistics = TransactionStatistics.of(new BatchIterator(pipeline), parallelThreshold, storage);
+            pipeline.failIfFailed();
+            statistics.buildIndex();
+        } catch (CancellationException e) {
+            pipeline.failIfFailed();
+            throw e;
+        } finally {
+            pipeline.cancel();
+            join(reader);
+            join(parser);
+        }
+        log.info("read : Loaded {} rows in {} ms; blocked reading {} ms, parsing {} ms, encoding {} ms.",
+                statistics.getColumns().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                TimeUnit.NANOSECONDS.toMillis(pipeline.readerBlocked.get()),
+                TimeUnit.NANOSECONDS.toMillis(pipeline.parserBlocked.get()),
+                TimeUnit.NANOSECONDS.toMillis(pipeline.encoderBlocked.get()));
+        return statistics;
+    }
+
+    /**
+     * Reader stage: whole chunks from the file channel, the last one possibly shorter.
+     */
+    private static void readChunks(Path file, Pipeline pipeline) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+                while (chunk.hasRemaining() && !endOfFile) {
+                    endOfFile = channel.read(chunk) < 0;
+                }
+                if (chunk.position() > 0) {
+                    byte[] bytes = chunk.hasRemaining() ? Arrays.copyOf(chunk.array(), chunk.position()) : chunk.array();
+                    pipeline.put(pipeline.chunks, bytes, pipeline.readerBlocked);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parser stage: rows of the partition, in batches.
+     */
+    private void parseBatches(Pipeline pipeline) throws IOException {
+        try (MappingIterator<Transaction> iterator = mapper.readerFor(Transaction.class)
+                .withAttribute(ClientNameDeserializer.NAMES, new StringDictionary())
+                .readValues(new ChunkInputStream(pipeline))) {
+            Iterator<Transaction> rows = partition.filter(iterator);
+            List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+            while (rows.hasNext()) {
+                batch.add(rows.next());
+                if (batch.size() == BATCH_SIZE) {
+                    pipeline.put(pipeline.batches, batch, pipeline.parserBlocked);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                pipeline.put(pipeline.batches, batch, pipeline.parserBlocked);
+            }
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues between the stages and the first failure of any stage. A failed stage, or the caller giving up,
+     * cancels the pipeline so no stage stays blocked on a queue nobody serves anymore.
+     */
+    private static final class Pipeline {
+
+        private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(CHUNKS_IN_FLIGHT);
+        private final BlockingQueue<List<Transaction>> batches = new ArrayBlockingQueue<>(BATCHES_IN_FLIGHT);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final AtomicLong readerBlocked = new AtomicLong();
+        private final AtomicLong parserBlocked = new AtomicLong();
+        private final AtomicLong encoderBlocked = new AtomicLong();
+        private volatile boolean cancelled;
+
+        /**
+         * Runs a stage, then queues the end marker for the next one; a failure is recorded before, so the next
+         * stage never takes a truncated input for a complete one.
+         */
+        private <T> void run(Stage stage, BlockingQueue<T> output, T endMarker) {
+            try {
+                stage.run();
+            } catch (CancellationException e) {
+                // another stage failed or the load was abandoned; that one reports it.
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+                cancel();
+            }
+            end(output, endMarker);
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+
+        private <T> void put(BlockingQueue<T> queue, T item, AtomicLong blocked) {
+            long start = System.nanoTime();
+            try {
+                while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            } finally {
+                blocked.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        private <T> T take(BlockingQueue<T> queue, AtomicLong blocked) {
+            long start = System.nanoTime();
+            try {
+                T item;
+                while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                }
+                return item;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            } finally {
+                blocked.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Queues the end marker unless the pipeline was cancelled, in which case nobody waits for it.
+         */
+        private <T> void end(BlockingQueue<T> queue, T marker) {
+            try {
+                put(queue, marker, new AtomicLong());
+            } catch (CancellationException e) {
+                // the consumer is gone.
+            }
+        }
+
+        private void failIfFailed() throws IOException {
+            Throwable cause = failure.get();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause != null) {
+                throw new IOException("Loading stage failed", cause);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws IOException;
+    }
+
+    /**
+     * The parser's view of the reader's chunks as one stream.
+     */
+    private static final class ChunkInputStream extends InputStream {
+
+        private final Pipeline pipeline;
+        private byte[] chunk = new byte[0];
+        private int position;
+
+        private ChunkInputStream(Pipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        private boolean fill() {
+            while (position == chunk.length) {
+                if (chunk == END_OF_FILE) {
+                    return false;
+                }
+                chunk = pipeline.take(pipeline.chunks, pipeline.parserBlocked);
+                position = 0;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The encoder's view of the parser's batches as one sequence of rows.
+     */
+    private static final class BatchIterator implements Iterator<Transaction> {
+
+        private final Pipeline pipeline;
+        private List<Transaction> batch = new ArrayList<>();
+        private int position;
+
+        private BatchIterator(Pipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == batch.size()) {
+                if (batch == END_OF_ROWS) {
+                    return false;
+                }
+                batch = pipeline.take(pipeline.batches, pipeline.encoderBlocked);
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public Transaction next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.get(position++);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.smallworld.service.impl;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.config.VirtualThreads;
+import com.smallworld.data.ClientNameDeserializer;
+import com.smallworld.data.StringDictionary;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionPartition;
+import com.smallworld.data.TransactionStatistics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads json shard files concurrently: every shard is streamed and encoded into its own columns, with its own name
+ * dictionary, on a bounded pool of threads, as parsing is cpu bound, virtual ones in the virtual thread mode. The
+ * encoded shards are then merged in file order, reconciling transactions found in several shards, and aggregated
+ * once. Only the rows of the partition are encoded.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ShardedTransactionReader {
+
+    private final ObjectMapper mapper;
+    private final int parallelThreshold;
+    private final int parallelism;
+    private final TransactionColumns.Storage storage;
+    private final TransactionPartition partition;
+    private final boolean virtualThreads;
+
+    /**
+     * Reads the shards into one statistics snapshot.
+     *
+     * @param shards json arrays of transactions, in load order
+     * @return statistics
+     * @throws IOException when a shard can't be read or parsed
+     */
+    public TransactionStatistics read(List<Path> shards) throws IOException {
+        long start = System.nanoTime();
+        int threads = Math.max(1, Math.min(parallelism, shards.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                VirtualThreads.factory("transaction-shard-reader-", virtualThreads));
+        List<TransactionColumns.Builder> encoded = new ArrayList<>(shards.size());
+        try {
+            List<Future<TransactionColumns.Builder>> pending = new ArrayList<>(shards.size());
+            for (Path shard : shards) {
+                pending.add(executor.submit(() -> encode(shard)));
+            }
+            for (Future<TransactionColumns.Builder> shard : pending) {
+                encoded.add(shard.get());
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading shards", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        long parsed = System.nanoTime();
+
+        TransactionStatistics statistics = TransactionStatistics.ofShards(encoded, parallelThreshold, storage);
+        log.info("read : Read {} shards on {} threads in {} ms, merged and aggregated {} rows in {} ms.", shards.size(),
+                threads, TimeUnit.NANOSECONDS.toMillis(parsed - start), statistics.getColumns().size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - parsed));
+        return statistics;
+    }
+
+    private TransactionColumns.Builder encode(Path shard) {
+        try (MappingIterator<Transaction> iterator = mapper.readerFor(Transaction.class)
+                .withAttribute(ClientNameDeserializer.NAMES, new StringDictionary()).readValues(shard.toFile())) {
+            return TransactionStatistics.encode(partition.filter(iterator));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading shard " + shard + " failed", e);
+        }
+    }
+}
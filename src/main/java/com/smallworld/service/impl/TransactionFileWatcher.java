@@ -0,0 +1,157 @@
+package com.smallworld.service.impl;
+
+import com.smallworld.config.VirtualThreads;
+import com.smallworld.data.TransactionSnapshot;
+import com.smallworld.service.TransactionService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reloads the transactions when the json file, or any shard of a sharded location, changes. The files' directory is
+ * watched from a background thread; after a change the reload waits until no further change was seen for the quiet
+ * period, so a file still being written is not parsed. Removing a shard also reloads. Readers keep using the
+ * published snapshot until the new one is swapped in. In virtual thread mode the watcher and the reloads it
+ * triggers run on a virtual thread.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionFileWatcher implements MeterBinder {
+
+    private final TransactionService transactionService;
+    @Value("${datasource.json.file-location}")
+    private String jsonFile;
+    @Value("${datasource.json.watch:false}")
+    private boolean enabled;
+    @Value("${datasource.json.watch-quiet-period-ms:2000}")
+    private long quietPeriodMillis;
+    @Value("${smallworld.virtual-threads.enabled:false}")
+    private boolean virtualThreads;
+
+    private final AtomicLong reloadCount = new AtomicLong();
+    private final AtomicLong failedReloadCount = new AtomicLong();
+    private volatile WatchService watchService;
+
+
+    /**
+     * Starts watching the json files when enabled.
+     */
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        TransactionFiles files = TransactionFiles.of(jsonFile);
+        watchService = FileSystems.getDefault().newWatchService();
+        if (files.isSharded()) {
+            files.directory().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } else {
+            files.directory().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        Runnable task = () -> watch(files);
+        Thread thread = VirtualThreads.factory("transaction-file-watcher-", virtualThreads).newThread(task);
+        thread.setDaemon(true);
+        thread.start();
+        log.info("start : Watching {} for changes.", jsonFile);
+    }
+
+
+    /**
+     * Stops watching; a reload in progress is completed.
+     */
+    @PreDestroy
+    void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+
+    /**
+     * Publishes the reloads triggered by a change of the files, next to the {@code transaction.load.*} meters of
+     * the current load; read on scrape.
+     *
+     * @param registry meter registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("transaction.load.reloads", reloadCount, AtomicLong::get)
+                .description("Reloads triggered by a change of the json files")
+                .tag("result", "success")
+                .register(registry);
+        FunctionCounter.builder("transaction.load.reloads", failedReloadCount, AtomicLong::get)
+                .description("Reloads triggered by a change of the json files")
+                .tag("result", "failure")
+                .register(registry);
+    }
+
+    private void watch(TransactionFiles files) {
+        try {
+            while (true) {
+                if (changed(watchService.take(), files)) {
+                    awaitQuietPeriod(files);
+                    reload();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            log.info("watch : Stopped watching {}.", jsonFile);
+        }
+    }
+
+    /**
+     * Returns once no change of the files was seen for the quiet period.
+     */
+    private void awaitQuietPeriod(TransactionFiles files) throws InterruptedException {
+        long quietPeriod = TimeUnit.MILLISECONDS.toNanos(quietPeriodMillis);
+        long deadline = System.nanoTime() + quietPeriod;
+        for (long remaining = quietPeriod; remaining > 0; remaining = deadline - System.nanoTime()) {
+            WatchKey key = watchService.poll(remaining, TimeUnit.NANOSECONDS);
+            if (key != null && changed(key, files)) {
+                deadline = System.nanoTime() + quietPeriod;
+            }
+        }
+    }
+
+    private void reload() {
+        try {
+            TransactionSnapshot snapshot = transactionService.reload();
+            reloadCount.incrementAndGet();
+            log.info("reload : Reloaded {} rows in {} ms as version {}.", snapshot.getStatistics().getColumns().size(),
+                    snapshot.getLoadDuration().toMillis(), snapshot.getVersion());
+        } catch (RuntimeException e) {
+            failedReloadCount.incrementAndGet();
+            log.warn("reload : Reloading {} failed, keeping version {}.", jsonFile, transactionService.getSnapshot().getVersion(), e);
+        }
+    }
+
+    /**
+     * Drains the events of the key and returns whether one of them concerns the files; an overflow might have.
+     */
+    private static boolean changed(WatchKey key, TransactionFiles files) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || files.matches((Path) event.context());
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,78 @@
+package com.smallworld.service.impl;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The json files of {@code datasource.json.file-location}: a single file, a directory whose {@code *.json} files are
+ * shards, or a glob over the file names of a directory such as {@code /data/transactions-*.json}. Shards are loaded
+ * in file name order.
+ */
+final class TransactionFiles {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+    private static final String SHARD_GLOB = "*.json";
+
+    private final Path directory;
+    private final PathMatcher fileNames;
+    private final boolean sharded;
+
+    private TransactionFiles(Path directory, PathMatcher fileNames, boolean sharded) {
+        this.directory = directory;
+        this.fileNames = fileNames;
+        this.sharded = sharded;
+    }
+
+    static TransactionFiles of(String location) {
+        Path path = Path.of(location).toAbsolutePath();
+        if (Files.isDirectory(path)) {
+            return new TransactionFiles(path, glob(SHARD_GLOB), true);
+        }
+        String fileName = path.getFileName().toString();
+        if (fileName.chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0)) {
+            return new TransactionFiles(path.getParent(), glob(fileName), true);
+        }
+        return new TransactionFiles(path.getParent(), name -> name.equals(path.getFileName()), false);
+    }
+
+    /**
+     * Returns whether the location names shards rather than a single file.
+     */
+    boolean isSharded() {
+        return sharded;
+    }
+
+    /**
+     * Returns the directory holding the files.
+     */
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Returns whether a file name of the directory is one of the files.
+     */
+    boolean matches(Path fileName) {
+        return fileNames.matches(fileName);
+    }
+
+    /**
+     * Lists the regular files of the directory matching the location, sorted by name.
+     */
+    List<Path> list() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> matches(file.getFileName()) && Files.isRegularFile(file))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static PathMatcher glob(String pattern) {
+        return FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+    }
+}
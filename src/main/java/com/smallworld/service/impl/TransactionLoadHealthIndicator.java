@@ -0,0 +1,43 @@
+package com.smallworld.service.impl;
+
+import com.smallworld.data.TransactionSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Reports the transactions as loaded once a loaded snapshot is published, with its columns and indexes built, and
+ * out of service before; part of the readiness group, so an instance loading in the background gets no traffic.
+ * A failed first load is down until a later reload succeeds.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionLoadHealthIndicator implements HealthIndicator {
+
+    private final TransactionServiceImpl transactionService;
+
+    @Override
+    public Health health() {
+        TransactionSnapshot snapshot = transactionService.getSnapshot();
+        if (snapshot.getVersion() > 0) {
+            return Health.up()
+                    .withDetail("version", snapshot.getVersion())
+                    .withDetail("rows", snapshot.getStatistics().getColumns().size())
+                    .withDetail("loadDurationMs", snapshot.getLoadDuration().toMillis())
+                    .build();
+        }
+        CompletableFuture<TransactionSnapshot> initialLoad = transactionService.getInitialLoad();
+        if (initialLoad.isCompletedExceptionally()) {
+            try {
+                initialLoad.join();
+            } catch (CompletionException e) {
+                return Health.down().withException(e.getCause() instanceof Exception cause ? cause : e).build();
+            }
+        }
+        return Health.outOfService().withDetail("state", "loading").build();
+    }
+}
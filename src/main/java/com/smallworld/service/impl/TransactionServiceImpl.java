@@ -2,59 +2,386 @@ package com.smallworld.service.impl;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.config.VirtualThreads;
+import com.smallworld.data.BinarySnapshotFile;
+import com.smallworld.data.ClientNameDeserializer;
+import com.smallworld.data.StringDictionary;
 import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionPartition;
+import com.smallworld.data.TransactionSketches;
+import com.smallworld.data.TransactionSnapshot;
+import com.smallworld.data.TransactionStatistics;
 import com.smallworld.exception.ServiceException;
 import com.smallworld.service.TransactionService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @Service
-public class TransactionServiceImpl implements TransactionService {
+public class TransactionServiceImpl implements TransactionService, MeterBinder {
 
-    private static List<Transaction> transactions;
+    private final AtomicReference<TransactionSnapshot> snapshot =
+            new AtomicReference<>(new TransactionSnapshot(0, Instant.now(), Duration.ZERO, new TransactionStatistics()));
     @Value("${datasource.json.file-location}")
     private String jsonFile;
+    @Value("${datasource.json.streaming:false}")
+    private boolean streaming;
+    @Value("${datasource.json.pipelined:false}")
+    private boolean pipelined;
+    @Value("${datasource.json.async-load:false}")
+    private boolean asyncLoad;
+    @Value("${datasource.json.parallel:false}")
+    private boolean parallel;
+    @Value("${datasource.json.parallel-threshold:100000}")
+    private int parallelThreshold;
+    @Value("${datasource.json.snapshot-location:}")
+    private String snapshotFile = "";
+    @Value("${datasource.json.shard-parallelism:0}")
+    private int shardParallelism;
+    @Value("${datasource.json.off-heap:false}")
+    private boolean offHeap;
+    @Value("${datasource.partition.index:0}")
+    private int partitionIndex;
+    @Value("${datasource.partition.count:1}")
+    private int partitionCount = 1;
+    @Value("${datasource.sketches.enabled:false}")
+    private boolean sketches;
+    @Value("${datasource.sketches.client-error:0.01}")
+    private double sketchClientError = 0.01;
+    @Value("${datasource.sketches.sender-error:0.001}")
+    private double sketchSenderError = 0.001;
+    @Value("${smallworld.virtual-threads.enabled:false}")
+    private boolean virtualThreads;
+
+    private final AtomicLong snapshotHits = new AtomicLong();
+    private final AtomicLong snapshotMisses = new AtomicLong();
+    private volatile long snapshotFileSize;
+    private final CompletableFuture<TransactionSnapshot> initialLoad = new CompletableFuture<>();
 
 
     /**
-     * Loading json file once and storing it in static variable.
+     * Loading json file once and publishing it as the first snapshot. With async load the application starts
+     * serving the empty snapshot right away while the load runs in the background, and reports ready once the
+     * loaded one is published.
      */
     @PostConstruct
     void initTransaction() {
         log.info("initTransaction : Loading and Storing Transactions.");
-        getAllTransactions();
+        if (!asyncLoad) {
+            initialLoad.complete(reload());
+            return;
+        }
+        Thread loader = VirtualThreads.factory("transaction-loader-", virtualThreads).newThread(() -> {
+            try {
+                initialLoad.complete(reload());
+            } catch (RuntimeException e) {
+                log.error("initTransaction : Loading Transactions Failed.", e);
+                initialLoad.completeExceptionally(e);
+            }
+        });
+        loader.setDaemon(true);
+        loader.start();
     }
 
 
     /**
-     * To get all transactions.
+     * To get the first load, completed once its snapshot is published, exceptionally when it failed.
+     *
+     * @return first load
+     */
+    CompletableFuture<TransactionSnapshot> getInitialLoad() {
+        return initialLoad;
+    }
+
+
+    /**
+     * Publishes the load metrics of the current snapshot; read on scrape, nothing is recorded on the query path.
+     *
+     * @param registry meter registry
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder("transaction.load.duration", snapshot, TimeUnit.NANOSECONDS,
+                        current -> current.get().getLoadDuration().toNanos())
+                .description("Duration of the load of the current snapshot")
+                .register(registry);
+        Gauge.builder("transaction.load.rows", snapshot, current -> current.get().getStatistics().getColumns().size())
+                .description("Rows of the current snapshot")
+                .baseUnit("rows")
+                .register(registry);
+        Gauge.builder("transaction.load.rows.per.second", snapshot, TransactionServiceImpl::rowsPerSecond)
+                .description("Rows loaded per second by the load of the current snapshot")
+                .register(registry);
+        Gauge.builder("transaction.snapshot.version", snapshot, current -> current.get().getVersion())
+                .description("Version of the current snapshot")
+                .register(registry);
+        Gauge.builder("transaction.snapshot.file.size", this, service -> service.snapshotFileSize)
+                .description("Size of the binary snapshot file")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("transaction.snapshot.lookups", snapshotHits, AtomicLong::get)
+                .description("Loads that looked for a current binary snapshot")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("transaction.snapshot.lookups", snapshotMisses, AtomicLong::get)
+                .description("Loads that looked for a current binary snapshot")
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+
+    /**
+     * To get all transactions, materialized from the columns on every call; O(n).
      *
      * @return transactions
      */
     @Override
     public List<Transaction> getAllTransaction() {
-        return transactions;
+        return getStatistics().getTransactions();
+    }
+
+
+    /**
+     * To get the columnar store of the loaded transactions.
+     *
+     * @return columns
+     */
+    @Override
+    public TransactionColumns getColumns() {
+        return getStatistics().getColumns();
     }
 
 
     /**
-     * It will read the json file from resources and map it to static transactions list.
+     * To get the statistics snapshot of the loaded transactions.
+     *
+     * @return statistics
      */
-    private void getAllTransactions() {
-        log.info("getAllTransactions : Reading file and mapping it to transactions list.");
+    @Override
+    public TransactionStatistics getStatistics() {
+        return snapshot.get().getStatistics();
+    }
+
+
+    /**
+     * To get the currently published snapshot; a single read, never blocks.
+     *
+     * @return snapshot
+     */
+    @Override
+    public TransactionSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+
+    /**
+     * Reads the json file again into a new snapshot and swaps it in. Readers keep using the previous snapshot
+     * until the swap and never see a partly loaded one. Rows ingested since the last load are replaced by the
+     * file content. With sketches enabled they are built as part of the load, and so are the filter and screening
+     * indexes on every load path, so no query pays for building them.
+     *
+     * @return the published snapshot
+     */
+    @Override
+    public synchronized TransactionSnapshot reload() {
+        long start = System.nanoTime();
+        TransactionStatistics statistics = getAllTransactions();
+        statistics.buildIndex();
+        if (sketches) {
+            TransactionSketches built = statistics.enableSketches(sketchClientError, sketchSenderError);
+            log.info("reload : Built sketches of {} bytes.", built.getSizeInBytes());
+        }
+        TransactionSnapshot loaded = new TransactionSnapshot(snapshot.get().getVersion() + 1, Instant.now(),
+                Duration.ofNanos(System.nanoTime() - start), statistics);
+        snapshot.set(loaded);
+        log.info("reload : Published snapshot version {} with {} rows.", loaded.getVersion(), statistics.getColumns().size());
+        return loaded;
+    }
+
+
+    /**
+     * Adds a transaction row to the loaded data, updating every aggregate incrementally. Waits for a running
+     * reload so the row lands in the new snapshot. A row of another partition is left to the node holding it.
+     *
+     * @param transaction transaction row
+     * @return whether the data changed
+     */
+    @Override
+    public synchronized boolean ingest(Transaction transaction) {
+        if (!partition().contains(transaction)) {
+            log.debug("ingest : Skipping mtn {} of another partition.", transaction.getMtn());
+            return false;
+        }
+        return getStatistics().add(transaction);
+    }
+
+
+    /**
+     * Marks an issue of the loaded data as solved.
+     *
+     * @param issueId issue identifier
+     * @return whether the issue was known and open
+     */
+    @Override
+    public synchronized boolean markIssueSolved(int issueId) {
+        return getStatistics().markIssueSolved(issueId);
+    }
+
+
+    /**
+     * It will restore the binary snapshot when one is configured and still matches the json file, otherwise read
+     * the json file and write a fresh snapshot for the next start. Shards are always read, the snapshot only covers
+     * a single json file. In off heap mode the columns of every path are kept outside the heap. A partitioned node
+     * only keeps the rows of its partition, and its snapshot file is named after the partition.
+     *
+     * @return statistics
+     */
+    private TransactionStatistics getAllTransactions() {
+        int threshold = parallel ? parallelThreshold : TransactionStatistics.SEQUENTIAL;
+        TransactionColumns.Storage storage = offHeap ? TransactionColumns.Storage.OFF_HEAP : TransactionColumns.Storage.HEAP;
+        TransactionPartition partition = partition();
+        long start = System.nanoTime();
+        TransactionFiles files = TransactionFiles.of(jsonFile);
+        if (files.isSharded()) {
+            TransactionStatistics loaded = readShards(files, threshold, storage, partition);
+            log.info("getAllTransactions : Loaded {} rows from json shards in {} ms.",
+                    loaded.getColumns().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return loaded;
+        }
+        if (!snapshotFile.isEmpty()) {
+            Optional<TransactionStatistics> restored = readSnapshot(snapshotPath(partition), threshold, storage);
+            (restored.isPresent() ? snapshotHits : snapshotMisses).incrementAndGet();
+            if (restored.isPresent()) {
+                log.info("getAllTransactions : Restored {} rows from snapshot in {} ms.",
+                        restored.get().getColumns().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return restored.get();
+            }
+        }
+        TransactionStatistics loaded = readJson(threshold, storage, partition);
+        log.info("getAllTransactions : Loaded {} rows from json in {} ms.",
+                loaded.getColumns().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (!snapshotFile.isEmpty()) {
+            writeSnapshot(snapshotPath(partition), loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * It will read the json file from resources and aggregate it in a single pass. In streaming mode rows are
+     * parsed one at a time instead of binding the whole list first. In pipelined mode reading, parsing and encoding
+     * overlap on three threads and the indexes are built as the last stage. In parallel mode files of at least the
+     * threshold row count are aggregated in chunks on all cores. Client names are interned while parsing, so a
+     * repeated name is never allocated twice.
+     *
+     * @return statistics
+     */
+    private TransactionStatistics readJson(int threshold, TransactionColumns.Storage storage, TransactionPartition partition) {
+        log.info("readJson : Reading file and mapping it to transactions list.");
         ObjectMapper mapper = new ObjectMapper();
         try {
             File initialFile = new File(jsonFile);
-            transactions = mapper.readValue(initialFile, new TypeReference<List<Transaction>>() {
-            });
+            if (pipelined) {
+                return new PipelinedTransactionReader(mapper, threshold, storage, partition, virtualThreads).read(initialFile.toPath());
+            }
+            if (streaming) {
+                return new TransactionStreamReader(mapper, threshold, storage, partition).read(initialFile);
+            }
+            List<Transaction> transactions = mapper.readerFor(new TypeReference<List<Transaction>>() {
+            }).withAttribute(ClientNameDeserializer.NAMES, new StringDictionary()).readValue(initialFile);
+            return TransactionStatistics.of(partition.filter(transactions.iterator()), threshold, storage);
+        } catch (Exception e) {
+            throw new ServiceException("Loading Transaction Failed.");
+        }
+    }
+
+    /**
+     * It will read every shard of the directory or glob concurrently, on as many threads as configured or one per
+     * core, and merge them in file name order.
+     *
+     * @return statistics
+     */
+    private TransactionStatistics readShards(TransactionFiles files, int threshold, TransactionColumns.Storage storage,
+                                             TransactionPartition partition) {
+        int threads = shardParallelism > 0 ? shardParallelism : Runtime.getRuntime().availableProcessors();
+        try {
+            List<Path> shards = files.list();
+            log.info("readShards : Reading {} shards of {} on {} threads.", shards.size(), jsonFile, threads);
+            return new ShardedTransactionReader(new ObjectMapper(), threshold, threads, storage, partition,
+                    virtualThreads).read(shards);
         } catch (Exception e) {
             throw new ServiceException("Loading Transaction Failed.");
         }
     }
+
+    /**
+     * A snapshot that can't be read is only logged; the json file is the source of truth.
+     */
+    private Optional<TransactionStatistics> readSnapshot(Path snapshot, int threshold, TransactionColumns.Storage storage) {
+        try {
+            Optional<TransactionStatistics> restored = BinarySnapshotFile.read(snapshot, Path.of(jsonFile), threshold, storage);
+            if (restored.isEmpty()) {
+                log.info("readSnapshot : No current snapshot at {}.", snapshot);
+            } else {
+                snapshotFileSize = Files.size(snapshot);
+            }
+            return restored;
+        } catch (IOException e) {
+            log.warn("readSnapshot : Ignoring unreadable snapshot {}.", snapshot, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * A snapshot that can't be written is only logged; the next start reads the json file again.
+     */
+    private void writeSnapshot(Path snapshot, TransactionStatistics loaded) {
+        long start = System.nanoTime();
+        try {
+            BinarySnapshotFile.write(loaded, Path.of(jsonFile), snapshot);
+            snapshotFileSize = Files.size(snapshot);
+            log.info("writeSnapshot : Wrote snapshot {} in {} ms.", snapshot, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            log.warn("writeSnapshot : Writing snapshot {} failed.", snapshot, e);
+        }
+    }
+
+    private TransactionPartition partition() {
+        return new TransactionPartition(partitionIndex, partitionCount);
+    }
+
+    /**
+     * A partition's snapshot only holds its rows, so it gets its own file and is never restored into another one.
+     */
+    private Path snapshotPath(TransactionPartition partition) {
+        return partition.isAll() ? Path.of(snapshotFile)
+                : Path.of(snapshotFile + ".partition-" + partition.getIndex() + "-of-" + partition.getCount());
+    }
+
+    private static double rowsPerSecond(AtomicReference<TransactionSnapshot> snapshot) {
+        TransactionSnapshot current = snapshot.get();
+        long nanos = current.getLoadDuration().toNanos();
+        return nanos == 0 ? 0.0 : current.getStatistics().getColumns().size() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
 }
@@ -0,0 +1,68 @@
+package com.smallworld.service.impl;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.ClientNameDeserializer;
+import com.smallworld.data.StringDictionary;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionColumns;
+import com.smallworld.data.TransactionPartition;
+import com.smallworld.data.TransactionStatistics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the transactions json array one element at a time and adds every row straight into the statistics,
+ * so no boxed {@code List<Transaction>} is ever held. Repeated client names are resolved from the parser's buffer
+ * instead of being allocated per row. Rows of other partitions are dropped as they are parsed.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class TransactionStreamReader {
+
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    private final ObjectMapper mapper;
+    private final int parallelThreshold;
+    private final TransactionColumns.Storage storage;
+    private final TransactionPartition partition;
+
+    /**
+     * Streams the file into a statistics snapshot and logs the throughput and the sum of the heap pool peaks of the
+     * run. The pools peak at different times, eden before a collection and old generation after it, so the sum is
+     * an upper bound of the peak heap rather than the peak itself.
+     *
+     * @param file json array of transactions
+     * @return statistics
+     * @throws IOException when the file can't be read or parsed
+     */
+    public TransactionStatistics read(File file) throws IOException {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long start = System.nanoTime();
+
+        TransactionStatistics statistics;
+        try (MappingIterator<Transaction> iterator = mapper.readerFor(Transaction.class)
+                .withAttribute(ClientNameDeserializer.NAMES, new StringDictionary()).readValues(file)) {
+            statistics = TransactionStatistics.of(partition.filter(iterator), parallelThreshold, storage);
+        }
+        long rows = statistics.getColumns().size();
+
+        long elapsedNanos = Math.max(System.nanoTime() - start, 1L);
+        long rowsPerSecond = rows * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        long poolPeaks = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        log.info("read : Streamed {} rows in {} ms ({} rows/sec), sum of heap pool peaks {} MB.",
+                rows, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rowsPerSecond, poolPeaks / BYTES_PER_MB);
+        return statistics;
+    }
+}
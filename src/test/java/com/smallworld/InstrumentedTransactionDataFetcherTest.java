@@ -0,0 +1,101 @@
+package com.smallworld;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.Transaction;
+import com.smallworld.service.impl.TransactionServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class InstrumentedTransactionDataFetcherTest {
+
+    private static final int ROWS = 100;
+
+    @TempDir
+    Path directory;
+
+    private MeterRegistry registry;
+    private InstrumentedTransactionDataFetcher transactionDataFetcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            transactions.add(Transaction.builder()
+                    .mtn(i)
+                    .amount((double) i)
+                    .senderFullName("Sender " + i % 10)
+                    .beneficiaryFullName("Beneficiary " + i % 10)
+                    .issueSolved(true)
+                    .build());
+        }
+        Path jsonFile = directory.resolve("transactions.json");
+        new ObjectMapper().writeValue(jsonFile.toFile(), transactions);
+        TransactionServiceImpl transactionService = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(transactionService, "jsonFile", jsonFile.toString());
+        transactionService.reload();
+        registry = new SimpleMeterRegistry();
+        transactionDataFetcher = new InstrumentedTransactionDataFetcher(transactionService, registry);
+    }
+
+
+    /**
+     * Unit test to test every call is timed under its method and answered like the plain fetcher.
+     */
+    @Test
+    void queriesAreTimedPerMethod() {
+        Assertions.assertEquals(4950, transactionDataFetcher.getTotalTransactionAmount());
+        transactionDataFetcher.getTotalTransactionAmount();
+        Assertions.assertEquals(Boolean.FALSE, transactionDataFetcher.hasOpenComplianceIssues("Sender 1"));
+
+        Assertions.assertEquals(2, timerCount("getTotalTransactionAmount"));
+        Assertions.assertEquals(1, timerCount("hasOpenComplianceIssues"));
+        Assertions.assertEquals(0, timerCount("getTopSender"));
+        Assertions.assertTrue(registry.get("transaction.fetcher.query").tag("method", "getTotalTransactionAmount")
+                .timer().totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+
+    /**
+     * Unit test to test scanning queries record the rows they walked.
+     */
+    @Test
+    void scanningQueriesRecordRows() {
+        transactionDataFetcher.getTransactionsByBeneficiaryName();
+        transactionDataFetcher.getTransactionMtnsSentBy("Sender 1");
+        transactionDataFetcher.getTopNTransactionsByAmount(10);
+
+        Assertions.assertEquals(ROWS, rowsScanned("getTransactionsByBeneficiaryName"));
+        Assertions.assertEquals(ROWS / 10, rowsScanned("getTransactionMtnsSentBy"));
+        Assertions.assertEquals(ROWS, rowsScanned("getTopNTransactionsByAmount"));
+    }
+
+
+    /**
+     * Unit test to test a failing query is still timed.
+     */
+    @Test
+    void failedQueryIsTimed() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> transactionDataFetcher.getTopNSenders(-1));
+
+        Assertions.assertEquals(1, timerCount("getTopNSenders"));
+    }
+
+    private long timerCount(String method) {
+        return registry.get("transaction.fetcher.query").tag("method", method).timer().count();
+    }
+
+    private double rowsScanned(String method) {
+        return registry.get("transaction.fetcher.rows.scanned").tag("method", method).summary().totalAmount();
+    }
+}
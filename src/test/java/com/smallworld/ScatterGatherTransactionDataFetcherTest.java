@@ -0,0 +1,196 @@
+package com.smallworld;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.ClientScreening;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionAggregate;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.service.impl.TransactionServiceImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Starts three partition nodes of the application on loopback ports over the same json file and checks the scatter
+ * gather coordinator answers every query like a single node holding all the data.
+ */
+class ScatterGatherTransactionDataFetcherTest {
+
+    private static final int NODES = 3;
+    private static final int TRANSACTIONS = 2_000;
+
+    @TempDir
+    static Path directory;
+
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private static TransactionDataFetcher single;
+    private static ScatterGatherTransactionDataFetcher coordinator;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        Random random = new Random(21);
+        List<Transaction> transactions = new ArrayList<>();
+        int issueId = 0;
+        for (int mtn = 1; mtn <= TRANSACTIONS; mtn++) {
+            double amount = random.nextInt(1_000_000) / 100.0;
+            int senderNumber = random.nextInt(100);
+            // a slash in a name must survive the trip to the nodes.
+            String sender = senderNumber == 99 ? "Sender 99/Sons" : "Sender " + senderNumber;
+            String beneficiary = "Beneficiary " + random.nextInt(100);
+            int issues = random.nextInt(3);
+            for (int row = 0; row <= issues; row++) {
+                transactions.add(Transaction.builder()
+                        .mtn(mtn)
+                        .amount(amount)
+                        .senderFullName(sender)
+                        .senderAge(18 + random.nextInt(60))
+                        .beneficiaryFullName(beneficiary)
+                        .beneficiaryAge(18 + random.nextInt(60))
+                        .issueId(issues == 0 ? null : ++issueId)
+                        .issueSolved(issues == 0 || random.nextBoolean())
+                        .issueMessage(issues == 0 ? null : "Issue " + issueId % 7)
+                        .build());
+            }
+        }
+        Path jsonFile = directory.resolve("transactions.json");
+        new ObjectMapper().writeValue(jsonFile.toFile(), transactions);
+
+        TransactionServiceImpl transactionService = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(transactionService, "jsonFile", jsonFile.toString());
+        transactionService.reload();
+        single = new TransactionDataFetcher(transactionService);
+
+        List<URI> uris = new ArrayList<>();
+        for (int index = 0; index < NODES; index++) {
+            ConfigurableApplicationContext node = new SpringApplicationBuilder(SmallWorldCodingTestApplication.class)
+                    .run("--server.port=0",
+                            "--server.address=127.0.0.1",
+                            "--datasource.json.file-location=" + jsonFile,
+                            "--datasource.partition.index=" + index,
+                            "--datasource.partition.count=" + NODES,
+                            "--logging.level.root=WARN");
+            nodes.add(node);
+            uris.add(URI.create("http://127.0.0.1:" + node.getEnvironment().getProperty("local.server.port")));
+        }
+        coordinator = new ScatterGatherTransactionDataFetcher(uris, Duration.ofSeconds(10));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+
+    /**
+     * Unit test to test the sums, maxima and counts merged over the nodes.
+     */
+    @Test
+    void mergesScalarQueries() {
+        Assertions.assertEquals(single.getTotalTransactionAmount(), coordinator.getTotalTransactionAmount(), 1e-6);
+        Assertions.assertEquals(single.getMaxTransactionAmount(), coordinator.getMaxTransactionAmount());
+        Assertions.assertEquals(single.countUniqueClients(), coordinator.countUniqueClients());
+        for (String client : List.of("Sender 3", "Sender 42", "Sender 99/Sons", "Beneficiary 7", "Nobody")) {
+            Assertions.assertEquals(single.getTotalTransactionAmountSentBy(client), coordinator.getTotalTransactionAmountSentBy(client), 1e-6);
+            Assertions.assertEquals(single.hasOpenComplianceIssues(client), coordinator.hasOpenComplianceIssues(client));
+            Assertions.assertEquals(single.countOpenComplianceIssues(client), coordinator.countOpenComplianceIssues(client));
+            int[] expected = single.getTransactionMtnsSentBy(client);
+            int[] actual = coordinator.getTransactionMtnsSentBy(client);
+            Arrays.sort(expected);
+            Arrays.sort(actual);
+            Assertions.assertArrayEquals(expected, actual);
+        }
+        List<String> clients = List.of("Sender 3", "Beneficiary 7", "Nobody");
+        Assertions.assertEquals(single.hasOpenComplianceIssues(clients), coordinator.hasOpenComplianceIssues(clients));
+        Map<String, Double> totals = coordinator.getTotalTransactionAmountSentBy(clients);
+        single.getTotalTransactionAmountSentBy(clients).forEach((client, total) -> Assertions.assertEquals(total, totals.get(client), 1e-6));
+    }
+
+
+    /**
+     * Unit test to test the top k rankings, which need every sender's total over all nodes.
+     */
+    @Test
+    void mergesRankings() {
+        Assertions.assertEquals(single.getTop3TransactionsByAmount(), coordinator.getTop3TransactionsByAmount());
+        Assertions.assertEquals(single.getTopNTransactionsByAmount(100), coordinator.getTopNTransactionsByAmount(100));
+        Assertions.assertEquals(single.getTopSender(), coordinator.getTopSender());
+        Assertions.assertEquals(single.getTopNSenders(10).keySet(), coordinator.getTopNSenders(10).keySet());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> coordinator.getTopNSenders(-1));
+
+        TransactionFilter filter = TransactionFilter.builder().minAmount(1_000.0).maxAmount(5_000.0).minSenderAge(30)
+                .issueStatus(TransactionFilter.IssueStatus.OPEN).build();
+        for (int k : new int[]{0, 5}) {
+            TransactionAggregate expected = single.aggregate(filter, k);
+            TransactionAggregate actual = coordinator.aggregate(filter, k);
+            Assertions.assertEquals(expected.getTransactionCount(), actual.getTransactionCount());
+            Assertions.assertEquals(expected.getTotalAmount(), actual.getTotalAmount(), 1e-6);
+            Assertions.assertEquals(expected.getMaxAmount(), actual.getMaxAmount());
+            Assertions.assertEquals(expected.getTopSenders().keySet(), actual.getTopSenders().keySet());
+        }
+    }
+
+
+    /**
+     * Unit test to test the row level queries, whose results are the union of the nodes' ones.
+     */
+    @Test
+    void mergesRowQueries() {
+        Assertions.assertEquals(single.getUnsolvedIssueIds(), coordinator.getUnsolvedIssueIds());
+        List<String> expectedMessages = new ArrayList<>(single.getAllSolvedIssueMessages());
+        List<String> actualMessages = new ArrayList<>(coordinator.getAllSolvedIssueMessages());
+        expectedMessages.sort(null);
+        actualMessages.sort(null);
+        Assertions.assertEquals(expectedMessages, actualMessages);
+
+        Map<String, List<Transaction>> expected = single.getTransactionsByBeneficiaryName();
+        Map<String, List<Transaction>> actual = coordinator.getTransactionsByBeneficiaryName();
+        Assertions.assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((beneficiary, transactions) ->
+                Assertions.assertEquals(new HashSet<>(transactions), new HashSet<>(actual.get(beneficiary))));
+    }
+
+
+    /**
+     * Unit test to test screening more clients than fit in one batch, with issue ids grouped by node.
+     */
+    @Test
+    void mergesScreening() {
+        List<String> clients = new ArrayList<>();
+        for (int i = 0; i < 2 * ScatterGatherTransactionDataFetcher.SCREENING_BATCH_SIZE + 10; i++) {
+            clients.add(i % 2 == 0 ? "Sender " + i % 120 : "Beneficiary " + i % 120);
+        }
+        List<ClientScreening> expected = new ArrayList<>();
+        List<ClientScreening> actual = new ArrayList<>();
+
+        single.screenClients(clients.iterator(), expected::add);
+        coordinator.screenClients(clients.iterator(), actual::add);
+
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).getClientFullName(), actual.get(i).getClientFullName());
+            Assertions.assertEquals(expected.get(i).isOpen(), actual.get(i).isOpen());
+            Assertions.assertEquals(expected.get(i).getOpenIssueCount(), actual.get(i).getOpenIssueCount());
+            int[] expectedIds = expected.get(i).getOpenIssueIds().clone();
+            int[] actualIds = actual.get(i).getOpenIssueIds().clone();
+            Arrays.sort(expectedIds);
+            Arrays.sort(actualIds);
+            Assertions.assertArrayEquals(expectedIds, actualIds);
+        }
+    }
+}
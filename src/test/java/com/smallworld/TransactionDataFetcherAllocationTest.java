@@ -0,0 +1,86 @@
+package com.smallworld;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.Transaction;
+import com.smallworld.service.impl.TransactionServiceImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class TransactionDataFetcherAllocationTest {
+
+    private static final int ROWS = 1_000;
+    private static final int WARMUP_CALLS = 200_000;
+    private static final int MEASURED_CALLS = 100_000;
+
+    @TempDir
+    Path directory;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private TransactionDataFetcher transactionDataFetcher;
+    private double sink;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            transactions.add(Transaction.builder()
+                    .mtn(i)
+                    .amount((double) i)
+                    .senderFullName("Sender " + i % 10)
+                    .beneficiaryFullName("Beneficiary " + i % 10)
+                    .issueId(i % 3 == 0 ? i : null)
+                    .issueSolved(i % 2 == 0)
+                    .build());
+        }
+        Path jsonFile = directory.resolve("transactions.json");
+        new ObjectMapper().writeValue(jsonFile.toFile(), transactions);
+        TransactionServiceImpl transactionService = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(transactionService, "jsonFile", jsonFile.toString());
+        transactionService.reload();
+        transactionDataFetcher = new TransactionDataFetcher(transactionService);
+    }
+
+
+    /**
+     * Unit test to test the scalar queries allocate nothing once warmed up, measured with the allocated bytes
+     * counter of the calling thread.
+     */
+    @Test
+    void scalarQueriesDoNotAllocate() {
+        Assertions.assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        assertAllocationFree(() -> sink += transactionDataFetcher.getTotalTransactionAmount());
+        assertAllocationFree(() -> sink += transactionDataFetcher.getMaxTransactionAmount());
+        assertAllocationFree(() -> sink += transactionDataFetcher.getTotalTransactionAmountSentBy("Sender 1"));
+        assertAllocationFree(() -> sink += transactionDataFetcher.getTotalTransactionAmountSentBy("Unknown"));
+        assertAllocationFree(() -> sink += transactionDataFetcher.countUniqueClients());
+        assertAllocationFree(() -> sink += transactionDataFetcher.hasOpenComplianceIssues("Beneficiary 3") ? 1 : 0);
+        assertAllocationFree(() -> sink += transactionDataFetcher.hasOpenComplianceIssues("Unknown") ? 1 : 0);
+        assertAllocationFree(() -> sink += transactionDataFetcher.countOpenComplianceIssues("Sender 3"));
+        assertAllocationFree(() -> sink += transactionDataFetcher.getTopSender().isPresent() ? 1 : 0);
+        Assertions.assertTrue(sink > 0);
+    }
+
+    private void assertAllocationFree(Runnable query) {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            query.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            query.run();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        Assertions.assertTrue(allocated < MEASURED_CALLS, allocated + " bytes allocated by " + MEASURED_CALLS + " calls");
+    }
+}
@@ -1,6 +1,8 @@
 package com.smallworld;
 
 import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.data.TransactionStatistics;
 import com.smallworld.service.TransactionService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -15,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -33,7 +36,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getTotalTransactionAmountWhenTransactionExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         Assertions.assertEquals(745.86, transactionDataFetcher.getTotalTransactionAmount());
     }
 
@@ -43,7 +46,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getTotalTransactionAmountWhenTransactionNotExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getEmptyTransactions());
+        mockTransactions(getEmptyTransactions());
         Assertions.assertEquals(0.0, transactionDataFetcher.getTotalTransactionAmount());
     }
 
@@ -53,7 +56,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getTotalTransactionAmountSentByWhenTransactionExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         Assertions.assertEquals(678.06, transactionDataFetcher.getTotalTransactionAmountSentBy("Tom Shelby"));
     }
 
@@ -63,7 +66,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getTotalTransactionAmountSentByWhenNoTransactionExistAgainstSender() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         double totalTransactionAmountSentBy = transactionDataFetcher.getTotalTransactionAmountSentBy("Alfie Solomons");
         Assertions.assertEquals(0.0, totalTransactionAmountSentBy);
     }
@@ -74,18 +77,44 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getTotalTransactionAmountSentByWhenTransactionNotExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getEmptyTransactions());
+        mockTransactions(getEmptyTransactions());
         double totalTransactionAmountSentBy = transactionDataFetcher.getTotalTransactionAmountSentBy("Tom Shelby");
         Assertions.assertEquals(0.0, totalTransactionAmountSentBy);
     }
 
 
+    /**
+     * Unit test to test the batched getTotalTransactionAmountSentBy, unknown senders map to zero.
+     */
+    @Test
+    void getTotalTransactionAmountSentByForSeveralSenders() {
+        mockTransactions(getTransactions());
+        Map<String, Double> expectedResult = new LinkedHashMap<>();
+        expectedResult.put("Tom Shelby", 678.06);
+        expectedResult.put("Aunt Polly", 67.8);
+        expectedResult.put("Alfie Solomons", 0.0);
+        Assertions.assertEquals(expectedResult,
+                transactionDataFetcher.getTotalTransactionAmountSentBy(List.of("Tom Shelby", "Aunt Polly", "Alfie Solomons")));
+    }
+
+
+    /**
+     * Unit test to test getTransactionMtnsSentBy returns each transaction once.
+     */
+    @Test
+    void getTransactionMtnsSentByWhenTransactionExist() {
+        mockTransactions(getTransactions());
+        Assertions.assertArrayEquals(new int[]{663458, 1284564, 1651665}, transactionDataFetcher.getTransactionMtnsSentBy("Tom Shelby"));
+        Assertions.assertArrayEquals(new int[0], transactionDataFetcher.getTransactionMtnsSentBy("Alfie Solomons"));
+    }
+
+
     /**
      * Unit test to test getMaxTransactionAmount when transaction list exits.
      */
     @Test
     void getMaxTransactionAmountWhenTransactionExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         Assertions.assertEquals(430.2, transactionDataFetcher.getMaxTransactionAmount());
     }
 
@@ -95,7 +124,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getMaxTransactionAmountWhenTransactionNotExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getEmptyTransactions());
+        mockTransactions(getEmptyTransactions());
         Assertions.assertEquals(0.0, transactionDataFetcher.getMaxTransactionAmount());
     }
 
@@ -105,7 +134,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void countUniqueClientsWhenTransactionExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         Assertions.assertEquals(6, transactionDataFetcher.countUniqueClients());
     }
 
@@ -115,7 +144,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void countUniqueClientsWhenTransactionNotExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getEmptyTransactions());
+        mockTransactions(getEmptyTransactions());
         Assertions.assertEquals(0, transactionDataFetcher.countUniqueClients());
     }
 
@@ -125,7 +154,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void hasOpenComplianceIssuesWhenClientHasUnresolvedIssues() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         Assertions.assertTrue(transactionDataFetcher.hasOpenComplianceIssues("Tom Shelby"));
     }
 
@@ -135,7 +164,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void hasOpenComplianceIssuesWhenClientHasNoUnresolvedIssues() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         Assertions.assertFalse(transactionDataFetcher.hasOpenComplianceIssues("Ben Younger"));
     }
 
@@ -145,18 +174,45 @@ class TransactionDataFetcherTest {
      */
     @Test
     void hasOpenComplianceIssuesWhenTransactionNotExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getEmptyTransactions());
+        mockTransactions(getEmptyTransactions());
         Assertions.assertFalse(transactionDataFetcher.hasOpenComplianceIssues("Tom Shelby"));
     }
 
 
+    /**
+     * Unit test to test the batched hasOpenComplianceIssues keeps the requested order.
+     */
+    @Test
+    void hasOpenComplianceIssuesForSeveralClients() {
+        mockTransactions(getTransactions());
+        Map<String, Boolean> expectedResult = new LinkedHashMap<>();
+        expectedResult.put("Arthur Shelby", true);
+        expectedResult.put("Aunt Polly", false);
+        expectedResult.put("Ben Younger", false);
+        Assertions.assertEquals(expectedResult,
+                transactionDataFetcher.hasOpenComplianceIssues(List.of("Arthur Shelby", "Aunt Polly", "Ben Younger")));
+    }
+
+
+    /**
+     * Unit test to test countOpenComplianceIssues counts issues on both sides of a transaction.
+     */
+    @Test
+    void countOpenComplianceIssuesWhenTransactionExist() {
+        mockTransactions(getTransactions());
+        Assertions.assertEquals(2, transactionDataFetcher.countOpenComplianceIssues("Tom Shelby"));
+        Assertions.assertEquals(1, transactionDataFetcher.countOpenComplianceIssues("Alfie Solomons"));
+        Assertions.assertEquals(0, transactionDataFetcher.countOpenComplianceIssues("Aunt Polly"));
+    }
+
+
     /**
      * Unit test to test getTransactionsByBeneficiaryName when transaction list exits.
      */
     @Test
     void getTransactionsByBeneficiaryNameWhenTransactionExist() {
         List<Transaction> transactions = getTransactions();
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         Map<String, List<Transaction>> actualResult = transactionDataFetcher.getTransactionsByBeneficiaryName();
 
         Map<String, List<Transaction>> expectedResult = new HashMap<>();
@@ -177,13 +233,13 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getTransactionsByBeneficiaryNameWhenTransactionNotExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getEmptyTransactions());
+        mockTransactions(getEmptyTransactions());
         Assertions.assertEquals(Collections.emptyMap(), transactionDataFetcher.getTransactionsByBeneficiaryName());
     }
 
     @Test
     void getUnsolvedIssueIdsWhenTransactionExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         Set<Integer> actualResult = transactionDataFetcher.getUnsolvedIssueIds();
         Set<Integer> expectedResult = new HashSet<>(List.of(1, 3));
         Assertions.assertEquals(expectedResult, actualResult);
@@ -195,7 +251,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getUnsolvedIssueIdsWhenTransactionNotExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getEmptyTransactions());
+        mockTransactions(getEmptyTransactions());
         Assertions.assertEquals(Collections.emptySet(), transactionDataFetcher.getUnsolvedIssueIds());
     }
 
@@ -205,7 +261,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getAllSolvedIssueMessages_WhenTransactionExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         List<String> actualResult = transactionDataFetcher.getAllSolvedIssueMessages();
         List<String> expectedResult = List.of("Never gonna give you up", "Never gonna let you down");
         Assertions.assertEquals(expectedResult, actualResult);
@@ -217,7 +273,7 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getAllSolvedIssueMessages_WhenTransactionNotExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getEmptyTransactions());
+        mockTransactions(getEmptyTransactions());
         Assertions.assertEquals(Collections.emptyList(), transactionDataFetcher.getAllSolvedIssueMessages());
     }
 
@@ -228,7 +284,7 @@ class TransactionDataFetcherTest {
     @Test
     void getTop3TransactionsByAmountWhenTransactionExist() {
         List<Transaction> transactions = getTransactions();
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(transactions);
+        mockTransactions(transactions);
         List<Transaction> actualResult = transactionDataFetcher.getTop3TransactionsByAmount();
         List<Transaction> expectedResult = new ArrayList<>(List.of(transactions.get(0), transactions.get(1), transactions.get(4)));
         Assertions.assertEquals(expectedResult, actualResult);
@@ -240,17 +296,44 @@ class TransactionDataFetcherTest {
      */
     @Test
     void getTop3TransactionsByAmountWhenTransactionNotExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getEmptyTransactions());
+        mockTransactions(getEmptyTransactions());
         Assertions.assertEquals(Collections.emptyList(), transactionDataFetcher.getTop3TransactionsByAmount());
     }
 
 
+    /**
+     * Unit test to test getTopNTransactionsByAmount beyond and below the top 3.
+     */
+    @Test
+    void getTopNTransactionsByAmountWhenTransactionExist() {
+        List<Transaction> transactions = getTransactions();
+        mockTransactions(transactions);
+        Assertions.assertEquals(List.of(transactions.get(0), transactions.get(1), transactions.get(4), transactions.get(3)),
+                transactionDataFetcher.getTopNTransactionsByAmount(10));
+        Assertions.assertEquals(List.of(transactions.get(0), transactions.get(1)), transactionDataFetcher.getTopNTransactionsByAmount(2));
+    }
+
+
+    /**
+     * Unit test to test getTopNSenders when transaction list exits.
+     */
+    @Test
+    void getTopNSendersWhenTransactionExist() {
+        mockTransactions(getTransactions());
+        Map<String, Double> expectedResult = new LinkedHashMap<>();
+        expectedResult.put("Tom Shelby", 678.06);
+        expectedResult.put("Aunt Polly", 67.8);
+        ReflectionAssert.assertReflectionEquals(expectedResult, transactionDataFetcher.getTopNSenders(5));
+        Assertions.assertEquals(List.of("Tom Shelby"), List.copyOf(transactionDataFetcher.getTopNSenders(1).keySet()));
+    }
+
+
     /**
      * Unit test to test getTop3TransactionsByAmount when transaction list exits.
      */
     @Test
     void getTopSenderWhenTransactionExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getTransactions());
+        mockTransactions(getTransactions());
         Assertions.assertEquals(Optional.of("Tom Shelby"), transactionDataFetcher.getTopSender());
     }
 
@@ -260,10 +343,41 @@ class TransactionDataFetcherTest {
      */
     @Test
     void testGetTopSender_WhenTransactionDoesNotExist() {
-        Mockito.when(transactionService.getAllTransaction()).thenReturn(getEmptyTransactions());
+        mockTransactions(getEmptyTransactions());
         Assertions.assertEquals(Optional.empty(), transactionDataFetcher.getTopSender());
     }
 
+    /**
+     * Stubs the service with the statistics snapshot of the given rows.
+     *
+     * @param transactions rows
+     */
+    /**
+     * Unit test to test the filtered total, maximum and top senders.
+     */
+    @Test
+    void filteredQueriesWhenTransactionExist() {
+        mockTransactions(getTransactions());
+        TransactionFilter cleared = TransactionFilter.builder().issueStatus(TransactionFilter.IssueStatus.CLEARED).build();
+        Assertions.assertEquals(580.4, transactionDataFetcher.getTotalTransactionAmount(
+                TransactionFilter.builder().minAmount(100.0).build()), 1e-9);
+        Assertions.assertEquals(580.4, transactionDataFetcher.getTotalTransactionAmount(
+                TransactionFilter.builder().issueStatus(TransactionFilter.IssueStatus.OPEN).build()), 1e-9);
+        Assertions.assertEquals(97.66, transactionDataFetcher.getMaxTransactionAmount(
+                cleared.and(TransactionFilter.builder().maxBeneficiaryAge(40).build())));
+        Map<String, Double> topSenders = new LinkedHashMap<>();
+        topSenders.put("Tom Shelby", 97.66);
+        topSenders.put("Aunt Polly", 67.8);
+        Assertions.assertEquals(topSenders, transactionDataFetcher.getTopNSenders(cleared, 2));
+        Assertions.assertEquals(0.0, transactionDataFetcher.getMaxTransactionAmount(
+                TransactionFilter.builder().minSenderAge(90).build()));
+    }
+
+
+    private void mockTransactions(List<Transaction> transactions) {
+        Mockito.when(transactionService.getStatistics()).thenReturn(TransactionStatistics.of(transactions));
+    }
+
     /**
      * To Get Mock List;
      *
@@ -0,0 +1,61 @@
+package com.smallworld.config;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+class VirtualThreadsTest {
+
+
+    /**
+     * Unit test to test the executor runs tasks on named virtual threads where the runtime has them, and fails
+     * fast where it doesn't.
+     */
+    @Test
+    void perTaskExecutorRunsOnVirtualThreads() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            Assertions.assertThrows(IllegalStateException.class, () -> VirtualThreads.perTaskExecutor("test-"));
+            return;
+        }
+        CompletableFuture<Thread> thread = new CompletableFuture<>();
+
+        VirtualThreads.perTaskExecutor("test-").execute(() -> thread.complete(Thread.currentThread()));
+
+        Thread ranOn = thread.get(10, TimeUnit.SECONDS);
+        Assertions.assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(ranOn));
+        Assertions.assertEquals("test-0", ranOn.getName());
+    }
+
+
+    /**
+     * Unit test to test every thread of a factory gets the next number.
+     */
+    @Test
+    void factoryNumbersThreads() {
+        if (!VirtualThreads.isSupported()) {
+            Assertions.assertThrows(IllegalStateException.class, () -> VirtualThreads.factory("test-"));
+            return;
+        }
+        ThreadFactory factory = VirtualThreads.factory("test-");
+
+        Assertions.assertEquals("test-0", factory.newThread(() -> { }).getName());
+        Assertions.assertEquals("test-1", factory.newThread(() -> { }).getName());
+    }
+
+
+    /**
+     * Unit test to test the platform thread mode numbers platform threads the same way, and that only Java 21 on
+     * has virtual threads.
+     */
+    @Test
+    void platformFactoryNumbersThreads() {
+        ThreadFactory factory = VirtualThreads.factory("test-", false);
+
+        Assertions.assertEquals("test-0", factory.newThread(() -> { }).getName());
+        Assertions.assertEquals("test-1", factory.newThread(() -> { }).getName());
+        Assertions.assertEquals(Runtime.version().feature() >= 21, VirtualThreads.isSupported());
+    }
+}
@@ -0,0 +1,248 @@
+package com.smallworld.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.TransactionDataFetcher;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.exception.ExceptionResponse;
+import com.smallworld.service.impl.TransactionServiceImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class TransactionControllerTest {
+
+    @TempDir
+    Path directory;
+
+    private TransactionServiceImpl transactionService;
+    private PreSerializedResponses responses;
+    private TransactionController transactionController;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            transactions.add(Transaction.builder()
+                    .mtn(i)
+                    .amount(10.0 * i)
+                    .senderFullName("Sender " + i % 2)
+                    .beneficiaryFullName("Beneficiary " + i % 2)
+                    .issueId(i)
+                    .issueSolved(false)
+                    .build());
+        }
+        Path jsonFile = directory.resolve("transactions.json");
+        new ObjectMapper().writeValue(jsonFile.toFile(), transactions);
+        transactionService = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(transactionService, "jsonFile", jsonFile.toString());
+        transactionService.reload();
+        responses = new PreSerializedResponses(transactionService, new ObjectMapper());
+        transactionController = new TransactionController(new TransactionDataFetcher(transactionService), responses,
+                new ObjectMapper());
+    }
+
+
+    /**
+     * Unit test to test an unchanged result is served from the same pre-serialized body with a stable ETag.
+     */
+    @Test
+    void unchangedResultIsServedFromCache() {
+        ResponseEntity<byte[]> first = transactionController.getTopNSenders(2, null);
+        ResponseEntity<byte[]> second = transactionController.getTopNSenders(2, null);
+
+        Assertions.assertEquals(HttpStatus.OK, first.getStatusCode());
+        Assertions.assertEquals("{\"Sender 1\":250.0,\"Sender 0\":200.0}", new String(first.getBody(), StandardCharsets.UTF_8));
+        Assertions.assertSame(first.getBody(), second.getBody());
+        Assertions.assertEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+    }
+
+
+    /**
+     * Unit test to test the filtered aggregate endpoint, before and after an issue of a matching transaction is solved.
+     */
+    @Test
+    void filteredAggregate() {
+        ResponseEntity<byte[]> response = transactionController.aggregate(30.0, 70.0, null, null, null, null,
+                TransactionFilter.IssueStatus.OPEN, 1, null);
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals("{\"transactionCount\":5,\"totalAmount\":250.0,\"maxAmount\":70.0,\"topSenders\":{\"Sender 1\":150.0}}",
+                new String(response.getBody(), StandardCharsets.UTF_8));
+
+        transactionService.markIssueSolved(3);
+        response = transactionController.aggregate(30.0, 70.0, null, null, null, null,
+                TransactionFilter.IssueStatus.OPEN, 1, null);
+        Assertions.assertEquals("{\"transactionCount\":4,\"totalAmount\":220.0,\"maxAmount\":70.0,\"topSenders\":{\"Sender 1\":120.0}}",
+                new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Unit test to test a request presenting the current ETag gets a 304 without a body.
+     */
+    @Test
+    void matchingETagIsNotModified() {
+        String eTag = transactionController.getTotalTransactionAmount(null).getHeaders().getETag();
+
+        ResponseEntity<byte[]> response = transactionController.getTotalTransactionAmount("W/" + eTag);
+
+        Assertions.assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        Assertions.assertNull(response.getBody());
+        Assertions.assertEquals(eTag, response.getHeaders().getETag());
+    }
+
+
+    /**
+     * Unit test to test solving an issue changes the ETag and the served body.
+     */
+    @Test
+    void dataChangeInvalidatesBody() {
+        ResponseEntity<byte[]> before = transactionController.countOpenComplianceIssues("Sender 0", null);
+
+        transactionService.markIssueSolved(0);
+        ResponseEntity<byte[]> after = transactionController.countOpenComplianceIssues("Sender 0", before.getHeaders().getETag());
+
+        Assertions.assertEquals(HttpStatus.OK, after.getStatusCode());
+        Assertions.assertNotEquals(before.getHeaders().getETag(), after.getHeaders().getETag());
+        Assertions.assertEquals("5", new String(before.getBody(), StandardCharsets.UTF_8));
+        Assertions.assertEquals("4", new String(after.getBody(), StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Unit test to test a reload drops every cached body at once and counts the lookups.
+     */
+    @Test
+    void reloadDropsCachedBodies() {
+        ResponseEntity<byte[]> first = transactionController.getTotalTransactionAmountSentBy("Sender 0", null);
+        ResponseEntity<byte[]> second = transactionController.getTotalTransactionAmountSentBy("Sender 0", null);
+        Assertions.assertSame(first.getBody(), second.getBody());
+        Assertions.assertEquals(1, responses.getHitCount());
+        Assertions.assertEquals(1, responses.getMissCount());
+
+        transactionService.reload();
+        ResponseEntity<byte[]> reloaded = transactionController.getTotalTransactionAmountSentBy("Sender 0", null);
+
+        Assertions.assertNotSame(first.getBody(), reloaded.getBody());
+        Assertions.assertNotEquals(first.getHeaders().getETag(), reloaded.getHeaders().getETag());
+        Assertions.assertEquals("200.0", new String(reloaded.getBody(), StandardCharsets.UTF_8));
+        Assertions.assertEquals(1, responses.getHitCount());
+        Assertions.assertEquals(2, responses.getMissCount());
+    }
+
+
+    /**
+     * Unit test to test a body whose data was reloaded while its query ran is neither tagged with the older ETag nor
+     * cached for it.
+     */
+    @Test
+    void reloadDuringQueryIsNotCached() {
+        String eTag = transactionController.getTotalTransactionAmount(null).getHeaders().getETag();
+
+        ResponseEntity<byte[]> raced = responses.respond("raced", null, () -> {
+            transactionService.reload();
+            return "reloaded";
+        });
+
+        Assertions.assertNull(raced.getHeaders().getETag());
+        Assertions.assertEquals("\"reloaded\"", new String(raced.getBody(), StandardCharsets.UTF_8));
+        ResponseEntity<byte[]> next = responses.respond("raced", eTag, () -> "current");
+        Assertions.assertNotEquals(eTag, next.getHeaders().getETag());
+        Assertions.assertEquals("\"current\"", new String(next.getBody(), StandardCharsets.UTF_8));
+        Assertions.assertEquals(0, responses.getHitCount());
+    }
+
+
+    /**
+     * Unit test to test the cache stays within its maximum entries, evicting the least recently used bodies.
+     */
+    @Test
+    void cacheEvictsLeastRecentlyUsed() {
+        ReflectionTestUtils.setField(responses, "maxEntries", 16);
+        for (int i = 0; i < 100; i++) {
+            transactionController.hasOpenComplianceIssues("Client " + i, null);
+        }
+        Assertions.assertEquals(100, responses.getMissCount());
+        Assertions.assertTrue(responses.getEvictionCount() >= 100 - 16, "evictions " + responses.getEvictionCount());
+
+        ResponseEntity<byte[]> recent = transactionController.hasOpenComplianceIssues("Client 99", null);
+        Assertions.assertEquals(1, responses.getHitCount());
+        Assertions.assertEquals("false", new String(recent.getBody(), StandardCharsets.UTF_8));
+
+        ReflectionTestUtils.setField(responses, "maxEntries", 0);
+        transactionController.hasOpenComplianceIssues("Client 99", null);
+        Assertions.assertEquals(1, responses.getHitCount());
+        Assertions.assertEquals(100, responses.getMissCount());
+    }
+
+
+    /**
+     * Unit test to test screening answers one ndjson line per client, in order, and follows solved issues.
+     */
+    @Test
+    void screeningStreamsNdjson() throws IOException {
+        byte[] names = "\"Sender 0\"\n\"Nobody\"\n\"Beneficiary 1\"\n".getBytes(StandardCharsets.UTF_8);
+        transactionService.markIssueSolved(4);
+
+        ResponseEntity<StreamingResponseBody> response = transactionController.screenClients(new ByteArrayInputStream(names));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        Assertions.assertEquals(HttpStatus.OK, response.getStatusCode());
+        Assertions.assertEquals("{\"clientFullName\":\"Sender 0\",\"open\":true,\"openIssueCount\":4,\"openIssueIds\":[0,2,6,8]}\n"
+                        + "{\"clientFullName\":\"Nobody\",\"open\":false,\"openIssueCount\":0,\"openIssueIds\":[]}\n"
+                        + "{\"clientFullName\":\"Beneficiary 1\",\"open\":true,\"openIssueCount\":5,\"openIssueIds\":[1,3,5,7,9]}\n",
+                body.toString(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Unit test to test a malformed screening line ends the stream with an error record after the results before it.
+     */
+    @Test
+    void screeningEndsWithErrorRecordOnMalformedLine() throws IOException {
+        for (String malformed : List.of("{\"name\":", "null", "Sender 1")) {
+            byte[] names = ("\"Nobody\"\n" + malformed + "\n\"Sender 0\"\n").getBytes(StandardCharsets.UTF_8);
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            transactionController.screenClients(new ByteArrayInputStream(names)).getBody().writeTo(body);
+
+            Assertions.assertEquals("{\"clientFullName\":\"Nobody\",\"open\":false,\"openIssueCount\":0,\"openIssueIds\":[]}\n"
+                            + "{\"message\":\"Reading Client Name 2 Failed.\",\"status\":\"BAD_REQUEST\"}\n",
+                    body.toString(StandardCharsets.UTF_8), malformed);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        transactionController.screenClients(new ByteArrayInputStream("[\n".getBytes(StandardCharsets.UTF_8))).getBody().writeTo(body);
+        Assertions.assertEquals("{\"message\":\"Reading Client Name 1 Failed.\",\"status\":\"BAD_REQUEST\"}\n",
+                body.toString(StandardCharsets.UTF_8));
+    }
+
+
+    /**
+     * Unit test to test a negative k is answered with a bad request.
+     */
+    @Test
+    void negativeKIsBadRequest() {
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> transactionController.getTopNTransactionsByAmount(-1, null));
+
+        ResponseEntity<ExceptionResponse> response = transactionController.handleIllegalArgument(e);
+
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        Assertions.assertEquals("k must not be negative: -1", response.getBody().getMessage());
+    }
+}
@@ -0,0 +1,158 @@
+package com.smallworld.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+class BinarySnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+
+    /**
+     * Unit test to test a written snapshot restores the same rows and aggregates.
+     */
+    @Test
+    void readRestoresWrittenSnapshot() throws IOException {
+        Path source = writeSource("[]");
+        Path snapshot = directory.resolve("transactions.snapshot");
+        TransactionStatistics statistics = TransactionStatistics.of(getTransactions());
+
+        BinarySnapshotFile.write(statistics, source, snapshot);
+        TransactionStatistics restored = BinarySnapshotFile.read(snapshot, source, TransactionStatistics.SEQUENTIAL).orElseThrow();
+
+        Assertions.assertEquals(statistics.getTransactions(), restored.getTransactions());
+        Assertions.assertEquals(statistics.getTotalAmount(), restored.getTotalAmount());
+        Assertions.assertEquals(statistics.getUniqueClientCount(), restored.getUniqueClientCount());
+        Assertions.assertEquals(statistics.getTopTransactionsByAmount(), restored.getTopTransactionsByAmount());
+        Assertions.assertEquals(statistics.getUnsolvedIssueIds(), restored.getUnsolvedIssueIds());
+        Assertions.assertEquals(statistics.getSolvedIssueMessages(), restored.getSolvedIssueMessages());
+        Assertions.assertArrayEquals(statistics.getMtnsSentBy("Tom Shelby"), restored.getMtnsSentBy("Tom Shelby"));
+    }
+
+
+    /**
+     * Unit test to test restored statistics keep accepting rows and issue updates.
+     */
+    @Test
+    void restoredSnapshotAcceptsUpdates() throws IOException {
+        Path source = writeSource("[]");
+        Path snapshot = directory.resolve("transactions.snapshot");
+        BinarySnapshotFile.write(TransactionStatistics.of(getTransactions()), source, snapshot);
+        TransactionStatistics restored = BinarySnapshotFile.read(snapshot, source, TransactionStatistics.SEQUENTIAL).orElseThrow();
+
+        Assertions.assertFalse(restored.add(transaction(96132456, 67.8, "Aunt Polly", "Aberama Gold", null, true)));
+        Assertions.assertTrue(restored.markIssueSolved(1));
+        Assertions.assertTrue(restored.add(transaction(42, 10.0, "Aunt Polly", "Zed", 7, false)));
+
+        Assertions.assertEquals(Set.of(3, 7), restored.getUnsolvedIssueIds());
+        Assertions.assertEquals(77.8, restored.getTotalAmountSentBy("Aunt Polly"), 1e-9);
+        Assertions.assertEquals(6, restored.getUniqueClientCount());
+    }
+
+
+    /**
+     * Unit test to test a snapshot of off heap columns restores into either storage.
+     */
+    @Test
+    void offHeapColumnsRoundTrip() throws IOException {
+        Path source = writeSource("[]");
+        Path snapshot = directory.resolve("transactions.snapshot");
+        TransactionStatistics statistics = TransactionStatistics.of(getTransactions().iterator(), TransactionStatistics.SEQUENTIAL,
+                TransactionColumns.Storage.OFF_HEAP);
+
+        BinarySnapshotFile.write(statistics, source, snapshot);
+        TransactionStatistics heap = BinarySnapshotFile.read(snapshot, source, TransactionStatistics.SEQUENTIAL).orElseThrow();
+        TransactionStatistics offHeap = BinarySnapshotFile.read(snapshot, source, TransactionStatistics.SEQUENTIAL,
+                TransactionColumns.Storage.OFF_HEAP).orElseThrow();
+
+        Assertions.assertEquals(statistics.getTransactions(), heap.getTransactions());
+        Assertions.assertEquals(statistics.getTransactions(), offHeap.getTransactions());
+        Assertions.assertEquals(statistics.getUnsolvedIssueIds(), offHeap.getUnsolvedIssueIds());
+        Assertions.assertTrue(offHeap.markIssueSolved(1));
+        Assertions.assertTrue(offHeap.add(transaction(42, 10.0, "Aunt Polly", "Zed", 7, false)));
+        Assertions.assertEquals(Set.of(3, 7), offHeap.getUnsolvedIssueIds());
+        Assertions.assertEquals(77.8, offHeap.getTotalAmountSentBy("Aunt Polly"), 1e-9);
+    }
+
+
+    /**
+     * Unit test to test a snapshot of another source version is skipped.
+     */
+    @Test
+    void readSkipsSnapshotOfChangedSource() throws IOException {
+        Path source = writeSource("[]");
+        Path snapshot = directory.resolve("transactions.snapshot");
+        BinarySnapshotFile.write(TransactionStatistics.of(getTransactions()), source, snapshot);
+
+        FileTime lastModified = Files.getLastModifiedTime(source);
+        Files.setLastModifiedTime(source, FileTime.fromMillis(lastModified.toMillis() + 1000));
+        Assertions.assertEquals(Optional.empty(), BinarySnapshotFile.read(snapshot, source, TransactionStatistics.SEQUENTIAL));
+
+        Files.writeString(source, "{}");
+        Files.setLastModifiedTime(source, lastModified);
+        Assertions.assertEquals(Optional.empty(), BinarySnapshotFile.read(snapshot, source, TransactionStatistics.SEQUENTIAL));
+
+        Assertions.assertEquals(Optional.empty(), BinarySnapshotFile.read(directory.resolve("missing.snapshot"), source, TransactionStatistics.SEQUENTIAL));
+    }
+
+
+    /**
+     * Unit test to test a truncated snapshot is reported instead of restoring partial data.
+     */
+    @Test
+    void readRejectsTruncatedSnapshot() throws IOException {
+        Path source = writeSource("[]");
+        Path snapshot = directory.resolve("transactions.snapshot");
+        BinarySnapshotFile.write(TransactionStatistics.of(getTransactions()), source, snapshot);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        Assertions.assertThrows(IOException.class, () -> BinarySnapshotFile.read(snapshot, source, TransactionStatistics.SEQUENTIAL));
+    }
+
+    private Path writeSource(String content) throws IOException {
+        return Files.writeString(directory.resolve("transactions.json"), content);
+    }
+
+    private static Transaction transaction(int mtn, double amount, String sender, String beneficiary, Integer issueId, boolean solved) {
+        return Transaction.builder()
+                .mtn(mtn)
+                .amount(amount)
+                .senderFullName(sender)
+                .senderAge(30)
+                .beneficiaryFullName(beneficiary)
+                .beneficiaryAge(null)
+                .issueId(issueId)
+                .issueSolved(solved)
+                .issueMessage(issueId == null ? null : solved ? "Never gonna give you up" : "Looks like money laundering")
+                .build();
+    }
+
+    /**
+     * To Get Mock List;
+     *
+     * @return transactions
+     */
+    private List<Transaction> getTransactions() {
+        List<Transaction> transactions = new ArrayList<>();
+        transactions.add(transaction(663458, 430.2, "Tom Shelby", "Alfie Solomons", 1, false));
+        transactions.add(transaction(1284564, 150.2, "Tom Shelby", "Arthur Shelby", 2, true));
+        transactions.add(transaction(1284564, 150.2, "Tom Shelby", "Arthur Shelby", 3, false));
+        transactions.add(transaction(96132456, 67.8, "Aunt Polly", "Aberama Gold", null, true));
+        return transactions;
+    }
+}
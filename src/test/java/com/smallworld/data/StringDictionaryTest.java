@@ -0,0 +1,94 @@
+package com.smallworld.data;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+class StringDictionaryTest {
+
+
+    /**
+     * Unit test to test ids are dense and stable while the index grows.
+     */
+    @Test
+    void encodeAssignsDenseIds() {
+        StringDictionary dictionary = new StringDictionary();
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertEquals(i, dictionary.encode("Client " + i));
+        }
+
+        Assertions.assertEquals(10_000, dictionary.size());
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertEquals(i, dictionary.encode("Client " + i));
+            Assertions.assertEquals(i, dictionary.lookup("Client " + i));
+            Assertions.assertEquals("Client " + i, dictionary.decode(i));
+        }
+        Assertions.assertEquals(StringDictionary.NOT_FOUND, dictionary.lookup("Client 10000"));
+        Assertions.assertEquals(StringDictionary.NOT_FOUND, dictionary.lookup((String) null));
+    }
+
+
+    /**
+     * Unit test to test a lookup on a range of characters finds the same ids as on strings.
+     */
+    @Test
+    void lookupCharacterRange() {
+        StringDictionary dictionary = new StringDictionary();
+        dictionary.encode("Tom Shelby");
+        dictionary.encode("Arthur Shelby");
+        char[] buffer = "[\"Arthur Shelby\",\"Tom Shelby\",\"Tom\"]".toCharArray();
+
+        Assertions.assertEquals(1, dictionary.lookup(buffer, 2, 13));
+        Assertions.assertEquals(0, dictionary.lookup(buffer, 18, 10));
+        Assertions.assertEquals(StringDictionary.NOT_FOUND, dictionary.lookup(buffer, 31, 3));
+    }
+
+
+    /**
+     * Unit test to test an off heap dictionary encodes, looks up and decodes like the heap one, across segments.
+     */
+    @Test
+    void offHeapDictionary() {
+        StringDictionary dictionary = StringDictionary.offHeap();
+        String large = "x".repeat(600_000);
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertEquals(i, dictionary.encode("Client " + i + " \u00dcnal"));
+        }
+        Assertions.assertEquals(10_000, dictionary.encode(large));
+        Assertions.assertEquals(10_001, dictionary.encode(""));
+
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertEquals(i, dictionary.lookup("Client " + i + " \u00dcnal"));
+            Assertions.assertEquals("Client " + i + " \u00dcnal", dictionary.decode(i));
+        }
+        Assertions.assertEquals(large, dictionary.decode(10_000));
+        Assertions.assertEquals(10_001, dictionary.lookup(""));
+        Assertions.assertEquals(StringDictionary.NOT_FOUND, dictionary.lookup("Client 1 Unal"));
+        char[] buffer = "[\"Client 42 \u00dcnal\"]".toCharArray();
+        Assertions.assertEquals(42, dictionary.lookup(buffer, 2, 14));
+        Assertions.assertEquals(StringDictionary.NOT_FOUND, dictionary.lookup(buffer, 2, 13));
+    }
+
+
+    /**
+     * Unit test to test client names parsed with a dictionary attribute share one instance per name.
+     */
+    @Test
+    void parsedClientNamesAreInterned() throws IOException {
+        String json = "[{\"mtn\":1,\"senderFullName\":\"Tom Shelby\",\"beneficiaryFullName\":\"Arthur Shelby\"},"
+                + "{\"mtn\":2,\"senderFullName\":\"Arthur Shelby\",\"beneficiaryFullName\":\"Tom Shelby\"}]";
+        StringDictionary names = new StringDictionary();
+
+        List<Transaction> transactions = new ObjectMapper().readerFor(new TypeReference<List<Transaction>>() {
+        }).withAttribute(ClientNameDeserializer.NAMES, names).readValue(json);
+
+        Assertions.assertEquals(2, names.size());
+        Assertions.assertSame(transactions.get(0).getSenderFullName(), transactions.get(1).getBeneficiaryFullName());
+        Assertions.assertSame(transactions.get(0).getBeneficiaryFullName(), transactions.get(1).getSenderFullName());
+        Assertions.assertSame(names.decode(0), transactions.get(0).getSenderFullName());
+    }
+}
@@ -0,0 +1,110 @@
+package com.smallworld.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class TransactionColumnsTest {
+
+
+    /**
+     * Unit test to test rows of one mtn share one transaction entry, one row per issue, and read back as loaded.
+     */
+    @Test
+    void normalizesIssuesIntoTransactionTable() {
+        List<Transaction> rows = List.of(
+                transaction(1, 100.0, "Tom Shelby", "Arthur Shelby", 11, false),
+                transaction(1, 100.0, "Tom Shelby", "Arthur Shelby", 12, true),
+                transaction(2, 20.0, "Aunt Polly", "Tom Shelby", null, false),
+                transaction(1, 100.0, "Tom Shelby", "Arthur Shelby", 13, false),
+                transaction(3, 5.0, "Arthur Shelby", "Aunt Polly", 14, false));
+
+        TransactionColumns columns = TransactionColumns.of(rows);
+
+        Assertions.assertEquals(5, columns.size());
+        Assertions.assertEquals(3, columns.transactionCount());
+        Assertions.assertEquals(3, columns.names().size());
+        int[] transactionOf = new int[columns.size()];
+        for (int row = 0; row < columns.size(); row++) {
+            transactionOf[row] = columns.transactionOf(row);
+            Assertions.assertEquals(rows.get(row), columns.toTransaction(row));
+        }
+        Assertions.assertArrayEquals(new int[]{0, 0, 1, 0, 2}, transactionOf);
+        Assertions.assertEquals(0, columns.firstRowOf(0));
+        Assertions.assertEquals(2, columns.firstRowOf(1));
+        Assertions.assertTrue(columns.isFirstRowOfTransaction(0));
+        Assertions.assertFalse(columns.isFirstRowOfTransaction(3));
+        Assertions.assertEquals(1, columns.transactionMtn(0));
+        Assertions.assertEquals(100.0, columns.transactionAmount(0));
+        Assertions.assertFalse(columns.hasIssue(2));
+        Assertions.assertTrue(columns.isIssueSolved(1));
+        Assertions.assertFalse(columns.isIssueSolved(3));
+    }
+
+
+    /**
+     * Unit test to test merging a shard adds new issues of a known transaction to its entry, solves known issues,
+     * drops rows without issue of known transactions and re-encodes the names of new ones.
+     */
+    @Test
+    void mergeAddsIssueRowsToKnownTransactions() {
+        TransactionColumns.Builder builder = new TransactionColumns.Builder();
+        builder.append(transaction(1, 100.0, "Tom Shelby", "Arthur Shelby", 11, false));
+        builder.append(transaction(2, 20.0, "Aunt Polly", "Tom Shelby", null, false));
+        TransactionColumns.Builder shard = new TransactionColumns.Builder();
+        shard.append(transaction(4, 7.0, "Alfie Solomons", "Tom Shelby", 15, false));
+        shard.append(transaction(1, 100.0, "Tom Shelby", "Arthur Shelby", 11, true));
+        shard.append(transaction(1, 100.0, "Tom Shelby", "Arthur Shelby", 12, false));
+        shard.append(transaction(2, 20.0, "Aunt Polly", "Tom Shelby", null, false));
+
+        builder.merge(shard);
+        TransactionColumns columns = builder.view();
+
+        Assertions.assertEquals(4, columns.size());
+        Assertions.assertEquals(3, columns.transactionCount());
+        Assertions.assertTrue(columns.isIssueSolved(0));
+        Assertions.assertEquals(2, columns.transactionOf(2));
+        Assertions.assertEquals(0, columns.transactionOf(3));
+        Assertions.assertEquals(12, columns.issueId(3));
+        Assertions.assertEquals(0, columns.firstRowOf(0));
+        Assertions.assertEquals(4, columns.names().size());
+        Assertions.assertEquals(transaction(4, 7.0, "Alfie Solomons", "Tom Shelby", 15, false), columns.toTransaction(2));
+        Assertions.assertEquals(3, builder.rowOfIssue(12));
+    }
+
+
+    /**
+     * Unit test to test a view never sees an issue solved after it was handed out, and a later view does.
+     */
+    @Test
+    void viewsDoNotSeeLaterSolves() {
+        TransactionColumns.Builder builder = new TransactionColumns.Builder();
+        builder.append(transaction(1, 100.0, "Tom Shelby", "Arthur Shelby", 11, false));
+        TransactionColumns before = builder.view();
+        builder.append(transaction(2, 20.0, "Aunt Polly", "Tom Shelby", 12, false));
+
+        builder.markIssueSolved(builder.rowOfIssue(11));
+        builder.markIssueSolved(builder.rowOfIssue(12));
+        TransactionColumns after = builder.view();
+
+        Assertions.assertEquals(1, before.size());
+        Assertions.assertFalse(before.isIssueSolved(0));
+        Assertions.assertTrue(after.isIssueSolved(0));
+        Assertions.assertTrue(after.isIssueSolved(1));
+    }
+
+    private static Transaction transaction(int mtn, double amount, String sender, String beneficiary, Integer issueId, boolean solved) {
+        return Transaction.builder()
+                .mtn(mtn)
+                .amount(amount)
+                .senderFullName(sender)
+                .senderAge(30)
+                .beneficiaryFullName(beneficiary)
+                .beneficiaryAge(40)
+                .issueId(issueId)
+                .issueSolved(solved)
+                .issueMessage(issueId == null ? null : "Looks like money laundering")
+                .build();
+    }
+}
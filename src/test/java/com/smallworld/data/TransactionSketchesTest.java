@@ -0,0 +1,157 @@
+package com.smallworld.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+class TransactionSketchesTest {
+
+
+    /**
+     * Unit test to test the distinct count estimate stays within a few standard errors, also once merged.
+     */
+    @Test
+    void hyperLogLogEstimatesDistinctCount() {
+        HyperLogLog sketch = HyperLogLog.withError(0.01);
+        Assertions.assertEquals(14, sketch.getPrecision());
+        Assertions.assertEquals(0, sketch.estimate());
+        for (int i = 0; i < 50; i++) {
+            sketch.add("Client " + i);
+            sketch.add("Client " + i);
+        }
+        // linear counting is exact enough for small counts.
+        Assertions.assertEquals(50, sketch.estimate(), 1);
+
+        HyperLogLog first = new HyperLogLog(14);
+        HyperLogLog second = new HyperLogLog(14);
+        for (int i = 0; i < 200_000; i++) {
+            first.add("Client " + i);
+            second.add("Client " + (i + 100_000));
+        }
+        first.merge(second);
+        Assertions.assertEquals(300_000, first.estimate(), 300_000 * 3 * first.relativeError());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> first.merge(new HyperLogLog(12)));
+    }
+
+
+    /**
+     * Unit test to test every heavy hitter is kept, with a count overestimating its total by at most its error.
+     */
+    @Test
+    void spaceSavingKeepsHeavyHitters() {
+        Random random = new Random(22);
+        SpaceSaving sketch = new SpaceSaving(100);
+        Map<String, Double> totals = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            // a tenth of the weight goes to 5 heavy senders, the rest is spread over 10000.
+            String sender = random.nextInt(10) == 0 ? "Heavy " + random.nextInt(5) : "Sender " + random.nextInt(10_000);
+            double amount = random.nextInt(1_000);
+            sketch.add(sender, amount);
+            totals.merge(sender, amount, Double::sum);
+        }
+
+        List<SpaceSaving.Counter> top = sketch.top(5);
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertTrue(top.get(i).key().startsWith("Heavy "), top.get(i).key());
+        }
+        for (SpaceSaving.Counter counter : sketch.getCounters()) {
+            double total = totals.get(counter.key());
+            Assertions.assertTrue(counter.count() >= total - 1e-6);
+            Assertions.assertTrue(counter.count() - counter.error() <= total + 1e-6);
+            Assertions.assertTrue(counter.error() <= sketch.getTotal() / sketch.getCapacity() + 1e-6);
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sketch.add("Sender", -1.0));
+    }
+
+
+    /**
+     * Unit test to test merged sketches of disjoint streams bound the totals like a sketch of the whole stream.
+     */
+    @Test
+    void spaceSavingMergeBoundsTotals() {
+        Random random = new Random(22);
+        List<SpaceSaving> sketches = new ArrayList<>();
+        Map<String, Double> totals = new HashMap<>();
+        for (int partition = 0; partition < 3; partition++) {
+            SpaceSaving sketch = new SpaceSaving(50);
+            for (int i = 0; i < 20_000; i++) {
+                String sender = random.nextInt(4) == 0 ? "Heavy " + random.nextInt(3) : "Sender " + random.nextInt(5_000);
+                sketch.add(sender, 1.0);
+                totals.merge(sender, 1.0, Double::sum);
+            }
+            sketches.add(sketch);
+        }
+
+        SpaceSaving merged = SpaceSaving.merge(sketches, 50);
+        Assertions.assertEquals(60_000, merged.getTotal());
+        Assertions.assertEquals(50, merged.getCounters().size());
+        Assertions.assertEquals(3, merged.top(3).stream().filter(counter -> counter.key().startsWith("Heavy ")).count());
+        for (SpaceSaving.Counter counter : merged.getCounters()) {
+            double total = totals.get(counter.key());
+            Assertions.assertTrue(counter.count() >= total);
+            Assertions.assertTrue(counter.count() - counter.error() <= total);
+        }
+    }
+
+
+    /**
+     * Unit test to test sketches survive the json round trip the partition nodes serve them with.
+     */
+    @Test
+    void jsonRoundTrip() throws IOException {
+        TransactionSketches sketches = TransactionSketches.of(0.05, 0.1);
+        for (int i = 0; i < 1_000; i++) {
+            sketches.add("Sender " + i % 37, "Beneficiary " + i % 101, i);
+        }
+        ObjectMapper mapper = new ObjectMapper();
+
+        TransactionSketches read = mapper.readValue(mapper.writeValueAsBytes(sketches), TransactionSketches.class);
+
+        Assertions.assertEquals(sketches.getClients(), read.getClients());
+        Assertions.assertEquals(sketches.getSenders().getCounters(), read.getSenders().getCounters());
+        Assertions.assertEquals(sketches.getSenders().getTotal(), read.getSenders().getTotal());
+        Assertions.assertEquals(sketches.estimateTopNSenders(3), read.estimateTopNSenders(3));
+    }
+
+
+    /**
+     * Unit test to test sketches built from the loaded transactions follow the rows added afterwards.
+     */
+    @Test
+    void statisticsMaintainSketches() {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int mtn = 1; mtn <= 1_000; mtn++) {
+            transactions.add(transaction(mtn, mtn % 10 == 0 ? 500.0 : 1.0, "Sender " + mtn % 20, "Beneficiary " + mtn % 30));
+        }
+        TransactionStatistics statistics = TransactionStatistics.of(transactions);
+        Assertions.assertNull(statistics.getSketches());
+
+        TransactionSketches sketches = statistics.enableSketches(0.01, 0.01);
+        Assertions.assertSame(sketches, statistics.getSketches());
+        Assertions.assertEquals(statistics.getUniqueClientCount(), sketches.estimateClientCount());
+        Assertions.assertEquals(statistics.getTopNSenders(2), sketches.estimateTopNSenders(2));
+
+        statistics.add(transaction(1_001, 100_000.0, "Newcomer", "Beneficiary 0"));
+        Assertions.assertEquals(statistics.getUniqueClientCount(), sketches.estimateClientCount());
+        Assertions.assertEquals(statistics.getTopSender(), sketches.estimateTopNSenders(1).keySet().iterator().next());
+    }
+
+    private static Transaction transaction(int mtn, double amount, String sender, String beneficiary) {
+        return Transaction.builder()
+                .mtn(mtn)
+                .amount(amount)
+                .senderFullName(sender)
+                .senderAge(30)
+                .beneficiaryFullName(beneficiary)
+                .beneficiaryAge(40)
+                .issueSolved(true)
+                .build();
+    }
+}
@@ -0,0 +1,522 @@
+package com.smallworld.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class TransactionStatisticsTest {
+
+    private static final int WRITERS = 4;
+    private static final int ROWS_PER_WRITER = 10_000;
+
+
+    /**
+     * Unit test to test add updates every aggregate of a new transaction.
+     */
+    @Test
+    void addUpdatesAggregates() {
+        TransactionStatistics statistics = TransactionStatistics.of(getTransactions());
+
+        Assertions.assertTrue(statistics.add(transaction(42, 1000.0, "Aunt Polly", "John Shelby", 99, false)));
+
+        Assertions.assertEquals(1648.2, statistics.getTotalAmount(), 1e-9);
+        Assertions.assertEquals(1000.0, statistics.getMaxAmount());
+        Assertions.assertEquals(6, statistics.getUniqueClientCount());
+        Assertions.assertEquals("Aunt Polly", statistics.getTopSender());
+        Assertions.assertEquals(42, statistics.getTopTransactionsByAmount().get(0).getMtn());
+        Assertions.assertEquals(Set.of(1, 3, 99), statistics.getUnsolvedIssueIds());
+        Assertions.assertTrue(statistics.hasOpenIssues("John Shelby"));
+        Assertions.assertArrayEquals(new int[]{96132456, 42}, statistics.getMtnsSentBy("Aunt Polly"));
+    }
+
+
+    /**
+     * Unit test to test add of an already known issue only updates its status.
+     */
+    @Test
+    void addKnownIssueUpdatesStatus() {
+        TransactionStatistics statistics = TransactionStatistics.of(getTransactions());
+
+        Assertions.assertFalse(statistics.add(transaction(663458, 430.2, "Tom Shelby", "Alfie Solomons", 1, false)));
+        Assertions.assertTrue(statistics.add(transaction(663458, 430.2, "Tom Shelby", "Alfie Solomons", 1, true)));
+
+        Assertions.assertEquals(648.2, statistics.getTotalAmount(), 1e-9);
+        Assertions.assertEquals(Set.of(3), statistics.getUnsolvedIssueIds());
+        Assertions.assertFalse(statistics.hasOpenIssues("Alfie Solomons"));
+    }
+
+
+    /**
+     * Unit test to test the amount of a transaction with several issues is counted once, whether its issue rows are
+     * loaded together or added later.
+     */
+    @Test
+    void amountCountedOncePerTransaction() {
+        TransactionStatistics statistics = TransactionStatistics.of(List.of(
+                transaction(7, 500.0, "Tom Shelby", "Alfie Solomons", 1, false),
+                transaction(7, 500.0, "Tom Shelby", "Alfie Solomons", 2, true),
+                transaction(8, 10.0, "Aunt Polly", "Arthur Shelby", null, false)));
+
+        Assertions.assertTrue(statistics.add(transaction(7, 500.0, "Tom Shelby", "Alfie Solomons", 3, false)));
+
+        TransactionAggregate aggregate = statistics.aggregate(TransactionFilter.ALL, 2);
+        Assertions.assertEquals(510.0, statistics.getTotalAmount());
+        Assertions.assertEquals(500.0, statistics.getTotalAmountSentBy("Tom Shelby"));
+        Assertions.assertArrayEquals(new int[]{7}, statistics.getMtnsSentBy("Tom Shelby"));
+        Assertions.assertEquals(2, statistics.getTopNTransactionsByAmount(3).size());
+        Assertions.assertEquals(Map.of("Tom Shelby", 500.0, "Aunt Polly", 10.0), statistics.getTopNSenders(2));
+        Assertions.assertEquals(2, aggregate.getTransactionCount());
+        Assertions.assertEquals(510.0, aggregate.getTotalAmount());
+        Assertions.assertEquals(2, statistics.getOpenIssueCount("Alfie Solomons"));
+    }
+
+
+    /**
+     * Unit test to test markIssueSolved closes the issue once, leaving what was read before untouched.
+     */
+    @Test
+    void markIssueSolved() {
+        TransactionStatistics statistics = TransactionStatistics.of(getTransactions());
+        Set<Integer> unsolvedBefore = statistics.getUnsolvedIssueIds();
+        List<String> solvedBefore = statistics.getSolvedIssueMessages();
+        List<String> solvedBeforeCopy = List.copyOf(solvedBefore);
+
+        Assertions.assertTrue(statistics.markIssueSolved(3));
+        Assertions.assertFalse(statistics.markIssueSolved(3));
+        Assertions.assertFalse(statistics.markIssueSolved(404));
+
+        Assertions.assertEquals(Set.of(1, 3), unsolvedBefore);
+        Assertions.assertEquals(solvedBeforeCopy, solvedBefore);
+        Assertions.assertEquals(Set.of(1), statistics.getUnsolvedIssueIds());
+        Assertions.assertEquals(1, statistics.getOpenIssueCount("Tom Shelby"));
+        Assertions.assertFalse(statistics.hasOpenIssues("Arthur Shelby"));
+        Assertions.assertEquals(List.of("Never gonna give you up", "Looks like money laundering"), statistics.getSolvedIssueMessages());
+    }
+
+
+    /**
+     * Unit test to test concurrent writers lose no update while readers keep querying, and what readers read from
+     * one published state agrees: a sender's total within the total amount, and the open issue ids counted once
+     * per beneficiary.
+     */
+    @Test
+    void concurrentWritersAndReaders() throws Exception {
+        TransactionStatistics statistics = new TransactionStatistics();
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS * 2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < WRITERS; writer++) {
+                int offset = writer * ROWS_PER_WRITER;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < ROWS_PER_WRITER; i++) {
+                        statistics.add(transaction(offset + i, 1.0, "Sender " + i % 100, "Beneficiary " + i % 50, offset + i, i % 2 == 0));
+                    }
+                }));
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < ROWS_PER_WRITER; i++) {
+                        Assertions.assertTrue(statistics.getMtnsSentBy("Sender " + i % 100).length <= WRITERS * ROWS_PER_WRITER / 100);
+                        long revision = statistics.getRevision();
+                        double sent = statistics.getTotalAmountSentBy("Sender " + i % 100);
+                        double total = statistics.getTotalAmount();
+                        int unsolved = statistics.getUnsolvedIssueIds().size();
+                        int open = 0;
+                        for (int beneficiary = 0; beneficiary < 50; beneficiary++) {
+                            open += statistics.getOpenIssueCount("Beneficiary " + beneficiary);
+                        }
+                        // only values read from a single state have to agree.
+                        if (statistics.getRevision() == revision) {
+                            Assertions.assertTrue(sent <= total);
+                            Assertions.assertEquals(unsolved, open);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(WRITERS * ROWS_PER_WRITER, statistics.getTotalAmount());
+        Assertions.assertEquals(150, statistics.getUniqueClientCount());
+        Assertions.assertEquals(WRITERS * ROWS_PER_WRITER / 2, statistics.getUnsolvedIssueIds().size());
+        Assertions.assertEquals(WRITERS * ROWS_PER_WRITER / 100, statistics.getMtnsSentBy("Sender 1").length);
+    }
+
+    /**
+     * Unit test to test the heap selections, sequential and parallel, against a full sort.
+     */
+    @Test
+    void topNMatchesFullSort() {
+        Random random = new Random(7);
+        List<Transaction> transactions = new ArrayList<>();
+        for (int mtn = 0; mtn < 200_000; mtn++) {
+            // few distinct amounts, so ties are frequent.
+            transactions.add(transaction(mtn, random.nextInt(1000), "Sender " + random.nextInt(5000), "Beneficiary", null, true));
+        }
+        TransactionStatistics statistics = TransactionStatistics.of(transactions);
+
+        List<Transaction> sorted = transactions.stream()
+                .sorted(Comparator.comparing(Transaction::getAmount).reversed())
+                .limit(1000)
+                .toList();
+        Assertions.assertEquals(sorted, statistics.getTopNTransactionsByAmount(1000));
+        Assertions.assertEquals(sorted, statistics.getTopNTransactionsByAmountParallel(1000));
+        Assertions.assertEquals(sorted.subList(0, 3), statistics.getTopNTransactionsByAmount(3));
+
+        Map<String, Double> senders = statistics.getTopNSenders(100);
+        Assertions.assertEquals(senders, statistics.getTopNSendersParallel(100));
+        Assertions.assertEquals(statistics.getTopSender(), senders.keySet().iterator().next());
+        double previous = Double.MAX_VALUE;
+        for (Map.Entry<String, Double> sender : senders.entrySet()) {
+            Assertions.assertEquals(statistics.getTotalAmountSentBy(sender.getKey()), sender.getValue());
+            Assertions.assertTrue(sender.getValue() <= previous);
+            previous = sender.getValue();
+        }
+        Assertions.assertTrue(statistics.getTopNTransactionsByAmount(0).isEmpty());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> statistics.getTopNSenders(-1));
+    }
+
+    /**
+     * Unit test to test the chunked parallel aggregation gives the same statistics as the sequential pass.
+     */
+    @Test
+    void parallelAggregationMatchesSequential() {
+        Random random = new Random(11);
+        List<Transaction> transactions = new ArrayList<>();
+        int issueId = 0;
+        for (int mtn = 0; mtn < 150_000; mtn++) {
+            double amount = random.nextInt(100_000) / 100.0;
+            String sender = "Sender " + random.nextInt(2000);
+            String beneficiary = "Beneficiary " + random.nextInt(2000);
+            for (int issue = random.nextInt(3); issue >= 0; issue--) {
+                transactions.add(transaction(mtn, amount, sender, beneficiary, issue == 0 ? null : issueId++, random.nextBoolean()));
+            }
+        }
+        TransactionStatistics sequential = TransactionStatistics.of(transactions);
+        TransactionStatistics parallel = TransactionStatistics.of(transactions, 0);
+
+        Assertions.assertEquals(sequential.getTotalAmount(), parallel.getTotalAmount(), 1e-6);
+        Assertions.assertEquals(sequential.getMaxAmount(), parallel.getMaxAmount());
+        Assertions.assertEquals(sequential.getUniqueClientCount(), parallel.getUniqueClientCount());
+        Assertions.assertEquals(sequential.getTopTransactionsByAmount(), parallel.getTopTransactionsByAmount());
+        Assertions.assertEquals(sequential.getTopSender(), parallel.getTopSender());
+        Assertions.assertEquals(sequential.getUnsolvedIssueIds(), parallel.getUnsolvedIssueIds());
+        Assertions.assertEquals(sequential.getSolvedIssueMessages(), parallel.getSolvedIssueMessages());
+        for (int client = 0; client < 2000; client++) {
+            Assertions.assertEquals(sequential.getTotalAmountSentBy("Sender " + client), parallel.getTotalAmountSentBy("Sender " + client), 1e-6);
+            Assertions.assertArrayEquals(sequential.getMtnsSentBy("Sender " + client), parallel.getMtnsSentBy("Sender " + client));
+            Assertions.assertEquals(sequential.getOpenIssueCount("Beneficiary " + client), parallel.getOpenIssueCount("Beneficiary " + client));
+        }
+        Assertions.assertEquals(648.2, TransactionStatistics.of(getTransactions(), 0).getTotalAmount(), 1e-9);
+    }
+
+    /**
+     * Unit test to test filtered aggregation, on and beyond the indexed transactions, against a brute force pass.
+     */
+    @Test
+    void filteredAggregateMatchesBruteForce() {
+        Random random = new Random(13);
+        List<Transaction> transactions = new ArrayList<>();
+        int issueId = 0;
+        for (int mtn = 0; mtn < 50_000; mtn++) {
+            double amount = random.nextInt(10_000) / 10.0;
+            String sender = "Sender " + random.nextInt(5000);
+            Integer senderAge = random.nextInt(20) == 0 ? null : 18 + random.nextInt(80);
+            Integer beneficiaryAge = random.nextInt(20) == 0 ? null : 18 + random.nextInt(80);
+            for (int issue = random.nextInt(3); issue >= 0; issue--) {
+                transactions.add(transaction(mtn, amount, sender, senderAge, beneficiaryAge,
+                        issue == 0 ? null : issueId++, issue == 0 || random.nextBoolean()));
+            }
+        }
+        TransactionStatistics statistics = TransactionStatistics.of(transactions, 0);
+        List<TransactionFilter> filters = List.of(
+                TransactionFilter.ALL,
+                TransactionFilter.builder().minAmount(100.0).maxAmount(100.5).build(),
+                TransactionFilter.builder().minAmount(100.0).maxAmount(200.0).build(),
+                TransactionFilter.builder().minAmount(900.0).build(),
+                TransactionFilter.builder().minSenderAge(25).maxSenderAge(34).build(),
+                TransactionFilter.builder().maxBeneficiaryAge(20).minAmount(500.0).build(),
+                TransactionFilter.builder().issueStatus(TransactionFilter.IssueStatus.OPEN).build(),
+                TransactionFilter.builder().minAmount(10.0).maxAmount(300.0).build()
+                        .and(TransactionFilter.builder().minSenderAge(60).minBeneficiaryAge(60)
+                                .issueStatus(TransactionFilter.IssueStatus.CLEARED).build()),
+                TransactionFilter.builder().minAmount(5.0).maxAmount(1.0).build());
+        filters.forEach(filter -> assertAggregate(transactions, statistics, filter));
+
+        // beyond the index: new transactions, and issues solved after it was built.
+        for (int mtn = 50_000; mtn < 52_000; mtn++) {
+            Transaction added = transaction(mtn, random.nextInt(10_000) / 10.0, "Sender " + random.nextInt(6000),
+                    18 + random.nextInt(80), 18 + random.nextInt(80), issueId++, false);
+            transactions.add(added);
+            statistics.add(added);
+        }
+        for (int row = 0; row < transactions.size(); row++) {
+            Transaction transaction = transactions.get(row);
+            if (transaction.getIssueId() != null && transaction.getIssueId() % 3 == 0 && !transaction.getIssueSolved()) {
+                statistics.markIssueSolved(transaction.getIssueId());
+                transactions.set(row, transaction(transaction.getMtn(), transaction.getAmount(), transaction.getSenderFullName(),
+                        transaction.getSenderAge(), transaction.getBeneficiaryAge(), transaction.getIssueId(), true));
+            }
+        }
+        filters.forEach(filter -> assertAggregate(transactions, statistics, filter));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> statistics.aggregate(TransactionFilter.ALL, -1));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> TransactionFilter.builder().issueStatus(TransactionFilter.IssueStatus.OPEN).build()
+                        .and(TransactionFilter.builder().issueStatus(TransactionFilter.IssueStatus.CLEARED).build()));
+    }
+
+    /**
+     * Unit test to test screening, on and beyond the client issue index, against a brute force pass.
+     */
+    @Test
+    void screenMatchesBruteForce() {
+        Random random = new Random(25);
+        List<Transaction> transactions = new ArrayList<>();
+        int issueId = 0;
+        for (int mtn = 0; mtn < 20_000; mtn++) {
+            String sender = "Sender " + random.nextInt(2000);
+            String beneficiary = random.nextInt(10) == 0 ? sender : "Beneficiary " + random.nextInt(2000);
+            for (int issue = random.nextInt(3); issue >= 0; issue--) {
+                transactions.add(transaction(mtn, 1.0, sender, beneficiary, issue == 0 ? null : issueId++,
+                        issue == 0 || random.nextBoolean()));
+            }
+        }
+        TransactionStatistics statistics = TransactionStatistics.of(transactions);
+        statistics.buildIndex();
+        List<String> clients = new ArrayList<>(statistics.getClientNames());
+        clients.add("Nobody");
+        assertScreening(transactions, statistics, clients);
+
+        // beyond the index: new rows, new clients, and issues solved after it was built.
+        for (int mtn = 20_000; mtn < 20_500; mtn++) {
+            Transaction added = transaction(mtn, 1.0, "Sender " + random.nextInt(2500),
+                    "Beneficiary " + random.nextInt(2000), issueId++, false);
+            transactions.add(added);
+            statistics.add(added);
+        }
+        for (int row = 0; row < transactions.size(); row++) {
+            Transaction transaction = transactions.get(row);
+            if (transaction.getIssueId() != null && transaction.getIssueId() % 3 == 0 && !transaction.getIssueSolved()) {
+                statistics.markIssueSolved(transaction.getIssueId());
+                transactions.set(row, transaction(transaction.getMtn(), 1.0, transaction.getSenderFullName(),
+                        transaction.getBeneficiaryFullName(), transaction.getIssueId(), true));
+            }
+        }
+        assertScreening(transactions, statistics, statistics.getClientNames());
+    }
+
+    /**
+     * Unit test to test merging separately encoded shards gives the statistics of loading their rows one after the
+     * other, with transactions and issues repeated across shards reconciled.
+     */
+    @Test
+    void shardsMatchConcatenatedRows() {
+        Random random = new Random(17);
+        List<List<Transaction>> shards = new ArrayList<>();
+        List<Transaction> concatenated = new ArrayList<>();
+        int issueId = 0;
+        for (int shard = 0; shard < 4; shard++) {
+            List<Transaction> rows = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                // about a third of the rows repeat an mtn or an issue of an earlier shard, solved or not.
+                boolean repeated = shard > 0 && random.nextInt(3) == 0;
+                int mtn = repeated ? random.nextInt(shard * 10_000) : shard * 10_000 + random.nextInt(10_000);
+                Integer issue = random.nextInt(4) == 0 ? null : repeated && random.nextBoolean() ? random.nextInt(issueId + 1) : issueId++;
+                rows.add(transaction(mtn, mtn % 1000, "Sender " + mtn % 700, "Beneficiary " + mtn % 3,
+                        issue, random.nextBoolean()));
+            }
+            shards.add(rows);
+            concatenated.addAll(rows);
+        }
+        List<TransactionColumns.Builder> encoded = new ArrayList<>();
+        shards.forEach(rows -> encoded.add(TransactionStatistics.encode(rows.iterator())));
+        TransactionStatistics merged = TransactionStatistics.ofShards(encoded, 0);
+        TransactionStatistics expected = TransactionStatistics.of(concatenated);
+
+        Assertions.assertEquals(expected.getTransactions(), merged.getTransactions());
+        Assertions.assertEquals(expected.getColumns().transactionCount(), merged.getColumns().transactionCount());
+        Assertions.assertEquals(expected.getTotalAmount(), merged.getTotalAmount(), 1e-6);
+        Assertions.assertEquals(expected.getUniqueClientCount(), merged.getUniqueClientCount());
+        Assertions.assertEquals(expected.getUnsolvedIssueIds(), merged.getUnsolvedIssueIds());
+        Assertions.assertEquals(expected.getSolvedIssueMessages(), merged.getSolvedIssueMessages());
+        Assertions.assertEquals(expected.getTopNSenders(20), merged.getTopNSenders(20));
+        Assertions.assertArrayEquals(expected.getMtnsSentBy("Sender 7"), merged.getMtnsSentBy("Sender 7"));
+        Assertions.assertEquals(expected.getOpenIssueCount("Beneficiary 0"), merged.getOpenIssueCount("Beneficiary 0"));
+        Assertions.assertEquals(0, TransactionStatistics.ofShards(List.of(), 0).getColumns().size());
+    }
+
+    /**
+     * Unit test to test statistics over off heap columns, spanning several segments, answer like the heap ones,
+     * including rows added, issues solved and shards merged after the load.
+     */
+    @Test
+    void offHeapColumnsMatchHeapColumns() {
+        Random random = new Random(19);
+        List<Transaction> transactions = new ArrayList<>();
+        int issueId = 0;
+        for (int mtn = 0; mtn < 100_000; mtn++) {
+            double amount = random.nextInt(100_000) / 100.0;
+            String sender = "Sender " + random.nextInt(3000) + (mtn % 5 == 0 ? " M\u00fcller" : "");
+            for (int issue = random.nextInt(3); issue >= 0; issue--) {
+                transactions.add(transaction(mtn, amount, sender, 18 + random.nextInt(80), null,
+                        issue == 0 ? null : issueId++, random.nextBoolean()));
+            }
+        }
+        TransactionStatistics heap = TransactionStatistics.of(transactions.iterator(), 0, TransactionColumns.Storage.HEAP);
+        TransactionStatistics offHeap = TransactionStatistics.of(transactions.iterator(), 0, TransactionColumns.Storage.OFF_HEAP);
+        for (TransactionStatistics statistics : List.of(heap, offHeap)) {
+            statistics.add(transaction(100_000, 5000.0, "Sender 0 M\u00fcller", "Zed", issueId, false));
+            statistics.markIssueSolved(issueId);
+            statistics.markIssueSolved(7);
+        }
+
+        Assertions.assertEquals(heap.getTransactions(), offHeap.getTransactions());
+        Assertions.assertEquals(heap.getTotalAmount(), offHeap.getTotalAmount());
+        Assertions.assertEquals(heap.getUniqueClientCount(), offHeap.getUniqueClientCount());
+        Assertions.assertEquals(heap.getTopTransactionsByAmount(), offHeap.getTopTransactionsByAmount());
+        Assertions.assertEquals(heap.getTopNSenders(10), offHeap.getTopNSenders(10));
+        Assertions.assertEquals(heap.getUnsolvedIssueIds(), offHeap.getUnsolvedIssueIds());
+        Assertions.assertEquals(heap.getSolvedIssueMessages(), offHeap.getSolvedIssueMessages());
+        Assertions.assertEquals(heap.getTransactionsByBeneficiary(), offHeap.getTransactionsByBeneficiary());
+        Assertions.assertArrayEquals(heap.getMtnsSentBy("Sender 0 M\u00fcller"), offHeap.getMtnsSentBy("Sender 0 M\u00fcller"));
+        Assertions.assertEquals(heap.getOpenIssueCount("Sender 5"), offHeap.getOpenIssueCount("Sender 5"));
+        TransactionFilter filter = TransactionFilter.builder().minAmount(100.0).maxAmount(200.0).minSenderAge(40).build();
+        Assertions.assertEquals(heap.aggregate(filter, 5).getTopSenders(), offHeap.aggregate(filter, 5).getTopSenders());
+
+        List<TransactionColumns.Builder> shards = List.of(TransactionStatistics.encode(transactions.subList(0, 1000).iterator()),
+                TransactionStatistics.encode(transactions.subList(1000, 2000).iterator()));
+        Assertions.assertEquals(TransactionStatistics.ofShards(shards, 0).getTransactions(),
+                TransactionStatistics.ofShards(shards, 0, TransactionColumns.Storage.OFF_HEAP).getTransactions());
+    }
+
+    private static void assertAggregate(List<Transaction> transactions, TransactionStatistics statistics, TransactionFilter filter) {
+        Map<Integer, Transaction> first = new LinkedHashMap<>();
+        Map<Integer, Boolean> open = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            first.putIfAbsent(transaction.getMtn(), transaction);
+            open.merge(transaction.getMtn(), !transaction.getIssueSolved(), Boolean::logicalOr);
+        }
+        long count = 0;
+        double total = 0.0;
+        double max = 0.0;
+        Map<String, Double> bySender = new HashMap<>();
+        for (Transaction transaction : first.values()) {
+            if (matches(filter, transaction, open.get(transaction.getMtn()))) {
+                count++;
+                total += transaction.getAmount();
+                max = Math.max(max, transaction.getAmount());
+                bySender.merge(transaction.getSenderFullName(), transaction.getAmount(), Double::sum);
+            }
+        }
+        TransactionAggregate aggregate = statistics.aggregate(filter, 5);
+        Assertions.assertEquals(count, aggregate.getTransactionCount());
+        Assertions.assertEquals(total, aggregate.getTotalAmount(), 1e-6);
+        Assertions.assertEquals(max, aggregate.getMaxAmount());
+        double previous = Double.MAX_VALUE;
+        for (Map.Entry<String, Double> sender : aggregate.getTopSenders().entrySet()) {
+            Assertions.assertEquals(bySender.get(sender.getKey()), sender.getValue(), 1e-6);
+            Assertions.assertTrue(sender.getValue() <= previous);
+            previous = sender.getValue();
+        }
+        Assertions.assertEquals(Math.min(5, bySender.size()), aggregate.getTopSenders().size());
+        bySender.values().stream().sorted(Comparator.reverseOrder()).limit(5).reduce((a, b) -> b)
+                .ifPresent(fifth -> Assertions.assertEquals(fifth, aggregate.getTopSenders().values().stream()
+                        .reduce((a, b) -> b).orElseThrow(), 1e-6));
+    }
+
+    private static void assertScreening(List<Transaction> transactions, TransactionStatistics statistics, List<String> clients) {
+        Map<String, List<Integer>> openIssueIds = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            if (!transaction.getIssueSolved()) {
+                openIssueIds.computeIfAbsent(transaction.getSenderFullName(), client -> new ArrayList<>())
+                        .add(transaction.getIssueId());
+                if (!transaction.getBeneficiaryFullName().equals(transaction.getSenderFullName())) {
+                    openIssueIds.computeIfAbsent(transaction.getBeneficiaryFullName(), client -> new ArrayList<>())
+                            .add(transaction.getIssueId());
+                }
+            }
+        }
+        List<ClientScreening> screenings = new ArrayList<>();
+        statistics.screen(clients.iterator(), screenings::add);
+
+        Assertions.assertEquals(clients.size(), screenings.size());
+        for (int i = 0; i < clients.size(); i++) {
+            ClientScreening screening = screenings.get(i);
+            List<Integer> expected = openIssueIds.getOrDefault(clients.get(i), List.of());
+            Assertions.assertEquals(clients.get(i), screening.getClientFullName());
+            Assertions.assertEquals(!expected.isEmpty(), screening.isOpen());
+            Assertions.assertEquals(expected.size(), screening.getOpenIssueCount());
+            Assertions.assertEquals(statistics.getOpenIssueCount(clients.get(i)), screening.getOpenIssueCount());
+            Assertions.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), screening.getOpenIssueIds());
+        }
+    }
+
+    private static boolean matches(TransactionFilter filter, Transaction transaction, boolean open) {
+        return (filter.getMinAmount() == null || transaction.getAmount() >= filter.getMinAmount())
+                && (filter.getMaxAmount() == null || transaction.getAmount() <= filter.getMaxAmount())
+                && inRange(transaction.getSenderAge(), filter.getMinSenderAge(), filter.getMaxSenderAge())
+                && inRange(transaction.getBeneficiaryAge(), filter.getMinBeneficiaryAge(), filter.getMaxBeneficiaryAge())
+                && (filter.getIssueStatus() == null || open == (filter.getIssueStatus() == TransactionFilter.IssueStatus.OPEN));
+    }
+
+    private static boolean inRange(Integer age, Integer min, Integer max) {
+        return min == null && max == null
+                || age != null && (min == null || age >= min) && (max == null || age <= max);
+    }
+
+    private static Transaction transaction(int mtn, double amount, String sender, String beneficiary, Integer issueId, boolean solved) {
+        return Transaction.builder()
+                .mtn(mtn)
+                .amount(amount)
+                .senderFullName(sender)
+                .senderAge(30)
+                .beneficiaryFullName(beneficiary)
+                .beneficiaryAge(40)
+                .issueId(issueId)
+                .issueSolved(solved)
+                .issueMessage(issueId == null ? null : solved ? "Never gonna give you up" : "Looks like money laundering")
+                .build();
+    }
+
+    private static Transaction transaction(int mtn, double amount, String sender, Integer senderAge, Integer beneficiaryAge,
+                                           Integer issueId, boolean solved) {
+        return Transaction.builder()
+                .mtn(mtn)
+                .amount(amount)
+                .senderFullName(sender)
+                .senderAge(senderAge)
+                .beneficiaryFullName("Beneficiary")
+                .beneficiaryAge(beneficiaryAge)
+                .issueId(issueId)
+                .issueSolved(solved)
+                .build();
+    }
+
+    /**
+     * To Get Mock List;
+     *
+     * @return transactions
+     */
+    private List<Transaction> getTransactions() {
+        List<Transaction> transactions = new ArrayList<>();
+        transactions.add(transaction(663458, 430.2, "Tom Shelby", "Alfie Solomons", 1, false));
+        transactions.add(transaction(1284564, 150.2, "Tom Shelby", "Arthur Shelby", 2, true));
+        transactions.add(transaction(1284564, 150.2, "Tom Shelby", "Arthur Shelby", 3, false));
+        transactions.add(transaction(96132456, 67.8, "Aunt Polly", "Aberama Gold", null, true));
+        return transactions;
+    }
+}
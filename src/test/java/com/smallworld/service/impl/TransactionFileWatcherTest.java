@@ -0,0 +1,128 @@
+package com.smallworld.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.Transaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+class TransactionFileWatcherTest {
+
+    private static final long QUIET_PERIOD_MILLIS = 300;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    private Path jsonFile;
+    private TransactionServiceImpl transactionService;
+    private TransactionFileWatcher transactionFileWatcher;
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jsonFile = directory.resolve("transactions.json");
+        Files.writeString(jsonFile, json(10));
+        transactionService = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(transactionService, "jsonFile", jsonFile.toString());
+        transactionService.initTransaction();
+        transactionFileWatcher = new TransactionFileWatcher(transactionService);
+        registry = new SimpleMeterRegistry();
+        transactionFileWatcher.bindTo(registry);
+        ReflectionTestUtils.setField(transactionFileWatcher, "jsonFile", jsonFile.toString());
+        ReflectionTestUtils.setField(transactionFileWatcher, "enabled", true);
+        ReflectionTestUtils.setField(transactionFileWatcher, "quietPeriodMillis", QUIET_PERIOD_MILLIS);
+        transactionFileWatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        transactionFileWatcher.stop();
+    }
+
+
+    /**
+     * Unit test to test a rewritten file is reloaded and exposed through the metrics.
+     */
+    @Test
+    void reloadsRewrittenFile() throws Exception {
+        Files.writeString(jsonFile, json(25));
+
+        awaitUntil(() -> reloads("success") == 1);
+        Assertions.assertEquals(25, transactionService.getStatistics().getTotalAmount());
+        Assertions.assertEquals(25, transactionService.getStatistics().getColumns().size());
+        Assertions.assertEquals(2, transactionService.getSnapshot().getVersion());
+        Assertions.assertEquals(0, reloads("failure"));
+    }
+
+
+    /**
+     * Unit test to test a file written in several steps is only parsed once complete.
+     */
+    @Test
+    void waitsOutPartialWrites() throws Exception {
+        String content = json(40);
+        int half = content.length() / 2;
+        Files.writeString(jsonFile, content.substring(0, half));
+        Thread.sleep(QUIET_PERIOD_MILLIS / 3);
+        Files.writeString(jsonFile, content);
+
+        awaitUntil(() -> reloads("success") == 1);
+        Thread.sleep(QUIET_PERIOD_MILLIS * 2);
+        Assertions.assertEquals(1, reloads("success"));
+        Assertions.assertEquals(0, reloads("failure"));
+        Assertions.assertEquals(40, transactionService.getStatistics().getTotalAmount());
+    }
+
+
+    /**
+     * Unit test to test a broken file keeps the previous data.
+     */
+    @Test
+    void keepsDataWhenReloadFails() throws Exception {
+        Files.writeString(jsonFile, "[{\"mtn\":");
+
+        awaitUntil(() -> reloads("failure") == 1);
+        Assertions.assertEquals(0, reloads("success"));
+        Assertions.assertEquals(1, transactionService.getSnapshot().getVersion());
+        Assertions.assertEquals(10, transactionService.getStatistics().getTotalAmount());
+    }
+
+    private long reloads(String result) {
+        return (long) registry.get("transaction.load.reloads").tag("result", result).functionCounter().count();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+
+    private static String json(int rows) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            transactions.add(Transaction.builder()
+                    .mtn(i)
+                    .amount(1.0)
+                    .senderFullName("Sender " + i % 3)
+                    .beneficiaryFullName("Beneficiary " + i % 3)
+                    .issueSolved(true)
+                    .build());
+        }
+        return new ObjectMapper().writeValueAsString(transactions);
+    }
+}
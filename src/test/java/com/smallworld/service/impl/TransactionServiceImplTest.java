@@ -0,0 +1,420 @@
+package com.smallworld.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smallworld.data.Transaction;
+import com.smallworld.data.TransactionFilter;
+import com.smallworld.data.TransactionPartition;
+import com.smallworld.data.TransactionSnapshot;
+import com.smallworld.data.TransactionStatistics;
+import com.smallworld.exception.ServiceException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+class TransactionServiceImplTest {
+
+    private static final int READERS = 4;
+    private static final int RELOADS = 200;
+    private static final int SMALL_ROWS = 1_000;
+    private static final int SMALL_SENDERS = 10;
+    private static final int LARGE_ROWS = 3_000;
+    private static final int LARGE_SENDERS = 30;
+
+    @TempDir
+    Path directory;
+
+
+    /**
+     * Unit test to test reload publishes a new version and keeps the previous snapshot intact.
+     */
+    @Test
+    void reloadPublishesNewSnapshot() throws IOException {
+        TransactionServiceImpl transactionService = serviceOf(writeJson("small.json", SMALL_ROWS, SMALL_SENDERS));
+        TransactionSnapshot first = transactionService.getSnapshot();
+
+        ReflectionTestUtils.setField(transactionService, "jsonFile", writeJson("large.json", LARGE_ROWS, LARGE_SENDERS));
+        TransactionSnapshot second = transactionService.reload();
+
+        Assertions.assertEquals(first.getVersion() + 1, second.getVersion());
+        Assertions.assertSame(second, transactionService.getSnapshot());
+        Assertions.assertEquals(SMALL_ROWS, first.getStatistics().getTotalAmount());
+        Assertions.assertEquals(LARGE_ROWS, transactionService.getStatistics().getTotalAmount());
+    }
+
+
+    /**
+     * Stress test: readers hammer the service while snapshots are reloaded back to back, and every snapshot they
+     * see must be one of the two files completely loaded, with versions never going backwards.
+     */
+    @Test
+    void readersNeverSeeTornSnapshotDuringReloads() throws Exception {
+        String small = writeJson("small.json", SMALL_ROWS, SMALL_SENDERS);
+        String large = writeJson("large.json", LARGE_ROWS, LARGE_SENDERS);
+        TransactionServiceImpl transactionService = serviceOf(small);
+        AtomicBoolean reloading = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int reader = 0; reader < READERS; reader++) {
+                readers.add(executor.submit(() -> {
+                    long lastVersion = 0;
+                    while (reloading.get()) {
+                        TransactionSnapshot snapshot = transactionService.getSnapshot();
+                        Assertions.assertTrue(snapshot.getVersion() >= lastVersion);
+                        lastVersion = snapshot.getVersion();
+                        assertComplete(snapshot.getStatistics());
+                        reads.incrementAndGet();
+                    }
+                }));
+            }
+            for (int i = 0; i < RELOADS; i++) {
+                ReflectionTestUtils.setField(transactionService, "jsonFile", i % 2 == 0 ? large : small);
+                transactionService.reload();
+            }
+            reloading.set(false);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            reloading.set(false);
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(RELOADS + 1, transactionService.getSnapshot().getVersion());
+        Assertions.assertTrue(reads.get() > 0);
+    }
+
+
+
+    /**
+     * Stress test: readers query the statistics while rows are ingested and issues solved one by one, and the values
+     * they read from one published state must agree with each other: sender totals and top senders add up to the
+     * total amount, every transaction is listed once, and open issues count once per sender and once per
+     * beneficiary.
+     */
+    @Test
+    void readersSeeConsistentStateDuringIngestAndSolve() throws Exception {
+        TransactionServiceImpl transactionService = serviceOf(writeJson("small.json", SMALL_ROWS, SMALL_SENDERS));
+        TransactionStatistics statistics = transactionService.getStatistics();
+        TransactionFilter open = TransactionFilter.builder().issueStatus(TransactionFilter.IssueStatus.OPEN).build();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong checks = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int reader = 0; reader < READERS; reader++) {
+                readers.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        long revision = statistics.getRevision();
+                        double totalAmount = statistics.getTotalAmount();
+                        double sentAmount = 0;
+                        long sentMtns = 0;
+                        int sentOpenIssues = 0;
+                        int receivedOpenIssues = 0;
+                        for (int client = 0; client < SMALL_SENDERS; client++) {
+                            sentAmount += statistics.getTotalAmountSentBy("Sender " + client);
+                            sentMtns += statistics.getMtnsSentBy("Sender " + client).length;
+                            sentOpenIssues += statistics.getOpenIssueCount("Sender " + client);
+                            receivedOpenIssues += statistics.getOpenIssueCount("Beneficiary " + client);
+                        }
+                        double topAmount = statistics.getTopNSenders(SMALL_SENDERS).values().stream()
+                                .mapToDouble(Double::doubleValue).sum();
+                        long openTransactions = statistics.aggregate(open, 0).getTransactionCount();
+                        // only values read from a single state have to agree.
+                        if (statistics.getRevision() == revision) {
+                            Assertions.assertEquals(totalAmount, sentAmount);
+                            Assertions.assertEquals(totalAmount, topAmount);
+                            Assertions.assertEquals(totalAmount, sentMtns);
+                            Assertions.assertEquals(sentOpenIssues, receivedOpenIssues);
+                            Assertions.assertEquals(sentOpenIssues, openTransactions);
+                            checks.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < SMALL_ROWS; i++) {
+                transactionService.ingest(Transaction.builder()
+                        .mtn(SMALL_ROWS + i)
+                        .amount(1.0)
+                        .senderFullName("Sender " + i % SMALL_SENDERS)
+                        .beneficiaryFullName("Beneficiary " + i % SMALL_SENDERS)
+                        .issueId(SMALL_ROWS + i)
+                        .issueSolved(false)
+                        .build());
+                transactionService.markIssueSolved(i);
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            writing.set(false);
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(2 * SMALL_ROWS, statistics.getTotalAmount());
+        Assertions.assertEquals(SMALL_ROWS, statistics.getOpenIssueCount("Sender 1") * SMALL_SENDERS);
+        Assertions.assertTrue(checks.get() > 0);
+    }
+
+
+    /**
+     * Unit test to test every load path publishes statistics with the filter and screening indexes already built.
+     */
+    @Test
+    void loadBuildsIndexes() throws IOException {
+        String json = writeJson("small.json", SMALL_ROWS, SMALL_SENDERS);
+        for (String mode : List.of("", "streaming", "pipelined")) {
+            TransactionServiceImpl transactionService = new TransactionServiceImpl();
+            ReflectionTestUtils.setField(transactionService, "jsonFile", json);
+            if (!mode.isEmpty()) {
+                ReflectionTestUtils.setField(transactionService, mode, true);
+            }
+            transactionService.initTransaction();
+
+            TransactionStatistics statistics = transactionService.getStatistics();
+            Assertions.assertNotNull(ReflectionTestUtils.getField(statistics, "index"), mode);
+            Assertions.assertNotNull(ReflectionTestUtils.getField(statistics, "clientIssueIndex"), mode);
+        }
+    }
+
+
+    /**
+     * Unit test to test the streaming load keeps every row, grouped by beneficiary as the default load does.
+     */
+    @Test
+    void streamingLoadKeepsRows() throws IOException {
+        String json = writeJson("small.json", SMALL_ROWS, SMALL_SENDERS);
+        TransactionServiceImpl streamed = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(streamed, "jsonFile", json);
+        ReflectionTestUtils.setField(streamed, "streaming", true);
+        streamed.initTransaction();
+
+        Map<String, List<Transaction>> byBeneficiary = streamed.getStatistics().getTransactionsByBeneficiary();
+
+        Assertions.assertEquals(SMALL_SENDERS, byBeneficiary.size());
+        Assertions.assertEquals(SMALL_ROWS, byBeneficiary.values().stream().mapToInt(List::size).sum());
+        Assertions.assertEquals(serviceOf(json).getStatistics().getTransactionsByBeneficiary(), byBeneficiary);
+    }
+
+
+    /**
+     * Unit test to test the load metrics follow the published snapshot and count snapshot hits and misses.
+     */
+    @Test
+    void loadMetricsFollowSnapshot() throws IOException {
+        TransactionServiceImpl transactionService = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(transactionService, "jsonFile", writeJson("small.json", SMALL_ROWS, SMALL_SENDERS));
+        ReflectionTestUtils.setField(transactionService, "snapshotFile", directory.resolve("small.snapshot").toString());
+        transactionService.initTransaction();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        transactionService.bindTo(registry);
+
+        transactionService.reload();
+
+        Assertions.assertEquals(SMALL_ROWS, registry.get("transaction.load.rows").gauge().value());
+        Assertions.assertEquals(2, registry.get("transaction.snapshot.version").gauge().value());
+        Assertions.assertEquals(Files.size(directory.resolve("small.snapshot")),
+                registry.get("transaction.snapshot.file.size").gauge().value());
+        Assertions.assertEquals(1, registry.get("transaction.snapshot.lookups").tag("result", "hit").functionCounter().count());
+        Assertions.assertEquals(1, registry.get("transaction.snapshot.lookups").tag("result", "miss").functionCounter().count());
+        Assertions.assertTrue(registry.get("transaction.load.rows.per.second").gauge().value() > 0);
+    }
+
+    /**
+     * Unit test to test a directory and a glob of shards are loaded with repeated transactions reconciled.
+     */
+    @Test
+    void loadsShards() throws IOException {
+        Path shards = Files.createDirectory(directory.resolve("shards"));
+        // the second shard repeats mtns 500 to 999 and solves their issues.
+        writeShard(shards.resolve("shard-1.json"), 0, 1_000, false);
+        writeShard(shards.resolve("shard-2.json"), 500, 1_500, true);
+        Files.writeString(shards.resolve("notes.txt"), "not a shard");
+
+        TransactionStatistics statistics = serviceOf(shards.toString()).getStatistics();
+        Assertions.assertEquals(1_500, statistics.getColumns().transactionCount());
+        Assertions.assertEquals(1_500, statistics.getColumns().size());
+        Assertions.assertEquals(1_500.0, statistics.getTotalAmount());
+        Assertions.assertEquals(250, statistics.getUnsolvedIssueIds().size());
+
+        statistics = serviceOf(shards.resolve("shard-2*.json").toString()).getStatistics();
+        Assertions.assertEquals(1_000, statistics.getColumns().size());
+        Assertions.assertTrue(statistics.getUnsolvedIssueIds().isEmpty());
+    }
+
+    /**
+     * Unit test to test the partitions of a file hold every row exactly once, each with its own snapshot, and that
+     * a partition rejects rows of another one.
+     */
+    @Test
+    void partitionsSplitTheTransactions() throws IOException {
+        String jsonFile = writeJson("large.json", LARGE_ROWS, LARGE_SENDERS);
+        Path snapshot = directory.resolve("large.snapshot");
+        Set<Integer> mtns = new HashSet<>();
+        for (int index = 0; index < 3; index++) {
+            TransactionServiceImpl transactionService = new TransactionServiceImpl();
+            ReflectionTestUtils.setField(transactionService, "jsonFile", jsonFile);
+            ReflectionTestUtils.setField(transactionService, "snapshotFile", snapshot.toString());
+            ReflectionTestUtils.setField(transactionService, "partitionIndex", index);
+            ReflectionTestUtils.setField(transactionService, "partitionCount", 3);
+            transactionService.initTransaction();
+
+            TransactionStatistics statistics = transactionService.getStatistics();
+            Assertions.assertTrue(statistics.getColumns().size() > LARGE_ROWS / 4, "rows " + statistics.getColumns().size());
+            for (Transaction transaction : statistics.getTransactions()) {
+                Assertions.assertEquals(index, TransactionPartition.indexOf(transaction.getMtn(), 3));
+                Assertions.assertTrue(mtns.add(transaction.getMtn()));
+            }
+            Assertions.assertTrue(Files.exists(directory.resolve("large.snapshot.partition-" + index + "-of-3")));
+            Assertions.assertEquals(statistics.getColumns().size(), transactionService.reload().getStatistics().getColumns().size());
+
+            int otherMtn = LARGE_ROWS;
+            while (TransactionPartition.indexOf(otherMtn, 3) == index) {
+                otherMtn++;
+            }
+            Assertions.assertFalse(transactionService.ingest(Transaction.builder().mtn(otherMtn).amount(1.0)
+                    .senderFullName("Sender 1").beneficiaryFullName("Beneficiary 1").build()));
+        }
+        Assertions.assertEquals(LARGE_ROWS, mtns.size());
+        Assertions.assertFalse(Files.exists(snapshot));
+    }
+
+    /**
+     * Unit test to test the pipelined load of a file spanning several read chunks matches the streaming load, and
+     * that a truncated file fails the load instead of publishing the rows parsed before the cut.
+     */
+    @Test
+    void pipelinedLoadMatchesStreaming() throws IOException {
+        String jsonFile = writeJson("pipelined.json", 60_000, LARGE_SENDERS);
+        Assertions.assertTrue(Files.size(Path.of(jsonFile)) > 2L * PipelinedTransactionReader.CHUNK_SIZE);
+        TransactionServiceImpl streamed = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(streamed, "jsonFile", jsonFile);
+        ReflectionTestUtils.setField(streamed, "streaming", true);
+        TransactionServiceImpl pipelined = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(pipelined, "jsonFile", jsonFile);
+        ReflectionTestUtils.setField(pipelined, "pipelined", true);
+
+        TransactionStatistics expected = streamed.reload().getStatistics();
+        TransactionStatistics actual = pipelined.reload().getStatistics();
+
+        Assertions.assertEquals(60_000, actual.getColumns().size());
+        Assertions.assertEquals(expected.getTotalAmount(), actual.getTotalAmount());
+        Assertions.assertEquals(expected.getUniqueClientCount(), actual.getUniqueClientCount());
+        Assertions.assertEquals(expected.getUnsolvedIssueIds(), actual.getUnsolvedIssueIds());
+        Assertions.assertEquals(expected.getTopNSenders(5), actual.getTopNSenders(5));
+        Assertions.assertArrayEquals(expected.getMtnsSentBy("Sender 1"), actual.getMtnsSentBy("Sender 1"));
+
+        byte[] json = Files.readAllBytes(Path.of(jsonFile));
+        Path truncated = directory.resolve("truncated.json");
+        Files.write(truncated, Arrays.copyOf(json, json.length * 2 / 3));
+        ReflectionTestUtils.setField(pipelined, "jsonFile", truncated.toString());
+        Assertions.assertThrows(ServiceException.class, pipelined::reload);
+        Assertions.assertSame(actual, pipelined.getStatistics());
+    }
+
+    /**
+     * Unit test to test an asynchronous first load reports out of service until it is published, and down when it
+     * failed.
+     */
+    @Test
+    void asyncLoadReportsReadiness() throws IOException {
+        TransactionServiceImpl transactionService = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(transactionService, "jsonFile", writeJson("small.json", SMALL_ROWS, SMALL_SENDERS));
+        ReflectionTestUtils.setField(transactionService, "asyncLoad", true);
+        TransactionLoadHealthIndicator health = new TransactionLoadHealthIndicator(transactionService);
+        Assertions.assertEquals(Status.OUT_OF_SERVICE, health.health().getStatus());
+
+        transactionService.initTransaction();
+        transactionService.getInitialLoad().join();
+
+        Assertions.assertEquals(Status.UP, health.health().getStatus());
+        Assertions.assertEquals(SMALL_ROWS, health.health().getDetails().get("rows"));
+        assertComplete(transactionService.getStatistics());
+
+        TransactionServiceImpl failing = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(failing, "jsonFile", directory.resolve("missing.json").toString());
+        ReflectionTestUtils.setField(failing, "asyncLoad", true);
+        failing.initTransaction();
+        Assertions.assertThrows(CompletionException.class, () -> failing.getInitialLoad().join());
+        Assertions.assertEquals(Status.DOWN, new TransactionLoadHealthIndicator(failing).health().getStatus());
+    }
+
+    /**
+     * Checks every aggregate of the statistics against the file it was loaded from, picked by its row count.
+     */
+    private static void assertComplete(TransactionStatistics statistics) {
+        int rows = statistics.getColumns().size();
+        Assertions.assertTrue(rows == SMALL_ROWS || rows == LARGE_ROWS, "rows " + rows);
+        int senders = rows == SMALL_ROWS ? SMALL_SENDERS : LARGE_SENDERS;
+        Assertions.assertEquals(rows, statistics.getTotalAmount());
+        Assertions.assertEquals(2L * senders, statistics.getUniqueClientCount());
+        Assertions.assertEquals(rows / 2, statistics.getUnsolvedIssueIds().size());
+        Assertions.assertEquals(rows / senders, statistics.getMtnsSentBy("Sender 1").length);
+        Assertions.assertEquals(rows / senders, statistics.getTotalAmountSentBy("Sender 1"));
+    }
+
+    private static TransactionServiceImpl serviceOf(String jsonFile) {
+        TransactionServiceImpl transactionService = new TransactionServiceImpl();
+        ReflectionTestUtils.setField(transactionService, "jsonFile", jsonFile);
+        transactionService.initTransaction();
+        return transactionService;
+    }
+
+    private static void writeShard(Path file, int fromMtn, int toMtn, boolean solved) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = fromMtn; i < toMtn; i++) {
+            transactions.add(Transaction.builder()
+                    .mtn(i)
+                    .amount(1.0)
+                    .senderFullName("Sender " + i % SMALL_SENDERS)
+                    .beneficiaryFullName("Beneficiary " + i % SMALL_SENDERS)
+                    .issueId(i)
+                    .issueSolved(solved || i % 2 == 0)
+                    .issueMessage("Looks like money laundering")
+                    .build());
+        }
+        new ObjectMapper().writeValue(file.toFile(), transactions);
+    }
+
+    private String writeJson(String name, int rows, int senders) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            transactions.add(Transaction.builder()
+                    .mtn(i)
+                    .amount(1.0)
+                    .senderFullName("Sender " + i % senders)
+                    .senderAge(30)
+                    .beneficiaryFullName("Beneficiary " + i % senders)
+                    .beneficiaryAge(40)
+                    .issueId(i)
+                    .issueSolved(i % 2 == 0)
+                    .issueMessage("Looks like money laundering")
+                    .build());
+        }
+        Path file = directory.resolve(name);
+        new ObjectMapper().writeValue(file.toFile(), transactions);
+        return file.toString();
+    }
+}